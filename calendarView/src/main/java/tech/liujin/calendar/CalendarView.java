@@ -1,10 +1,17 @@
 package tech.liujin.calendar;
 
 import android.content.Context;
+import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.view.ViewGroup;
+import androidx.core.view.ViewCompat;
 import java.util.Date;
+import tech.liujin.calendar.month.DayDecorationSource;
+import tech.liujin.calendar.month.DayOccupancySource;
+import tech.liujin.calendar.month.DaySelection;
+import tech.liujin.calendar.month.HeatMapRamp;
 import tech.liujin.calendar.month.MonthLayout;
+import tech.liujin.calendar.util.DayKeys;
 import tech.liujin.calendar.week.LinearWeekBar;
 
 /**
@@ -30,6 +37,14 @@ public class CalendarView extends ViewGroup {
        * 每周的起始是不是周一
        */
       private boolean               isFirstDayMonday = true;
+      /**
+       * 不重新布局改变高度时,用于裁剪超出的部分,为null时没有裁剪
+       */
+      private Rect                  mClipRect;
+      /**
+       * 下次布局时取消裁剪
+       */
+      private boolean               isClipCommitPending;
 
       public CalendarView ( Context context ) {
 
@@ -87,6 +102,110 @@ public class CalendarView extends ViewGroup {
             mMonthLayout.setDate( date );
       }
 
+      /**
+       * 使用动画滚动到该日期所在页面,经过的页面不会绑定数据
+       */
+      public void scrollToDate ( Date date ) {
+
+            mMonthLayout.scrollToDate( date );
+      }
+
+      /**
+       * 设置每天的装饰数据源,用于显示事件圆点,角标等
+       *
+       * @param source 数据源,null:没有装饰
+       */
+      public void setDayDecorationSource ( DayDecorationSource source ) {
+
+            mMonthLayout.setDayDecorationSource( source );
+      }
+
+      /**
+       * 设置热力图数据源,每天按照占用的时间显示不同深浅的背景
+       *
+       * @param source 数据源,null:不显示热力图
+       */
+      public void setDayOccupancySource ( DayOccupancySource source ) {
+
+            mMonthLayout.setDayOccupancySource( source );
+      }
+
+      /**
+       * @param ramp 热力图颜色
+       */
+      public void setHeatMapRamp ( HeatMapRamp ramp ) {
+
+            mMonthLayout.setHeatMapRamp( ramp );
+      }
+
+      /**
+       * 设置选择模式,会清除已经选中的日期
+       *
+       * @param mode {@link DaySelection#MODE_SINGLE},{@link DaySelection#MODE_MULTIPLE},{@link DaySelection#MODE_RANGE}
+       */
+      public void setSelectionMode ( int mode ) {
+
+            mMonthLayout.getDaySelection().setMode( mode );
+      }
+
+      /**
+       * @return 选中的日期
+       */
+      public DaySelection getDaySelection ( ) {
+
+            return mMonthLayout.getDaySelection();
+      }
+
+      /**
+       * 设置是否可以在范围选择模式下长按日期之后拖动选择范围,拖动到左右边缘停留时翻到相邻的页面
+       *
+       * @param enabled true:开启
+       */
+      public void setDragSelectEnabled ( boolean enabled ) {
+
+            mMonthLayout.setDragSelectEnabled( enabled );
+      }
+
+      /**
+       * 装饰数据变化之后调用
+       */
+      public void notifyDecorationsChanged ( ) {
+
+            mMonthLayout.notifyDecorationsChanged();
+      }
+
+      /**
+       * 该范围内的天的数据变化后调用,只重绘显示这些天的子view
+       *
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       */
+      public void notifyDaysChanged ( int startDay, int endDay ) {
+
+            mMonthLayout.notifyDaysChanged( startDay, endDay );
+      }
+
+      /**
+       * 该范围内的天的数据变化后调用,只重绘显示这些天的子view
+       *
+       * @param start 第一天
+       * @param end 最后一天,包含
+       */
+      public void notifyDaysChanged ( Date start, Date end ) {
+
+            mMonthLayout.notifyDaysChanged( DayKeys.fromDate( start ), DayKeys.fromDate( end ) );
+      }
+
+      /**
+       * 设置是否根据惯性速度一次滑过多页
+       *
+       * @param enabled true:开启
+       */
+      public void setMultiPageFlingEnabled ( boolean enabled ) {
+
+            mMonthLayout.setMultiPageFlingEnabled( enabled );
+      }
+
       /**
        * 获取基准日期,页面显示的日期都是基于此日期计算而得
        */
@@ -153,6 +272,17 @@ public class CalendarView extends ViewGroup {
             return isFirstDayMonday;
       }
 
+      /**
+       * 设置是否开启异步创建,开启后首帧之前只为当前页面创建子view,其他页面在首帧之后空闲时创建,
+       * 需要在第一次测量之前设置,例如{@code setContentView}之后
+       *
+       * @param enabled true:开启
+       */
+      public void setAsyncBuildEnabled ( boolean enabled ) {
+
+            mMonthLayout.setAsyncBuildEnabled( enabled );
+      }
+
       @Override
       protected void onMeasure ( int widthMeasureSpec, int heightMeasureSpec ) {
 
@@ -197,6 +327,60 @@ public class CalendarView extends ViewGroup {
       protected void onLayout ( boolean changed, int l, int t, int r, int b ) {
 
             mLayoutStrategy.layoutChildren( this, mWeekBar, mMonthLayout );
+
+            /* 真实的布局已经完成,不再需要裁剪 */
+            if( isClipCommitPending ) {
+                  isClipCommitPending = false;
+                  mClipRect = null;
+                  ViewCompat.setClipBounds( this, null );
+            }
+      }
+
+      /**
+       * 不重新布局,通过裁剪使日历看起来只有这么高,之后通过{@link #commitClip()}重新布局到真实高度
+       *
+       * @param monthHeight 月视图高度
+       */
+      public void clipToMonthHeight ( int monthHeight ) {
+
+            if( mClipRect == null ) {
+                  mClipRect = new Rect();
+            }
+            isClipCommitPending = false;
+
+            int height = getPaddingTop() + mWeekBar.getMeasuredHeight() + monthHeight + getPaddingBottom();
+            mClipRect.set( 0, 0, getWidth(), height );
+            ViewCompat.setClipBounds( this, mClipRect );
+      }
+
+      /**
+       * 重新测量布局至真实高度,布局完成后取消裁剪
+       */
+      public void commitClip ( ) {
+
+            if( mClipRect != null && !isClipCommitPending ) {
+                  isClipCommitPending = true;
+                  requestLayout();
+            }
+      }
+
+      /**
+       * @return true:正在通过裁剪改变高度
+       */
+      public boolean isClipped ( ) {
+
+            return mClipRect != null;
+      }
+
+      /**
+       * @return 可见的高度, 裁剪时为裁剪后的高度, 否则为布局高度
+       */
+      public int getVisibleHeight ( ) {
+
+            if( mClipRect != null ) {
+                  return Math.min( mClipRect.bottom, getHeight() );
+            }
+            return getHeight();
       }
 
       /**
@@ -319,4 +503,33 @@ public class CalendarView extends ViewGroup {
 
             return mMonthLayout.getOnDateChangeListener();
       }
+
+      /**
+       * 监听页面停止滚动,快速滑动经过的中间页面不会回调,适合在这里加载页面数据
+       */
+      public interface OnPageSettledListener {
+
+            /**
+             * pager停止滚动后回调一次
+             *
+             * @param date 停止时的页面日期
+             * @param generation 每次选中新页面都会增加,加载完成时如果已经不是最新的代数,结果可以丢弃
+             */
+            void onPageSettled ( Date date, long generation );
+      }
+
+      /**
+       * 设置页面停止滚动监听,与{@link OnDateChangeListener#onNewPageSelected(Date)}不同,快速滑动经过的页面不会回调
+       *
+       * @param onPageSettledListener 监听
+       */
+      public void setOnPageSettledListener ( OnPageSettledListener onPageSettledListener ) {
+
+            mMonthLayout.setOnPageSettledListener( onPageSettledListener );
+      }
+
+      public OnPageSettledListener getOnPageSettledListener ( ) {
+
+            return mMonthLayout.getOnPageSettledListener();
+      }
 }
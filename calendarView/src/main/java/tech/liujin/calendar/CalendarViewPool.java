@@ -0,0 +1,98 @@
+package tech.liujin.calendar;
+
+import java.util.ArrayList;
+import tech.liujin.calendar.month.MonthLayout;
+import tech.liujin.calendar.month.MonthPagePool;
+
+/**
+ * 多个{@link CalendarView}共用的缓存池,同时显示多个日历时(例如列表中每一项都是一个日历),
+ * 被回收的页面及其子view可以被其他日历复用,页面数量不会随着日历数量增长;
+ * 绘制天的画笔以及月份信息本身就是所有日历共用的
+ * <p>
+ * 页面持有创建它的日历的{@link android.content.Context},所以缓存池的生命周期不要超过这些日历所在的界面,
+ * 界面销毁时调用{@link #clear()}
+ *
+ * @author Liujin 2019/4/24:16:40:02
+ */
+public class CalendarViewPool {
+
+      /**
+       * 共享的页面缓存池
+       */
+      private MonthPagePool           mPagePool;
+      /**
+       * 使用该缓存池的日历
+       */
+      private ArrayList<CalendarView> mAttached = new ArrayList<>();
+
+      public CalendarViewPool ( ) {
+
+            this( MonthPagePool.DEFAULT_CAPACITY * 2 );
+      }
+
+      /**
+       * @param pageCapacity 最多缓存的页面数量
+       */
+      public CalendarViewPool ( int pageCapacity ) {
+
+            mPagePool = new MonthPagePool( pageCapacity );
+      }
+
+      /**
+       * 让日历使用该缓存池
+       *
+       * @param calendarView 日历
+       */
+      public void attach ( CalendarView calendarView ) {
+
+            if( mAttached.contains( calendarView ) ) {
+                  return;
+            }
+            mAttached.add( calendarView );
+            calendarView.getMonthLayout().setPagePool( mPagePool );
+      }
+
+      /**
+       * 日历不再使用该缓存池,改为使用自己的缓存池
+       *
+       * @param calendarView 日历
+       */
+      public void detach ( CalendarView calendarView ) {
+
+            if( mAttached.remove( calendarView ) ) {
+                  MonthLayout monthLayout = calendarView.getMonthLayout();
+                  if( monthLayout.getPagePool() == mPagePool ) {
+                        monthLayout.setPagePool( null );
+                  }
+            }
+      }
+
+      /**
+       * @return 共享的页面缓存池, 可以获取命中统计
+       */
+      public MonthPagePool getPagePool ( ) {
+
+            return mPagePool;
+      }
+
+      /**
+       * 设置最多缓存的页面数量
+       *
+       * @param capacity 页面数量
+       */
+      public void setPageCapacity ( int capacity ) {
+
+            mPagePool.setCapacity( capacity );
+      }
+
+      /**
+       * 所有日历不再使用该缓存池,并且清空缓存的页面
+       */
+      public void clear ( ) {
+
+            for( int i = mAttached.size() - 1; i >= 0; i-- ) {
+                  detach( mAttached.get( i ) );
+            }
+            mPagePool.clear();
+      }
+}
@@ -0,0 +1,328 @@
+package tech.liujin.calendar.behavior;
+
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.RecyclerView.LayoutManager;
+import androidx.recyclerview.widget.RecyclerView.OnScrollListener;
+import java.util.Arrays;
+import java.util.Date;
+import tech.liujin.calendar.CalendarView;
+import tech.liujin.calendar.CalendarView.OnDateChangeListener;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 同步{@link CalendarView}与按日期分组的列表:点击日期时列表滚动到该日期的分组,用户滚动列表时日历选中第一个可见分组的日期
+ * <p>
+ * 列表的分组以两个有序的int数组保存:分组在列表中的位置,以及分组的日期({@link DayKeys}),
+ * 日期与位置的互相查找都是二分查找;两个方向的更新都合并到下一帧执行,每帧最多执行一次
+ *
+ * @author Liujin 2019/4/26:15:02:47
+ */
+public class AgendaSync {
+
+      private CalendarView mCalendarView;
+      private RecyclerView mRecyclerView;
+
+      /**
+       * 分组在列表中的位置,递增
+       */
+      private int[] mPositions = new int[ 0 ];
+      /**
+       * 分组的日期,与{@link #mPositions}一一对应,不递减
+       */
+      private int[] mDays      = new int[ 0 ];
+      /**
+       * 分组数量
+       */
+      private int   mCount;
+
+      /**
+       * 原有的日期变化监听,所有回调都会转发给它
+       */
+      private OnDateChangeListener mDelegate;
+      private CalendarDateListener mCalendarListener = new CalendarDateListener();
+      private ListScrollListener   mListScrollListener = new ListScrollListener();
+      private SyncFrameCallback    mFrameCallback      = new SyncFrameCallback();
+
+      /**
+       * 下一帧需要滚动到的日期,{@link Integer#MIN_VALUE}:没有
+       */
+      private int     mPendingListDay     = Integer.MIN_VALUE;
+      /**
+       * 下一帧需要设置给日历的列表位置,{@link RecyclerView#NO_POSITION}:没有
+       */
+      private int     mPendingPosition    = RecyclerView.NO_POSITION;
+      /**
+       * 日历当前选中的日期
+       */
+      private int     mCalendarDay        = Integer.MIN_VALUE;
+      private boolean isFrameScheduled;
+      /**
+       * 正在由同步设置日历日期,此时日历的回调不需要再滚动列表
+       */
+      private boolean isUpdatingCalendar;
+      private boolean isAttached;
+
+      public AgendaSync ( CalendarView calendarView, RecyclerView recyclerView ) {
+
+            mCalendarView = calendarView;
+            mRecyclerView = recyclerView;
+      }
+
+      /**
+       * 开始同步,会替换日历的{@link OnDateChangeListener},原来的监听仍然会收到所有回调
+       */
+      public void attach ( ) {
+
+            if( isAttached ) {
+                  return;
+            }
+            isAttached = true;
+
+            mDelegate = mCalendarView.getOnDateChangeListener();
+            mCalendarView.setOnDateChangeListener( mCalendarListener );
+            mRecyclerView.addOnScrollListener( mListScrollListener );
+            mCalendarDay = DayKeys.fromDate( mCalendarView.getBaseDate() );
+      }
+
+      /**
+       * 停止同步,恢复原有的{@link OnDateChangeListener}
+       */
+      public void detach ( ) {
+
+            if( !isAttached ) {
+                  return;
+            }
+            isAttached = false;
+
+            if( mCalendarView.getOnDateChangeListener() == mCalendarListener ) {
+                  mCalendarView.setOnDateChangeListener( mDelegate );
+            }
+            mDelegate = null;
+            mRecyclerView.removeOnScrollListener( mListScrollListener );
+            if( isFrameScheduled ) {
+                  isFrameScheduled = false;
+                  Choreographer.getInstance().removeFrameCallback( mFrameCallback );
+            }
+      }
+
+      /**
+       * 设置列表的分组,列表数据变化后需要重新设置
+       *
+       * @param positions 分组在列表中的位置,必须递增
+       * @param days 分组的日期{@link DayKeys},必须不递减
+       * @param count 分组数量
+       */
+      public void setSections ( int[] positions, int[] days, int count ) {
+
+            if( mPositions.length < count ) {
+                  mPositions = new int[ count ];
+                  mDays = new int[ count ];
+            }
+            System.arraycopy( positions, 0, mPositions, 0, count );
+            System.arraycopy( days, 0, mDays, 0, count );
+            mCount = count;
+      }
+
+      /**
+       * 查找日期对应的列表位置:该日期的分组,没有时为之后最近的分组
+       *
+       * @param day {@link DayKeys}
+       *
+       * @return 位置, 没有分组时返回{@link RecyclerView#NO_POSITION}
+       */
+      public int findPositionForDay ( int day ) {
+
+            if( mCount == 0 ) {
+                  return RecyclerView.NO_POSITION;
+            }
+
+            /* 第一个不小于day的分组 */
+            int low = 0;
+            int high = mCount;
+            while( low < high ) {
+                  int mid = ( low + high ) >>> 1;
+                  if( mDays[ mid ] < day ) {
+                        low = mid + 1;
+                  } else {
+                        high = mid;
+                  }
+            }
+            if( low == mCount ) {
+                  low = mCount - 1;
+            }
+            return mPositions[ low ];
+      }
+
+      /**
+       * 查找列表位置所在分组的日期
+       *
+       * @param position 列表位置
+       *
+       * @return 日期{@link DayKeys}, 没有分组时返回{@link Integer#MIN_VALUE}
+       */
+      public int findDayForPosition ( int position ) {
+
+            if( mCount == 0 ) {
+                  return Integer.MIN_VALUE;
+            }
+
+            int index = Arrays.binarySearch( mPositions, 0, mCount, position );
+            if( index < 0 ) {
+                  /* 插入点之前的分组包含该位置 */
+                  index = -index - 2;
+            }
+            if( index < 0 ) {
+                  index = 0;
+            }
+            return mDays[ index ];
+      }
+
+      private void scheduleFrame ( ) {
+
+            if( !isFrameScheduled ) {
+                  isFrameScheduled = true;
+                  Choreographer.getInstance().postFrameCallback( mFrameCallback );
+            }
+      }
+
+      /**
+       * 列表滚动到日期所在的分组
+       */
+      private void syncListToDay ( int day ) {
+
+            int position = findPositionForDay( day );
+            if( position == RecyclerView.NO_POSITION ) {
+                  return;
+            }
+
+            LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+            if( layoutManager instanceof LinearLayoutManager ) {
+                  ( (LinearLayoutManager) layoutManager ).scrollToPositionWithOffset( position, 0 );
+            } else {
+                  mRecyclerView.scrollToPosition( position );
+            }
+      }
+
+      /**
+       * 日历选中列表位置所在分组的日期
+       */
+      private void syncCalendarToPosition ( int position ) {
+
+            int day = findDayForPosition( position );
+            if( day == Integer.MIN_VALUE || day == mCalendarDay ) {
+                  return;
+            }
+
+            mCalendarDay = day;
+            isUpdatingCalendar = true;
+            try {
+                  mCalendarView.setDate( DayKeys.toDate( day ) );
+            } finally {
+                  isUpdatingCalendar = false;
+            }
+      }
+
+      /**
+       * 日历日期变化时,在下一帧滚动列表
+       */
+      private void onCalendarDateChanged ( Date date ) {
+
+            int day = DayKeys.fromDate( date );
+            mCalendarDay = day;
+            if( isUpdatingCalendar ) {
+                  return;
+            }
+
+            mPendingListDay = day;
+            mPendingPosition = RecyclerView.NO_POSITION;
+            scheduleFrame();
+      }
+
+      /**
+       * 监听日历,并且转发给原有监听
+       */
+      private class CalendarDateListener implements OnDateChangeListener {
+
+            @Override
+            public void onNewPageSelected ( Date date ) {
+
+                  if( mDelegate != null ) {
+                        mDelegate.onNewPageSelected( date );
+                  }
+            }
+
+            @Override
+            public void onNewDateClick ( Date newDate ) {
+
+                  onCalendarDateChanged( newDate );
+                  if( mDelegate != null ) {
+                        mDelegate.onNewDateClick( newDate );
+                  }
+            }
+
+            @Override
+            public void onNewDateSet ( Date date ) {
+
+                  onCalendarDateChanged( date );
+                  if( mDelegate != null ) {
+                        mDelegate.onNewDateSet( date );
+                  }
+            }
+      }
+
+      /**
+       * 用户滚动列表时,在下一帧更新日历;同步自身调用的滚动不会触发更新
+       */
+      private class ListScrollListener extends OnScrollListener {
+
+            @Override
+            public void onScrolled ( @NonNull RecyclerView recyclerView, int dx, int dy ) {
+
+                  if( recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_IDLE ) {
+                        return;
+                  }
+
+                  LayoutManager layoutManager = recyclerView.getLayoutManager();
+                  if( !( layoutManager instanceof LinearLayoutManager ) ) {
+                        return;
+                  }
+
+                  int position = ( (LinearLayoutManager) layoutManager ).findFirstVisibleItemPosition();
+                  if( position == RecyclerView.NO_POSITION ) {
+                        return;
+                  }
+
+                  mPendingPosition = position;
+                  mPendingListDay = Integer.MIN_VALUE;
+                  scheduleFrame();
+            }
+      }
+
+      /**
+       * 每帧最多执行一次最后一次请求的同步
+       */
+      private class SyncFrameCallback implements FrameCallback {
+
+            @Override
+            public void doFrame ( long frameTimeNanos ) {
+
+                  isFrameScheduled = false;
+
+                  if( mPendingListDay != Integer.MIN_VALUE ) {
+                        int day = mPendingListDay;
+                        mPendingListDay = Integer.MIN_VALUE;
+                        syncListToDay( day );
+                  }
+
+                  if( mPendingPosition != RecyclerView.NO_POSITION ) {
+                        int position = mPendingPosition;
+                        mPendingPosition = RecyclerView.NO_POSITION;
+                        syncCalendarToPosition( position );
+                  }
+            }
+      }
+}
@@ -3,63 +3,66 @@ package tech.liujin.calendar.behavior;
 import android.view.View;
 import android.view.View.MeasureSpec;
 import android.view.ViewGroup.MarginLayoutParams;
+import android.view.ViewParent;
 import androidx.annotation.NonNull;
 import androidx.coordinatorlayout.widget.CoordinatorLayout;
 import androidx.coordinatorlayout.widget.CoordinatorLayout.Behavior;
 import androidx.coordinatorlayout.widget.CoordinatorLayout.LayoutParams;
+import androidx.core.view.NestedScrollingChild;
 import androidx.core.view.ViewCompat;
-import androidx.recyclerview.widget.RecyclerView;
 import tech.liujin.calendar.CalendarView;
 import tech.liujin.calendar.month.MonthLayout;
 import tech.liujin.calendar.month.MonthLayout.PageHeightChangeStrategy;
 /**
+ * 滚动view依赖calendar,{@link CoordinatorLayout}保证calendar先于它测量布局,
+ * 每次测量/布局两个view各自只处理一次
+ *
  * @author Liujin 2019/3/11:15:37:33
  */
 public class CalendarBehaviors {
 
       private CalendarView mCalendarView;
       private MonthLayout  mMonthLayout;
-      private RecyclerView mRecyclerView;
-
-      private int mCalendarBottomMargin;
-      private int mRecyclerTopMargin;
-
-      private boolean mFlagMeasure;
-      private boolean mFlagLayout;
+      private View         mScrollingView;
 
       /**
        * 为{@link CoordinatorLayout}的直接子view辅助创建{@link Behavior}
        *
-       * @param calendarView 直接子view之一,当recycler竖直嵌套滑动时,会响应该滑动
-       * @param recyclerView 直接子view之一
+       * @param calendarView 直接子view之一,当scrollingView竖直嵌套滑动时,会响应该滑动
+       * @param scrollingView 直接子view之一,任意实现了{@link NestedScrollingChild}的view,例如:RecyclerView,NestedScrollView
+       *
+       * @throws IllegalArgumentException scrollingView不支持嵌套滑动,calendar无法响应它的滑动
        */
-      public void setUpWith ( CalendarView calendarView, RecyclerView recyclerView ) {
+      public void setUpWith ( CalendarView calendarView, View scrollingView ) {
+
+            if( !( scrollingView instanceof NestedScrollingChild ) ) {
+                  throw new IllegalArgumentException( scrollingView + " is not a NestedScrollingChild" );
+            }
 
             mCalendarView = calendarView;
-            mRecyclerView = recyclerView;
+            mScrollingView = scrollingView;
 
             /* calendar set behavior */
             LayoutParams layoutParams = ( (LayoutParams) calendarView.getLayoutParams() );
             CalendarBehavior calendarBehavior = new CalendarBehavior();
             layoutParams.setBehavior( calendarBehavior );
 
-            /* set recycler behavior */
-            layoutParams = (LayoutParams) recyclerView.getLayoutParams();
-            RecyclerBehavior recyclerBehavior = new RecyclerBehavior();
-            layoutParams.setBehavior( recyclerBehavior );
+            /* set scrolling view behavior */
+            layoutParams = (LayoutParams) scrollingView.getLayoutParams();
+            ScrollingViewBehavior scrollingViewBehavior = new ScrollingViewBehavior();
+            layoutParams.setBehavior( scrollingViewBehavior );
 
-            /* recycler follow calendar */
+            /* scrolling view follow calendar */
             mMonthLayout = mCalendarView.getMonthLayout();
             mMonthLayout.setPageHeightChangeStrategy( new HeightChangeStrategy() );
       }
 
       /**
-       * 测量recyclerView
+       * 测量scrollingView,高度为calendar折叠后剩余的高度,calendar已经先测量过,最小高度已经确定
        */
-      private void measureRecycler ( int parentWidthMeasureSpec, int parentHeightMeasureSpec ) {
+      private void measureScrollingView ( int parentWidthMeasureSpec, int parentHeightMeasureSpec ) {
 
-            MarginLayoutParams layoutParams = (MarginLayoutParams) mRecyclerView.getLayoutParams();
-            mRecyclerTopMargin = layoutParams.topMargin;
+            MarginLayoutParams layoutParams = (MarginLayoutParams) mScrollingView.getLayoutParams();
 
             int width;
             if( layoutParams.width > 0 ) {
@@ -82,7 +85,7 @@ public class CalendarBehaviors {
             int childHeightSpec = MeasureSpec
                 .makeMeasureSpec( height, MeasureSpec.EXACTLY );
 
-            mRecyclerView.measure( childWidthSpec, childHeightSpec );
+            mScrollingView.measure( childWidthSpec, childHeightSpec );
       }
 
       /**
@@ -91,7 +94,6 @@ public class CalendarBehaviors {
       private void measureCalendar ( int parentWidthMeasureSpec, int parentHeightMeasureSpec ) {
 
             MarginLayoutParams layoutParams = (MarginLayoutParams) mCalendarView.getLayoutParams();
-            mCalendarBottomMargin = layoutParams.bottomMargin;
 
             int width;
             if( layoutParams.width > 0 ) {
@@ -117,20 +119,30 @@ public class CalendarBehaviors {
       }
 
       /**
-       * 布局recyclerView
+       * 布局scrollingView
        */
-      private void layoutRecycler ( ) {
+      private void layoutScrollingView ( ) {
 
-            MarginLayoutParams layoutParams = (MarginLayoutParams) mRecyclerView.getLayoutParams();
+            MarginLayoutParams layoutParams = (MarginLayoutParams) mScrollingView.getLayoutParams();
 
             int l = layoutParams.leftMargin;
-            int t = mCalendarView.getBottom()
+            int t = getScrollingViewTop();
+            int r = l + mScrollingView.getMeasuredWidth();
+            int b = t + mScrollingView.getMeasuredHeight();
+
+            mScrollingView.layout( l, t, r, b );
+      }
+
+      /**
+       * scrollingView跟随calendar可见部分的底部
+       */
+      private int getScrollingViewTop ( ) {
+
+            MarginLayoutParams layoutParams = (MarginLayoutParams) mScrollingView.getLayoutParams();
+            return mCalendarView.getTop()
+                + mCalendarView.getVisibleHeight()
                 + ( (MarginLayoutParams) mCalendarView.getLayoutParams() ).bottomMargin
                 + layoutParams.topMargin;
-            int r = l + mRecyclerView.getMeasuredWidth();
-            int b = t + mRecyclerView.getMeasuredHeight();
-
-            mRecyclerView.layout( l, t, r, b );
       }
 
       /**
@@ -148,70 +160,71 @@ public class CalendarBehaviors {
       }
 
       /**
-       * 同时测量calendar 和 recycler,如果已经测量过,那么跳过
-       */
-      private void onMeasure ( int parentWidthMeasureSpec, int parentHeightMeasureSpec ) {
-
-            if( mFlagMeasure ) {
-                  mFlagMeasure = false;
-            } else {
-                  mFlagMeasure = true;
-                  measureCalendar( parentWidthMeasureSpec, parentHeightMeasureSpec );
-                  measureRecycler( parentWidthMeasureSpec, parentHeightMeasureSpec );
-            }
-      }
-
-      /**
-       * 同时布局calendar 和 recycler,如果已经布局过,那么跳过
+       * {@link #mScrollingView}的{@link Behavior}
        */
-      private void onLayout ( ) {
-
-            if( mFlagLayout ) {
-                  mFlagLayout = false;
-            } else {
-                  mFlagLayout = true;
-                  layoutCalendar();
-                  layoutRecycler();
-            }
-      }
-
-      /**
-       * {@link #mRecyclerView}的{@link Behavior}
-       */
-      private class RecyclerBehavior extends Behavior<RecyclerView> {
+      private class ScrollingViewBehavior extends Behavior<View> {
 
             /**
              * 用于滑动完毕后最后判断方向,是收缩还是展开
              */
-            private int mLastDy;
+            private int     mLastDy;
+            /**
+             * 本次手势的惯性已经交给calendar处理,手指抬起后不需要再释放
+             */
+            private boolean isFlingHandled;
 
             @Override
             public boolean onMeasureChild (
-                @NonNull CoordinatorLayout parent, @NonNull RecyclerView child, int parentWidthMeasureSpec, int widthUsed,
+                @NonNull CoordinatorLayout parent, @NonNull View child, int parentWidthMeasureSpec, int widthUsed,
                 int parentHeightMeasureSpec, int heightUsed ) {
 
-                  onMeasure( parentWidthMeasureSpec, parentHeightMeasureSpec );
+                  measureScrollingView( parentWidthMeasureSpec, parentHeightMeasureSpec );
                   return true;
             }
 
             @Override
-            public boolean onLayoutChild ( @NonNull CoordinatorLayout parent, @NonNull RecyclerView child, int layoutDirection ) {
+            public boolean onLayoutChild ( @NonNull CoordinatorLayout parent, @NonNull View child, int layoutDirection ) {
 
-                  onLayout();
+                  layoutScrollingView();
                   return true;
             }
 
+            @Override
+            public boolean layoutDependsOn (
+                @NonNull CoordinatorLayout parent, @NonNull View child, @NonNull View dependency ) {
+
+                  return dependency == mCalendarView;
+            }
+
+            /**
+             * calendar高度通过裁剪变化时,直接偏移scrollingView,不重新布局
+             */
+            @Override
+            public boolean onDependentViewChanged (
+                @NonNull CoordinatorLayout parent, @NonNull View child, @NonNull View dependency ) {
+
+                  int offset = getScrollingViewTop() - child.getTop();
+                  if( offset != 0 ) {
+                        child.offsetTopAndBottom( offset );
+                        return true;
+                  }
+                  return false;
+            }
+
             @Override
             public boolean onStartNestedScroll (
-                @NonNull CoordinatorLayout coordinatorLayout, @NonNull RecyclerView child, @NonNull View directTargetChild,
+                @NonNull CoordinatorLayout coordinatorLayout, @NonNull View child, @NonNull View directTargetChild,
                 @NonNull View target, int axes, int type ) {
 
+                  if( type == ViewCompat.TYPE_TOUCH ) {
+                        isFlingHandled = false;
+                  }
                   return ( axes & ViewCompat.SCROLL_AXIS_VERTICAL ) != 0;
             }
 
             @Override
             public void onNestedPreScroll (
-                @NonNull CoordinatorLayout coordinatorLayout, @NonNull RecyclerView child, @NonNull View target, int dx, int dy,
+                @NonNull CoordinatorLayout coordinatorLayout, @NonNull View child, @NonNull View target, int dx, int dy,
                 @NonNull int[] consumed, int type ) {
 
                   /* 已经折叠不响应滑动 */
@@ -219,6 +232,11 @@ public class CalendarBehaviors {
                         return;
                   }
 
+                  /* calendar正在以自己的惯性展开折叠,不响应列表的惯性滑动 */
+                  if( type == ViewCompat.TYPE_NON_TOUCH && isFlingHandled ) {
+                        return;
+                  }
+
                   /* 没有处于折叠 */
                   if( mMonthLayout.dispatchMoveToCurrentPage( -dy ) ) {
                         consumed[ 1 ] = dy;
@@ -228,12 +246,42 @@ public class CalendarBehaviors {
 
             @Override
             public void onStopNestedScroll (
-                @NonNull CoordinatorLayout coordinatorLayout, @NonNull RecyclerView child, @NonNull View target, int type ) {
+                @NonNull CoordinatorLayout coordinatorLayout, @NonNull View child, @NonNull View target, int type ) {
 
                   super.onStopNestedScroll( coordinatorLayout, child, target, type );
+                  if( isFlingHandled ) {
+                        mLastDy = 0;
+                        return;
+                  }
                   release();
             }
 
+            /**
+             * 列表惯性滑动之前调用(早于手指抬起的{@link #onStopNestedScroll}),calendar没有完全折叠时,
+             * 使用列表的速度让calendar惯性展开或者折叠;不消耗该惯性,列表同时开始自己的惯性滑动,
+             * 期间列表的嵌套滑动不再移动calendar
+             */
+            @Override
+            public boolean onNestedPreFling (
+                @NonNull CoordinatorLayout coordinatorLayout, @NonNull View child, @NonNull View target,
+                float velocityX, float velocityY ) {
+
+                  if( mMonthLayout.isFolded() ) {
+                        return false;
+                  }
+
+                  /* 已经展开时,只响应向上的惯性 */
+                  if( mMonthLayout.isExpanded() && velocityY < 0 ) {
+                        return false;
+                  }
+
+                  /* 列表向上滑动(velocityY > 0)时calendar折叠 */
+                  if( mMonthLayout.dispatchFlingToCurrentPage( -velocityY ) ) {
+                        isFlingHandled = true;
+                  }
+                  return false;
+            }
+
             /**
              * 根据方向释放
              */
@@ -256,37 +304,45 @@ public class CalendarBehaviors {
                 @NonNull CoordinatorLayout parent, @NonNull CalendarView child, int parentWidthMeasureSpec, int widthUsed,
                 int parentHeightMeasureSpec, int heightUsed ) {
 
-                  onMeasure( parentWidthMeasureSpec, parentHeightMeasureSpec );
+                  measureCalendar( parentWidthMeasureSpec, parentHeightMeasureSpec );
                   return true;
             }
 
             @Override
             public boolean onLayoutChild ( @NonNull CoordinatorLayout parent, @NonNull CalendarView child, int layoutDirection ) {
 
-                  onLayout();
+                  layoutCalendar();
                   return true;
             }
       }
 
       /**
-       * 布局策略,当高度变化时同时改变recyclerView位置
+       * 通知依赖calendar的scrollingView,calendar可见高度发生了变化
+       */
+      private void dispatchCalendarChanged ( ) {
+
+            ViewParent parent = mCalendarView.getParent();
+            if( parent instanceof CoordinatorLayout ) {
+                  ( (CoordinatorLayout) parent ).dispatchDependentViewsChanged( mCalendarView );
+            }
+      }
+
+      /**
+       * 布局策略,高度变化时只偏移裁剪calendar,scrollingView通过依赖跟随,停止变化后才重新布局
        */
       private class HeightChangeStrategy implements PageHeightChangeStrategy {
 
             @Override
             public void onHeightChanging ( int currentHeight, int which ) {
 
-                  mMonthLayout.reLayoutToPageHeight( currentHeight );
-                  int bottom = mCalendarView.getBottom();
-                  mRecyclerView.setY( bottom + mCalendarBottomMargin + mRecyclerTopMargin );
+                  mMonthLayout.offsetToPageHeight( currentHeight );
+                  dispatchCalendarChanged();
             }
 
             @Override
             public void onScrollFinished ( ) {
 
-                  int bottom = mCalendarView.getBottom();
-                  int y = bottom + mCalendarBottomMargin + mRecyclerTopMargin;
-                  mRecyclerView.setY( y );
+                  mMonthLayout.commitPageHeightIfIdle();
             }
 
             @Override
@@ -0,0 +1,191 @@
+package tech.liujin.calendar.event;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.CalendarContract;
+import android.provider.CalendarContract.Instances;
+import java.util.concurrent.Executor;
+import tech.liujin.calendar.month.AsyncDecorationLoader;
+import tech.liujin.calendar.month.DayDecorations;
+import tech.liujin.calendar.month.MonthLayout;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 读取系统日历{@link Instances}作为装饰数据:只查询当前页面以及前后若干页的范围,
+ * 每一行直接从cursor读取到{@link DayDecorations}的数组中,不创建对象;
+ * 日历数据变化后重新加载当前范围,只有结果变化的页面重新绑定
+ * <p>
+ * 需要READ_CALENDAR权限,没有权限时没有数据;可以传入其他{@link Uri}以及{@link ContentResolver}使用本地的provider测试
+ *
+ * @author Liujin 2019/5/1:15:26:48
+ */
+public class CalendarInstancesLoader implements AsyncDecorationLoader.Loader {
+
+      /**
+       * 固定的列,读取时直接使用下标,不需要每次查找
+       */
+      private static final String[] PROJECTION = { Instances.START_DAY, Instances.END_DAY, Instances.DISPLAY_COLOR };
+
+      private static final int COLUMN_START_DAY     = 0;
+      private static final int COLUMN_END_DAY       = 1;
+      private static final int COLUMN_DISPLAY_COLOR = 2;
+
+      private static final String SELECTION = Instances.VISIBLE + "=1";
+
+      /**
+       * {@link Instances#START_DAY}是儒略日,1970年1月1日为该值
+       */
+      private static final int JULIAN_DAY_OF_EPOCH = 2440588;
+
+      /**
+       * 收到通知后等待一段时间再刷新,合并连续的修改
+       */
+      private static final int REFRESH_DELAY = 300;
+
+      private ContentResolver       mResolver;
+      private Uri                   mInstancesUri;
+      private Uri                   mObservedUri;
+      private AsyncDecorationLoader mDecorationLoader;
+
+      private Handler         mMainHandler = new Handler( Looper.getMainLooper() );
+      private ContentObserver mObserver    = new CalendarObserver( mMainHandler );
+      private Runnable        mRefresh     = new RefreshRunnable();
+      private boolean         isAttached;
+
+      /**
+       * 使用系统日历
+       *
+       * @param layout 显示数据的布局
+       * @param resolver 查询
+       * @param executor 执行查询
+       */
+      public CalendarInstancesLoader ( MonthLayout layout, ContentResolver resolver, Executor executor ) {
+
+            this( layout, resolver, executor, Instances.CONTENT_URI, CalendarContract.CONTENT_URI );
+      }
+
+      /**
+       * @param layout 显示数据的布局
+       * @param resolver 查询
+       * @param executor 执行查询
+       * @param instancesUri 查询的地址,后面会添加开始时间和结束时间
+       * @param observedUri 监听该地址及其子地址的变化
+       */
+      public CalendarInstancesLoader ( MonthLayout layout, ContentResolver resolver, Executor executor, Uri instancesUri, Uri observedUri ) {
+
+            mResolver = resolver;
+            mInstancesUri = instancesUri;
+            mObservedUri = observedUri;
+            mDecorationLoader = new AsyncDecorationLoader( layout, executor, this );
+      }
+
+      /**
+       * 开始加载并且监听日历变化
+       */
+      public void attach ( ) {
+
+            if( isAttached ) {
+                  return;
+            }
+            isAttached = true;
+            mDecorationLoader.attach();
+            mResolver.registerContentObserver( mObservedUri, true, mObserver );
+      }
+
+      /**
+       * 停止加载和监听
+       */
+      public void detach ( ) {
+
+            if( !isAttached ) {
+                  return;
+            }
+            isAttached = false;
+            mMainHandler.removeCallbacks( mRefresh );
+            mResolver.unregisterContentObserver( mObserver );
+            mDecorationLoader.detach();
+      }
+
+      /**
+       * @return 用于设置加载范围等
+       */
+      public AsyncDecorationLoader getDecorationLoader ( ) {
+
+            return mDecorationLoader;
+      }
+
+      @Override
+      public void load ( int firstDay, int dayCount, DayDecorations out ) {
+
+            int lastDay = firstDay + dayCount - 1;
+            long begin = DayKeys.toDate( firstDay ).getTime();
+            long end = DayKeys.toDate( lastDay + 1 ).getTime();
+
+            Uri.Builder builder = mInstancesUri.buildUpon();
+            ContentUris.appendId( builder, begin );
+            ContentUris.appendId( builder, end );
+
+            Cursor cursor;
+            try {
+                  cursor = mResolver.query( builder.build(), PROJECTION, SELECTION, null, null );
+            } catch(SecurityException e) {
+                  /* 没有权限 */
+                  return;
+            }
+            if( cursor == null ) {
+                  return;
+            }
+
+            try {
+                  while( cursor.moveToNext() ) {
+                        int startDay = cursor.getInt( COLUMN_START_DAY ) - JULIAN_DAY_OF_EPOCH;
+                        int endDay = cursor.getInt( COLUMN_END_DAY ) - JULIAN_DAY_OF_EPOCH;
+                        int color = cursor.getInt( COLUMN_DISPLAY_COLOR );
+
+                        int from = Math.max( startDay, firstDay );
+                        int to = Math.min( endDay, lastDay );
+                        for( int day = from; day <= to; day++ ) {
+                              out.add( day, color );
+                        }
+                  }
+            } finally {
+                  cursor.close();
+            }
+      }
+
+      /**
+       * 日历数据变化
+       */
+      private class CalendarObserver extends ContentObserver {
+
+            private CalendarObserver ( Handler handler ) {
+
+                  super( handler );
+            }
+
+            @Override
+            public void onChange ( boolean selfChange ) {
+
+                  if( isAttached ) {
+                        mMainHandler.removeCallbacks( mRefresh );
+                        mMainHandler.postDelayed( mRefresh, REFRESH_DELAY );
+                  }
+            }
+      }
+
+      private class RefreshRunnable implements Runnable {
+
+            @Override
+            public void run ( ) {
+
+                  if( isAttached ) {
+                        mDecorationLoader.refresh();
+                  }
+            }
+      }
+}
@@ -0,0 +1,376 @@
+package tech.liujin.calendar.event;
+
+import java.util.Arrays;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 事件索引,查询与某个范围有重叠的事件,复杂度O(log n + k)
+ * <p>
+ * 事件按照开始日期排序保存在数组中,数组本身作为一棵隐式的平衡二叉树,每个节点记录子树中最大的结束日期,查询时跳过整棵不可能重叠的子树;
+ * 新增和删除先记录在增量中,增量同样按照开始日期排序,查询时与主体一样跳过不可能重叠的部分;增量超过一定数量后与主体合并重建
+ * <p>
+ * 每次修改都会发布一个新的不可变的{@link Snapshot},查询可以在任意线程进行,例如后台线程加载数据时界面读取另一个快照;
+ * 修改需要在同一个线程进行或者由调用者同步
+ *
+ * @author Liujin 2019/4/29:15:36:12
+ */
+public class EventIndex implements EventQuery {
+
+      /**
+       * 增量最少达到该数量才合并
+       */
+      private static final int MIN_DELTA_TO_MERGE = 64;
+
+      /**
+       * 最新的快照
+       */
+      private volatile Snapshot mSnapshot = Snapshot.EMPTY;
+
+      /**
+       * @return 当前的不可变快照, 可以在任意线程查询
+       */
+      public Snapshot snapshot ( ) {
+
+            return mSnapshot;
+      }
+
+      /**
+       * 查询当前快照
+       */
+      @Override
+      public void query ( int startDay, int endDay, Visitor visitor ) {
+
+            mSnapshot.query( startDay, endDay, visitor );
+      }
+
+      /**
+       * 批量重建,替换所有事件
+       *
+       * @param builder 事件
+       */
+      public synchronized void build ( Builder builder ) {
+
+            mSnapshot = builder.build();
+      }
+
+      /**
+       * 新增事件,已经存在相同id时替换
+       *
+       * @param id 事件id
+       * @param startDay 开始日期 {@link DayKeys}
+       * @param endDay 结束日期 {@link DayKeys},包含
+       * @param color 颜色
+       */
+      public synchronized void put ( long id, int startDay, int endDay, int color ) {
+
+            Snapshot old = mSnapshot;
+            Delta delta = old.mDelta.remove( id ).add( id, startDay, endDay, color );
+            if( old.mBase.contains( id ) ) {
+                  delta = delta.removeFromBase( id );
+            }
+            publish( old.mBase, delta );
+      }
+
+      /**
+       * 删除事件
+       *
+       * @param id 事件id
+       */
+      public synchronized void remove ( long id ) {
+
+            Snapshot old = mSnapshot;
+            Delta delta = old.mDelta.remove( id );
+            if( old.mBase.contains( id ) ) {
+                  delta = delta.removeFromBase( id );
+            }
+            publish( old.mBase, delta );
+      }
+
+      /**
+       * 删除所有事件
+       */
+      public synchronized void clear ( ) {
+
+            mSnapshot = Snapshot.EMPTY;
+      }
+
+      /**
+       * 增量太多时合并,保证查询复杂度
+       */
+      private void publish ( Tree base, Delta delta ) {
+
+            int changes = delta.addedCount() + delta.mRemoved.length;
+            if( changes >= Math.max( MIN_DELTA_TO_MERGE, base.size() / 16 ) ) {
+                  mSnapshot = merge( base, delta );
+            } else {
+                  mSnapshot = new Snapshot( base, delta );
+            }
+      }
+
+      private static Snapshot merge ( Tree base, Delta delta ) {
+
+            IntervalArray events = base.mEvents;
+            IntervalArray added = delta.mAdded;
+            Builder builder = new Builder( events.size() + added.size() );
+            for( int i = 0; i < events.size(); i++ ) {
+                  long id = events.mIds[ i ];
+                  if( !delta.isRemovedFromBase( id ) ) {
+                        builder.add( id, events.mStarts[ i ], events.mEnds[ i ], events.mColors[ i ] );
+                  }
+            }
+            for( int i = 0; i < added.size(); i++ ) {
+                  builder.add( added.mIds[ i ], added.mStarts[ i ], added.mEnds[ i ], added.mColors[ i ] );
+            }
+            return builder.build();
+      }
+
+      /**
+       * 接收查询结果
+       */
+      public interface Visitor {
+
+            /**
+             * 一个与查询范围有重叠的事件
+             *
+             * @param id 事件id
+             * @param startDay 开始日期
+             * @param endDay 结束日期,包含
+             * @param color 颜色
+             */
+            void visit ( long id, int startDay, int endDay, int color );
+      }
+
+      /**
+       * 某一时刻的全部事件,创建之后不再改变
+       */
+      public static final class Snapshot implements EventQuery {
+
+            static final Snapshot EMPTY = new Snapshot( Tree.EMPTY, Delta.EMPTY );
+
+            private final Tree  mBase;
+            private final Delta mDelta;
+
+            private Snapshot ( Tree base, Delta delta ) {
+
+                  mBase = base;
+                  mDelta = delta;
+            }
+
+            /**
+             * 查询与该范围有重叠的事件,结果不保证顺序
+             *
+             * @param startDay 第一天 {@link DayKeys}
+             * @param endDay 最后一天 {@link DayKeys},包含
+             * @param visitor 接收结果
+             */
+            @Override
+            public void query ( int startDay, int endDay, Visitor visitor ) {
+
+                  if( endDay < startDay ) {
+                        return;
+                  }
+                  mBase.query( startDay, endDay, mDelta, visitor );
+                  mDelta.query( startDay, endDay, visitor );
+            }
+
+            /**
+             * @return 事件数量
+             */
+            public int size ( ) {
+
+                  return mBase.size() - mDelta.mRemoved.length + mDelta.addedCount();
+            }
+      }
+
+      /**
+       * 主体:排序的事件,以及排序的id用于判断是否包含
+       */
+      private static final class Tree {
+
+            static final Tree EMPTY = new Tree( IntervalArray.EMPTY );
+
+            private final IntervalArray mEvents;
+            private final long[]        mSortedIds;
+
+            private Tree ( IntervalArray events ) {
+
+                  mEvents = events;
+                  mSortedIds = events.mIds.clone();
+                  Arrays.sort( mSortedIds );
+            }
+
+            int size ( ) {
+
+                  return mEvents.size();
+            }
+
+            boolean contains ( long id ) {
+
+                  return Arrays.binarySearch( mSortedIds, id ) >= 0;
+            }
+
+            void query ( int startDay, int endDay, Delta delta, Visitor visitor ) {
+
+                  mEvents.query( startDay, endDay, delta.mRemoved, visitor );
+            }
+      }
+
+      /**
+       * 还没有合并的修改:新增的事件同样按照开始日期排序,查询O(log d + k);以及从{@link Tree}中删除的id,
+       * 每次修改都复制一份新的
+       */
+      private static final class Delta {
+
+            static final Delta EMPTY = new Delta( IntervalArray.EMPTY, new long[ 0 ] );
+
+            private final IntervalArray mAdded;
+            /**
+             * 从{@link Tree}中删除的id,有序
+             */
+            private final long[]        mRemoved;
+
+            private Delta ( IntervalArray added, long[] removed ) {
+
+                  mAdded = added;
+                  mRemoved = removed;
+            }
+
+            int addedCount ( ) {
+
+                  return mAdded.size();
+            }
+
+            Delta add ( long id, int startDay, int endDay, int color ) {
+
+                  return new Delta( mAdded.insert( id, startDay, endDay, color ), mRemoved );
+            }
+
+            /**
+             * 删除新增的事件
+             */
+            Delta remove ( long id ) {
+
+                  int index = mAdded.indexOf( id );
+                  if( index < 0 ) {
+                        return this;
+                  }
+                  return new Delta( mAdded.removeAt( index ), mRemoved );
+            }
+
+            Delta removeFromBase ( long id ) {
+
+                  int index = Arrays.binarySearch( mRemoved, id );
+                  if( index >= 0 ) {
+                        return this;
+                  }
+                  int insert = -index - 1;
+                  long[] removed = new long[ mRemoved.length + 1 ];
+                  System.arraycopy( mRemoved, 0, removed, 0, insert );
+                  removed[ insert ] = id;
+                  System.arraycopy( mRemoved, insert, removed, insert + 1, mRemoved.length - insert );
+                  return new Delta( mAdded, removed );
+            }
+
+            boolean isRemovedFromBase ( long id ) {
+
+                  return mRemoved.length != 0 && Arrays.binarySearch( mRemoved, id ) >= 0;
+            }
+
+            void query ( int startDay, int endDay, Visitor visitor ) {
+
+                  mAdded.query( startDay, endDay, null, visitor );
+            }
+      }
+
+      /**
+       * 批量添加事件后一次构建,可以在后台线程使用
+       */
+      public static class Builder {
+
+            private long[] mIds;
+            private int[]  mStarts;
+            private int[]  mEnds;
+            private int[]  mColors;
+            private int    mCount;
+
+            public Builder ( ) {
+
+                  this( 64 );
+            }
+
+            /**
+             * @param capacity 预计的事件数量
+             */
+            public Builder ( int capacity ) {
+
+                  capacity = Math.max( capacity, 1 );
+                  mIds = new long[ capacity ];
+                  mStarts = new int[ capacity ];
+                  mEnds = new int[ capacity ];
+                  mColors = new int[ capacity ];
+            }
+
+            /**
+             * 添加事件,结束日期早于开始日期时忽略
+             *
+             * @param id 事件id,不能重复
+             * @param startDay 开始日期 {@link DayKeys}
+             * @param endDay 结束日期 {@link DayKeys},包含
+             * @param color 颜色
+             *
+             * @return builder
+             */
+            public Builder add ( long id, int startDay, int endDay, int color ) {
+
+                  if( endDay < startDay ) {
+                        return this;
+                  }
+                  if( mCount == mIds.length ) {
+                        int capacity = mCount * 2;
+                        mIds = Arrays.copyOf( mIds, capacity );
+                        mStarts = Arrays.copyOf( mStarts, capacity );
+                        mEnds = Arrays.copyOf( mEnds, capacity );
+                        mColors = Arrays.copyOf( mColors, capacity );
+                  }
+                  mIds[ mCount ] = id;
+                  mStarts[ mCount ] = startDay;
+                  mEnds[ mCount ] = endDay;
+                  mColors[ mCount ] = color;
+                  mCount++;
+                  return this;
+            }
+
+            public int size ( ) {
+
+                  return mCount;
+            }
+
+            /**
+             * 按照开始日期排序并且构建,O(n log n)
+             *
+             * @return 快照
+             */
+            Snapshot build ( ) {
+
+                  /* 开始日期放在高位,原索引放在低位,排序不需要装箱 */
+                  long[] order = new long[ mCount ];
+                  for( int i = 0; i < mCount; i++ ) {
+                        order[ i ] = ( (long) mStarts[ i ] << 32 ) | i;
+                  }
+                  Arrays.sort( order );
+
+                  long[] ids = new long[ mCount ];
+                  int[] starts = new int[ mCount ];
+                  int[] ends = new int[ mCount ];
+                  int[] colors = new int[ mCount ];
+                  for( int i = 0; i < mCount; i++ ) {
+                        int index = (int) order[ i ];
+                        ids[ i ] = mIds[ index ];
+                        starts[ i ] = mStarts[ index ];
+                        ends[ i ] = mEnds[ index ];
+                        colors[ i ] = mColors[ index ];
+                  }
+                  return new Snapshot( new Tree( new IntervalArray( ids, starts, ends, colors ) ), Delta.EMPTY );
+            }
+      }
+}
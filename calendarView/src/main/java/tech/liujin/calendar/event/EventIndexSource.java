@@ -0,0 +1,137 @@
+package tech.liujin.calendar.event;
+
+import tech.liujin.calendar.event.EventIndex.Visitor;
+import tech.liujin.calendar.month.DayDecorationSource;
+import tech.liujin.calendar.month.DayDecorations;
+import tech.liujin.calendar.month.DaySpanSource;
+import tech.liujin.calendar.month.DaySpans;
+import tech.liujin.calendar.month.MonthLayout;
+
+/**
+ * 使用{@link EventIndex}等{@link EventQuery}作为页面的数据源:一天之内的事件显示为圆点,跨越多天的事件显示为连续的条;
+ * 每次获取数据时查询最新的快照,修改索引之后调用{@link MonthLayout#notifyDaysChanged(int, int)}
+ *
+ * @author Liujin 2019/4/29:17:02:40
+ */
+public class EventIndexSource implements DayDecorationSource, DaySpanSource {
+
+      private EventQuery      mEvents;
+      /**
+       * 重复的事件,可以为null
+       */
+      private RecurringEvents mRecurringEvents;
+      /**
+       * true:跨越多天的事件只作为条显示,不计入圆点
+       */
+      private boolean         isMultiDayAsSpan = true;
+
+      /**
+       * 查询时复用,只在主线程使用
+       */
+      private DecorationVisitor mDecorationVisitor = new DecorationVisitor();
+      private SpanVisitor       mSpanVisitor       = new SpanVisitor();
+
+      /**
+       * @param events 事件,例如{@link EventIndex}或者{@link MappedEventFile}
+       */
+      public EventIndexSource ( EventQuery events ) {
+
+            mEvents = events;
+      }
+
+      /**
+       * 设置为布局的数据源
+       *
+       * @param layout 布局
+       */
+      public void attach ( MonthLayout layout ) {
+
+            layout.setDayDecorationSource( this );
+            layout.setDaySpanSource( this );
+      }
+
+      /**
+       * @param recurringEvents 同时显示重复的事件,查询时只展开页面范围内的发生
+       */
+      public void setRecurringEvents ( RecurringEvents recurringEvents ) {
+
+            mRecurringEvents = recurringEvents;
+      }
+
+      public RecurringEvents getRecurringEvents ( ) {
+
+            return mRecurringEvents;
+      }
+
+      /**
+       * @param multiDayAsSpan true:跨越多天的事件只作为条显示,false:同时计入每一天的圆点
+       */
+      public void setMultiDayAsSpan ( boolean multiDayAsSpan ) {
+
+            isMultiDayAsSpan = multiDayAsSpan;
+      }
+
+      @Override
+      public void fillDecorations ( int firstDay, int dayCount, DayDecorations out ) {
+
+            mDecorationVisitor.mOut = out;
+            mDecorationVisitor.mFirstDay = firstDay;
+            mDecorationVisitor.mLastDay = firstDay + dayCount - 1;
+            mEvents.query( firstDay, firstDay + dayCount - 1, mDecorationVisitor );
+            if( mRecurringEvents != null ) {
+                  mRecurringEvents.query( firstDay, firstDay + dayCount - 1, mDecorationVisitor );
+            }
+            mDecorationVisitor.mOut = null;
+      }
+
+      @Override
+      public void fillSpans ( int firstDay, int dayCount, DaySpans out ) {
+
+            mSpanVisitor.mOut = out;
+            mEvents.query( firstDay, firstDay + dayCount - 1, mSpanVisitor );
+            if( mRecurringEvents != null ) {
+                  mRecurringEvents.query( firstDay, firstDay + dayCount - 1, mSpanVisitor );
+            }
+            mSpanVisitor.mOut = null;
+      }
+
+      /**
+       * 为事件覆盖的每一天增加数量
+       */
+      private class DecorationVisitor implements Visitor {
+
+            private DayDecorations mOut;
+            private int            mFirstDay;
+            private int            mLastDay;
+
+            @Override
+            public void visit ( long id, int startDay, int endDay, int color ) {
+
+                  if( isMultiDayAsSpan && endDay > startDay ) {
+                        return;
+                  }
+
+                  int from = Math.max( startDay, mFirstDay );
+                  int to = Math.min( endDay, mLastDay );
+                  for( int day = from; day <= to; day++ ) {
+                        mOut.add( day, color );
+                  }
+            }
+      }
+
+      /**
+       * 只添加跨越多天的事件
+       */
+      private class SpanVisitor implements Visitor {
+
+            private DaySpans mOut;
+
+            @Override
+            public void visit ( long id, int startDay, int endDay, int color ) {
+
+                  if( endDay > startDay ) {
+                        mOut.add( startDay, endDay, color );
+                  }
+            }
+      }
+}
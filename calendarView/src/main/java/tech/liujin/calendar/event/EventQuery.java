@@ -0,0 +1,21 @@
+package tech.liujin.calendar.event;
+
+import tech.liujin.calendar.event.EventIndex.Visitor;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 可以查询某个范围内事件的数据,例如{@link EventIndex},{@link RecurringEvents},{@link MappedEventFile}
+ *
+ * @author Liujin 2019/5/1:09:12:40
+ */
+public interface EventQuery {
+
+      /**
+       * 查询与该范围有重叠的事件,结果不保证顺序
+       *
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       * @param visitor 接收结果
+       */
+      void query ( int startDay, int endDay, Visitor visitor );
+}
@@ -0,0 +1,831 @@
+package tech.liujin.calendar.event;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TimeZone;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 流式导入iCalendar(.ics)文件到{@link EventIndex},一边读取一边解析,只保留当前事件的几个属性,
+ * 内存占用与文件大小无关(索引本身除外);导入会替换索引中的全部事件
+ * <p>
+ * 与优先范围(一般是当前显示的月份)有重叠的事件解析后很快就会加入索引(积累一批,或者之后又解析了一定数量的事件,
+ * 或者等待了一定时间),其他事件按照数量翻倍的节奏批量发布,
+ * 总的构建开销仍然是O(n log n);每次发布都会回调{@link Listener},需要在回调中切换到主线程刷新日历
+ * <p>
+ * 支持折行,VALUE=DATE,UTC时间,TZID,DURATION;设置{@link RecurringEvents}之后,带有RRULE的事件作为重复规则导入,
+ * 显示时才展开,否则只导入第一次;带有RECURRENCE-ID的事件替换重复事件中的一次,解析完成后从重复规则中排除该日期
+ *
+ * @author Liujin 2019/4/30:10:14:58
+ */
+public class IcsImporter {
+
+      /**
+       * 优先范围内的事件每积累这么多个就发布一次
+       */
+      private static final int  PRIORITY_BATCH     = 32;
+      /**
+       * 有等待发布的优先事件时,最多再解析这么多个事件就发布
+       */
+      private static final int  PRIORITY_MAX_EVENTS = 256;
+      /**
+       * 有等待发布的优先事件时,最多等待这么久就发布,纳秒
+       */
+      private static final long PRIORITY_MAX_DELAY  = 50 * 1000 * 1000L;
+      /**
+       * 第一次批量发布的事件数量,之后每次翻倍
+       */
+      private static final int  FIRST_CHECKPOINT   = 4096;
+      /**
+       * 一个逻辑行最多保留的字节数,超出部分丢弃
+       */
+      private static final int  MAX_LINE_BYTES     = 16 * 1024;
+      private static final int  READ_BUFFER_BYTES  = 64 * 1024;
+      private static final long    MILLIS_PER_DAY    = 24 * 60 * 60 * 1000L;
+      private static final Charset UTF_8             = Charset.forName( "UTF-8" );
+
+      private EventIndex      mIndex;
+      private RecurringEvents mRecurringEvents;
+      private int        mPriorityStartDay;
+      private int        mPriorityEndDay;
+      private int        mDefaultColor;
+      private Listener   mListener;
+
+      private volatile boolean isCancelled;
+
+      /**
+       * 读取
+       */
+      private InputStream mInput;
+      private byte[]      mBuffer = new byte[ READ_BUFFER_BYTES ];
+      private int         mBufferPosition;
+      private int         mBufferLimit;
+      private long        mBytesRead;
+      private long        mTotalBytes;
+      /**
+       * 当前逻辑行
+       */
+      private byte[]      mLine   = new byte[ 256 ];
+      private int         mLineLength;
+
+      /**
+       * 当前事件的属性
+       */
+      private boolean isInEvent;
+      /**
+       * 事件中嵌套的组件(例如VALARM)层数,大于0时忽略属性
+       */
+      private int     mNestedDepth;
+      private String  mUid;
+      private String  mRecurrenceId;
+      private int     mRecurrenceDay;
+      private int     mStartDay;
+      private long    mStartMillis;
+      private boolean isStartDate;
+      private boolean hasStart;
+      private int     mEndDay;
+      private long    mEndMillis;
+      private boolean isEndDate;
+      private boolean hasEnd;
+      private long    mDurationMillis = -1;
+      private String  mRule;
+      private int[]   mExDates        = new int[ 4 ];
+      private int     mExDateCount;
+      /**
+       * 日期的解析结果,{@link Integer#MIN_VALUE}表示无法解析
+       */
+      private int     mParsedDay;
+      private long    mParsedMillis;
+
+      /**
+       * 已经解析的事件
+       */
+      private EventIndex.Builder mBuilder;
+      private int                mNextCheckpoint;
+      private int                mPendingPriority;
+      private long[]             mPriorityIds    = new long[ PRIORITY_BATCH ];
+      private int[]              mPriorityStarts = new int[ PRIORITY_BATCH ];
+      private int[]              mPriorityEnds   = new int[ PRIORITY_BATCH ];
+      /**
+       * 还没有加入的重复事件,可能出现在任何范围,所以与优先范围内的事件一起发布
+       */
+      private int                mPendingRecurring;
+      private int                mRecurringCount;
+      private long[]             mRecurringIds   = new long[ PRIORITY_BATCH ];
+      private Recurrence[]       mRecurrences    = new Recurrence[ PRIORITY_BATCH ];
+      private int[]              mRecurringColors = new int[ PRIORITY_BATCH ];
+      /**
+       * 第一个等待发布的事件加入时,已经解析的事件数量以及时间
+       */
+      private int                mPendingSinceCount;
+      private long               mPendingSinceNanos;
+      /**
+       * 修改了某一次发生的事件:重复事件的id以及被替换的日期,可能出现在重复事件之前,所以全部解析完成后再处理
+       */
+      private long[]             mOverrideIds    = new long[ 8 ];
+      private int[]              mOverrideDays   = new int[ 8 ];
+      private int                mOverrideCount;
+
+      /**
+       * 最近一次使用的时区
+       */
+      private String   mLastTzid;
+      private TimeZone mLastTimeZone;
+
+      /**
+       * 每次导入开始时都会清空索引(以及{@link #setRecurringEvents(RecurringEvents)}设置的重复事件)中原有的事件
+       *
+       * @param index 导入到该索引
+       * @param priorityStartDay 优先范围第一天 {@link DayKeys}
+       * @param priorityEndDay 优先范围最后一天 {@link DayKeys},包含
+       */
+      public IcsImporter ( EventIndex index, int priorityStartDay, int priorityEndDay ) {
+
+            mIndex = index;
+            mPriorityStartDay = priorityStartDay;
+            mPriorityEndDay = priorityEndDay;
+      }
+
+      /**
+       * @param defaultColor 事件颜色
+       */
+      public void setDefaultColor ( int defaultColor ) {
+
+            mDefaultColor = defaultColor;
+      }
+
+      /**
+       * @param recurringEvents 带有RRULE的事件导入到这里,导入时会清除其中原有的事件
+       */
+      public void setRecurringEvents ( RecurringEvents recurringEvents ) {
+
+            mRecurringEvents = recurringEvents;
+      }
+
+      public void setListener ( Listener listener ) {
+
+            mListener = listener;
+      }
+
+      /**
+       * 取消正在进行的导入,已经发布的事件保留在索引中;之后可以再次调用importFrom重新导入
+       */
+      public void cancel ( ) {
+
+            isCancelled = true;
+      }
+
+      /**
+       * 从文件导入,可以得到准确的进度
+       *
+       * @param channel 文件
+       *
+       * @return 导入的事件数量
+       */
+      public int importFrom ( FileChannel channel ) throws IOException {
+
+            return importFrom( Channels.newInputStream( channel ), channel.size() - channel.position() );
+      }
+
+      /**
+       * 导入,在后台线程调用
+       *
+       * @param input 输入,不会被关闭
+       * @param totalBytes 总字节数,未知时为-1
+       *
+       * @return 导入的事件数量
+       */
+      public int importFrom ( InputStream input, long totalBytes ) throws IOException {
+
+            isCancelled = false;
+            mInput = input;
+            mTotalBytes = totalBytes;
+            mBytesRead = 0;
+            mBufferPosition = mBufferLimit = 0;
+            mBuilder = new EventIndex.Builder( 1024 );
+            mNextCheckpoint = FIRST_CHECKPOINT;
+            mPendingPriority = 0;
+            mPendingRecurring = 0;
+            mRecurringCount = 0;
+            mOverrideCount = 0;
+            isInEvent = false;
+            mNestedDepth = 0;
+            mIndex.clear();
+            if( mRecurringEvents != null ) {
+                  mRecurringEvents.clear();
+            }
+
+            try {
+                  while( !isCancelled && readLine() ) {
+                        parseLine();
+                  }
+            } finally {
+                  mInput = null;
+            }
+
+            int count = mBuilder.size() + mRecurringCount;
+            if( !isCancelled ) {
+                  mIndex.build( mBuilder );
+                  mPendingPriority = 0;
+                  flushRecurring();
+                  excludeOverrides();
+                  if( mListener != null ) {
+                        mListener.onPublished( count, mBytesRead, mTotalBytes );
+                        mListener.onFinished( count );
+                  }
+            }
+            mBuilder = null;
+            return count;
+      }
+
+      /**
+       * 读取一个逻辑行,以空格或者tab开头的行是上一行的延续
+       *
+       * @return false:已经读完
+       */
+      private boolean readLine ( ) throws IOException {
+
+            mLineLength = 0;
+            int b = read();
+            if( b < 0 ) {
+                  return false;
+            }
+
+            while( b >= 0 ) {
+                  if( b == '\r' ) {
+                        b = read();
+                        if( b != '\n' ) {
+                              continue;
+                        }
+                  }
+                  if( b == '\n' ) {
+                        int next = peek();
+                        if( next == ' ' || next == '\t' ) {
+                              read();
+                              b = read();
+                              continue;
+                        }
+                        return true;
+                  }
+                  appendLine( b );
+                  b = read();
+            }
+            return true;
+      }
+
+      private void appendLine ( int b ) {
+
+            if( mLineLength == mLine.length ) {
+                  if( mLine.length >= MAX_LINE_BYTES ) {
+                        return;
+                  }
+                  byte[] line = new byte[ Math.min( mLine.length * 2, MAX_LINE_BYTES ) ];
+                  System.arraycopy( mLine, 0, line, 0, mLineLength );
+                  mLine = line;
+            }
+            mLine[ mLineLength++ ] = (byte) b;
+      }
+
+      private int read ( ) throws IOException {
+
+            if( mBufferPosition == mBufferLimit && !fill() ) {
+                  return -1;
+            }
+            return mBuffer[ mBufferPosition++ ] & 0xFF;
+      }
+
+      private int peek ( ) throws IOException {
+
+            if( mBufferPosition == mBufferLimit && !fill() ) {
+                  return -1;
+            }
+            return mBuffer[ mBufferPosition ] & 0xFF;
+      }
+
+      private boolean fill ( ) throws IOException {
+
+            int count = mInput.read( mBuffer, 0, mBuffer.length );
+            if( count <= 0 ) {
+                  return false;
+            }
+            mBufferPosition = 0;
+            mBufferLimit = count;
+            mBytesRead += count;
+            return true;
+      }
+
+      /**
+       * 解析当前逻辑行,只处理需要的属性
+       */
+      private void parseLine ( ) {
+
+            if( isProperty( "BEGIN" ) ) {
+                  if( isInEvent ) {
+                        mNestedDepth++;
+                  } else if( "VEVENT".equals( getValue() ) ) {
+                        beginEvent();
+                  }
+                  return;
+            }
+            if( !isInEvent ) {
+                  return;
+            }
+
+            if( isProperty( "END" ) ) {
+                  if( mNestedDepth > 0 ) {
+                        mNestedDepth--;
+                  } else if( "VEVENT".equals( getValue() ) ) {
+                        endEvent();
+                  }
+            } else if( mNestedDepth > 0 ) {
+                  /* VALARM等组件中的DURATION,UID不属于事件 */
+                  return;
+            } else if( isProperty( "UID" ) ) {
+                  mUid = getValue();
+            } else if( isProperty( "RECURRENCE-ID" ) ) {
+                  mRecurrenceId = getValue();
+                  parseDateTime();
+                  mRecurrenceDay = mParsedDay;
+            } else if( isProperty( "DTSTART" ) ) {
+                  isStartDate = parseDateTime();
+                  hasStart = mParsedDay != Integer.MIN_VALUE;
+                  mStartDay = mParsedDay;
+                  mStartMillis = mParsedMillis;
+            } else if( isProperty( "DTEND" ) ) {
+                  isEndDate = parseDateTime();
+                  hasEnd = mParsedDay != Integer.MIN_VALUE;
+                  mEndDay = mParsedDay;
+                  mEndMillis = mParsedMillis;
+            } else if( isProperty( "DURATION" ) ) {
+                  mDurationMillis = parseDuration( getValue() );
+            } else if( isProperty( "RRULE" ) ) {
+                  mRule = getValue();
+            } else if( isProperty( "EXDATE" ) ) {
+                  parseExDates( getValue() );
+            }
+      }
+
+      private void beginEvent ( ) {
+
+            isInEvent = true;
+            mNestedDepth = 0;
+            mUid = null;
+            mRecurrenceId = null;
+            mRecurrenceDay = Integer.MIN_VALUE;
+            hasStart = false;
+            hasEnd = false;
+            mDurationMillis = -1;
+            mRule = null;
+            mExDateCount = 0;
+      }
+
+      /**
+       * 计算结束日期,DATE类型的DTEND不包含当天
+       */
+      private void endEvent ( ) {
+
+            isInEvent = false;
+            if( !hasStart ) {
+                  return;
+            }
+
+            int endDay;
+            if( hasEnd ) {
+                  if( isEndDate ) {
+                        endDay = mEndDay - 1;
+                  } else {
+                        endDay = mEndMillis > mStartMillis ? DayKeys.fromMillis( mEndMillis - 1 ) : mStartDay;
+                  }
+            } else if( mDurationMillis > 0 ) {
+                  if( isStartDate ) {
+                        endDay = mStartDay + (int) ( ( mDurationMillis + MILLIS_PER_DAY - 1 ) / MILLIS_PER_DAY ) - 1;
+                  } else {
+                        endDay = DayKeys.fromMillis( mStartMillis + mDurationMillis - 1 );
+                  }
+            } else {
+                  endDay = mStartDay;
+            }
+            endDay = Math.max( endDay, mStartDay );
+
+            long id = hash( mUid, mRecurrenceId );
+            if( mRecurrenceId != null && mRecurrenceDay != Integer.MIN_VALUE && mRecurringEvents != null ) {
+                  addOverride( hash( mUid, null ), mRecurrenceDay );
+            }
+            if( mRule != null && mRecurringEvents != null && mRecurrenceId == null ) {
+                  Recurrence recurrence = Recurrence.parse( mRule, mStartDay, endDay );
+                  if( recurrence != null ) {
+                        recurrence.setExDates( mExDates, mExDateCount );
+                        addRecurring( id, recurrence );
+                        publishPendingIfNeed();
+                        return;
+                  }
+            }
+
+            mBuilder.add( id, mStartDay, endDay, mDefaultColor );
+
+            if( mStartDay <= mPriorityEndDay && endDay >= mPriorityStartDay ) {
+                  addPriority( id, mStartDay, endDay );
+            }
+            if( mBuilder.size() >= mNextCheckpoint ) {
+                  publishCheckpoint();
+            } else {
+                  publishPendingIfNeed();
+            }
+      }
+
+      private void addRecurring ( long id, Recurrence recurrence ) {
+
+            markPending();
+            mRecurringIds[ mPendingRecurring ] = id;
+            mRecurrences[ mPendingRecurring ] = recurrence;
+            mRecurringColors[ mPendingRecurring ] = mDefaultColor;
+            mPendingRecurring++;
+            mRecurringCount++;
+      }
+
+      private void flushRecurring ( ) {
+
+            if( mPendingRecurring > 0 ) {
+                  mRecurringEvents.putAll( mRecurringIds, mRecurrences, mRecurringColors, mPendingRecurring );
+                  Arrays.fill( mRecurrences, null );
+                  mPendingRecurring = 0;
+            }
+      }
+
+      private void addOverride ( long recurringId, int day ) {
+
+            if( mOverrideCount == mOverrideIds.length ) {
+                  mOverrideIds = Arrays.copyOf( mOverrideIds, mOverrideCount * 2 );
+                  mOverrideDays = Arrays.copyOf( mOverrideDays, mOverrideCount * 2 );
+            }
+            mOverrideIds[ mOverrideCount ] = recurringId;
+            mOverrideDays[ mOverrideCount ] = day;
+            mOverrideCount++;
+      }
+
+      /**
+       * 被替换的日期加入重复事件的EXDATE,否则重复事件仍然会在原来的日期显示;同一个重复事件的所有修改一起发布
+       */
+      private void excludeOverrides ( ) {
+
+            if( mOverrideCount == 0 ) {
+                  return;
+            }
+
+            HashMap<Long, Integer> positions = new HashMap<>();
+            long[] ids = new long[ mOverrideCount ];
+            Recurrence[] recurrences = new Recurrence[ mOverrideCount ];
+            int[] colors = new int[ mOverrideCount ];
+            int count = 0;
+            for( int i = 0; i < mOverrideCount; i++ ) {
+                  long id = mOverrideIds[ i ];
+                  Integer position = positions.get( id );
+                  if( position == null ) {
+                        Recurrence recurrence = mRecurringEvents.get( id );
+                        if( recurrence == null ) {
+                              continue;
+                        }
+                        position = count++;
+                        positions.put( id, position );
+                        ids[ position ] = id;
+                        recurrences[ position ] = recurrence;
+                        colors[ position ] = mDefaultColor;
+                  }
+                  recurrences[ position ] = recurrences[ position ].withExDate( mOverrideDays[ i ] );
+            }
+            if( count > 0 ) {
+                  mRecurringEvents.putAll( ids, recurrences, colors, count );
+            }
+            mOverrideCount = 0;
+      }
+
+      /**
+       * EXDATE可以有多个值,只使用日期部分
+       */
+      private void parseExDates ( String value ) {
+
+            for( String date : value.split( "," ) ) {
+                  date = date.trim();
+                  if( date.length() < 8 ) {
+                        continue;
+                  }
+                  try {
+                        int year = Integer.parseInt( date.substring( 0, 4 ) );
+                        int month = Integer.parseInt( date.substring( 4, 6 ) );
+                        int day = Integer.parseInt( date.substring( 6, 8 ) );
+                        if( mExDateCount == mExDates.length ) {
+                              mExDates = Arrays.copyOf( mExDates, mExDateCount * 2 );
+                        }
+                        mExDates[ mExDateCount++ ] = DayKeys.of( year, month - 1, day );
+                  } catch(NumberFormatException e) {
+                        /* 忽略无法解析的日期 */
+                  }
+            }
+      }
+
+      /**
+       * 优先范围内的事件先直接加入索引
+       */
+      private void addPriority ( long id, int startDay, int endDay ) {
+
+            markPending();
+            mPriorityIds[ mPendingPriority ] = id;
+            mPriorityStarts[ mPendingPriority ] = startDay;
+            mPriorityEnds[ mPendingPriority ] = endDay;
+            mPendingPriority++;
+      }
+
+      /**
+       * 记录第一个等待发布的事件加入的时刻
+       */
+      private void markPending ( ) {
+
+            if( mPendingPriority == 0 && mPendingRecurring == 0 ) {
+                  mPendingSinceCount = mBuilder.size() + mRecurringCount;
+                  mPendingSinceNanos = System.nanoTime();
+            }
+      }
+
+      /**
+       * 等待发布的事件积累了一批,或者之后又解析了很多事件,或者已经等待了一段时间,就发布,
+       * 优先范围后面很长一段没有优先事件时也能很快显示
+       */
+      private void publishPendingIfNeed ( ) {
+
+            if( mPendingPriority == 0 && mPendingRecurring == 0 ) {
+                  return;
+            }
+            if( mPendingPriority == PRIORITY_BATCH
+                || mPendingRecurring == PRIORITY_BATCH
+                || mBuilder.size() + mRecurringCount - mPendingSinceCount >= PRIORITY_MAX_EVENTS
+                || System.nanoTime() - mPendingSinceNanos >= PRIORITY_MAX_DELAY ) {
+                  publishPending();
+            }
+      }
+
+      private void publishPending ( ) {
+
+            for( int i = 0; i < mPendingPriority; i++ ) {
+                  mIndex.put( mPriorityIds[ i ], mPriorityStarts[ i ], mPriorityEnds[ i ], mDefaultColor );
+            }
+            mPendingPriority = 0;
+            flushRecurring();
+            if( mListener != null ) {
+                  mListener.onPublished( mBuilder.size() + mRecurringCount, mBytesRead, mTotalBytes );
+            }
+      }
+
+      /**
+       * 使用目前为止的全部事件重建索引,等待发布的优先事件也包含在内,下一次发布的数量翻倍
+       */
+      private void publishCheckpoint ( ) {
+
+            mIndex.build( mBuilder );
+            mPendingPriority = 0;
+            flushRecurring();
+            mNextCheckpoint *= 2;
+            if( mListener != null ) {
+                  mListener.onPublished( mBuilder.size() + mRecurringCount, mBytesRead, mTotalBytes );
+            }
+      }
+
+      /**
+       * @return 当前行是不是该属性
+       */
+      private boolean isProperty ( String name ) {
+
+            int length = name.length();
+            if( mLineLength <= length ) {
+                  return false;
+            }
+            for( int i = 0; i < length; i++ ) {
+                  int b = mLine[ i ];
+                  if( b >= 'a' && b <= 'z' ) {
+                        b -= 'a' - 'A';
+                  }
+                  if( b != name.charAt( i ) ) {
+                        return false;
+                  }
+            }
+            int next = mLine[ length ];
+            return next == ':' || next == ';';
+      }
+
+      /**
+       * @return 第一个不在引号中的冒号的位置
+       */
+      private int findValueStart ( ) {
+
+            boolean isQuoted = false;
+            for( int i = 0; i < mLineLength; i++ ) {
+                  byte b = mLine[ i ];
+                  if( b == '"' ) {
+                        isQuoted = !isQuoted;
+                  } else if( b == ':' && !isQuoted ) {
+                        return i + 1;
+                  }
+            }
+            return mLineLength;
+      }
+
+      private String getValue ( ) {
+
+            int start = findValueStart();
+            return new String( mLine, start, mLineLength - start, UTF_8 ).trim();
+      }
+
+      /**
+       * 查找参数值,例如TZID
+       */
+      private String getParameter ( String name, int valueStart ) {
+
+            String params = new String( mLine, 0, valueStart, UTF_8 );
+            String key = ";" + name + "=";
+            int index = params.toUpperCase().indexOf( key );
+            if( index < 0 ) {
+                  return null;
+            }
+            int start = index + key.length();
+            int end = start;
+            boolean isQuoted = false;
+            while( end < params.length() ) {
+                  char c = params.charAt( end );
+                  if( c == '"' ) {
+                        isQuoted = !isQuoted;
+                  } else if( !isQuoted && ( c == ';' || c == ':' ) ) {
+                        break;
+                  }
+                  end++;
+            }
+            return params.substring( start, end ).replace( "\"", "" );
+      }
+
+      /**
+       * 解析DTSTART/DTEND,结果保存在{@link #mParsedDay},{@link #mParsedMillis}
+       *
+       * @return true:只有日期
+       */
+      private boolean parseDateTime ( ) {
+
+            mParsedDay = Integer.MIN_VALUE;
+            int start = findValueStart();
+            int length = mLineLength - start;
+            if( length < 8 ) {
+                  return false;
+            }
+
+            int year = parseDigits( start, 4 );
+            int month = parseDigits( start + 4, 2 );
+            int day = parseDigits( start + 6, 2 );
+            if( year < 0 || month < 1 || day < 1 ) {
+                  return false;
+            }
+            int dayKey = DayKeys.of( year, month - 1, day );
+
+            if( length < 15 || mLine[ start + 8 ] != 'T' ) {
+                  mParsedDay = dayKey;
+                  mParsedMillis = dayKey * MILLIS_PER_DAY;
+                  return true;
+            }
+
+            int hour = parseDigits( start + 9, 2 );
+            int minute = parseDigits( start + 11, 2 );
+            int second = parseDigits( start + 13, 2 );
+            long wallMillis = dayKey * MILLIS_PER_DAY + ( ( hour * 60L + minute ) * 60 + Math.max( second, 0 ) ) * 1000;
+
+            boolean isUtc = length > 15 && mLine[ start + 15 ] == 'Z';
+            if( isUtc ) {
+                  mParsedMillis = wallMillis;
+            } else {
+                  String tzid = getParameter( "TZID", start );
+                  if( tzid == null ) {
+                        /* 浮动时间,与本地时间相同 */
+                        mParsedDay = dayKey;
+                        mParsedMillis = wallMillis - TimeZone.getDefault().getOffset( wallMillis );
+                        return false;
+                  }
+                  TimeZone timeZone = getTimeZone( tzid );
+                  mParsedMillis = wallMillis - timeZone.getOffset( wallMillis - timeZone.getRawOffset() );
+            }
+            mParsedDay = DayKeys.fromMillis( mParsedMillis );
+            return false;
+      }
+
+      private TimeZone getTimeZone ( String tzid ) {
+
+            if( !tzid.equals( mLastTzid ) ) {
+                  mLastTzid = tzid;
+                  mLastTimeZone = TimeZone.getTimeZone( tzid );
+            }
+            return mLastTimeZone;
+      }
+
+      private int parseDigits ( int start, int count ) {
+
+            int result = 0;
+            for( int i = start; i < start + count; i++ ) {
+                  int digit = mLine[ i ] - '0';
+                  if( digit < 0 || digit > 9 ) {
+                        return -1;
+                  }
+                  result = result * 10 + digit;
+            }
+            return result;
+      }
+
+      /**
+       * 解析DURATION,例如P1D,PT1H30M,P2W
+       *
+       * @return 毫秒, 无法解析时返回-1
+       */
+      private static long parseDuration ( String value ) {
+
+            long millis = 0;
+            long number = 0;
+            boolean isTime = false;
+            boolean hasUnit = false;
+            for( int i = 0; i < value.length(); i++ ) {
+                  char c = value.charAt( i );
+                  if( c >= '0' && c <= '9' ) {
+                        number = number * 10 + ( c - '0' );
+                        continue;
+                  }
+                  switch( c ) {
+                        case 'T':
+                              isTime = true;
+                              break;
+                        case 'W':
+                              millis += number * 7 * MILLIS_PER_DAY;
+                              hasUnit = true;
+                              break;
+                        case 'D':
+                              millis += number * MILLIS_PER_DAY;
+                              hasUnit = true;
+                              break;
+                        case 'H':
+                              millis += number * 60 * 60 * 1000;
+                              hasUnit = true;
+                              break;
+                        case 'M':
+                              millis += isTime ? number * 60 * 1000 : 0;
+                              hasUnit = true;
+                              break;
+                        case 'S':
+                              millis += number * 1000;
+                              hasUnit = true;
+                              break;
+                        default:
+                              break;
+                  }
+                  number = 0;
+            }
+            return hasUnit ? millis : -1;
+      }
+
+      /**
+       * UID以及RECURRENCE-ID计算64位id(FNV-1a)
+       */
+      private static long hash ( String uid, String recurrenceId ) {
+
+            long hash = 0xcbf29ce484222325L;
+            if( uid != null ) {
+                  for( int i = 0; i < uid.length(); i++ ) {
+                        hash = ( hash ^ uid.charAt( i ) ) * 0x100000001b3L;
+                  }
+            }
+            if( recurrenceId != null ) {
+                  hash = ( hash ^ '#' ) * 0x100000001b3L;
+                  for( int i = 0; i < recurrenceId.length(); i++ ) {
+                        hash = ( hash ^ recurrenceId.charAt( i ) ) * 0x100000001b3L;
+                  }
+            }
+            return hash;
+      }
+
+      /**
+       * 导入进度,在导入的线程回调
+       */
+      public interface Listener {
+
+            /**
+             * 有新的事件加入索引
+             *
+             * @param eventCount 目前解析的事件数量
+             * @param bytesRead 已经读取的字节数
+             * @param totalBytes 总字节数,未知时为-1
+             */
+            void onPublished ( int eventCount, long bytesRead, long totalBytes );
+
+            /**
+             * 导入完成
+             *
+             * @param eventCount 事件数量
+             */
+            void onFinished ( int eventCount );
+      }
+}
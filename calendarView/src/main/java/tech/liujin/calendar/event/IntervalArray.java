@@ -0,0 +1,185 @@
+package tech.liujin.calendar.event;
+
+import java.util.Arrays;
+import tech.liujin.calendar.event.EventIndex.Visitor;
+
+/**
+ * 按照开始日期排序的不可变事件数组,数组本身作为一棵隐式的平衡二叉树,每个节点记录子树中最大的结束日期,
+ * 查询与某个范围有重叠的事件O(log n + k);插入和删除返回新的数组,O(n)
+ * <p>
+ * {@link EventIndex}的主体和增量,以及{@link MappedEventFile}内存中的修改都使用它保存
+ *
+ * @author Liujin 2019/5/4:15:12:40
+ */
+final class IntervalArray {
+
+      static final IntervalArray EMPTY = new IntervalArray( new long[ 0 ], new int[ 0 ], new int[ 0 ], new int[ 0 ] );
+
+      final long[] mIds;
+      final int[]  mStarts;
+      final int[]  mEnds;
+      final int[]  mColors;
+      /**
+       * 以该位置为根的子树(范围由二分决定)中最大的结束日期
+       */
+      private final int[] mMaxEnds;
+
+      /**
+       * @param ids 事件id
+       * @param starts 开始日期,已经排序
+       * @param ends 结束日期
+       * @param colors 颜色
+       */
+      IntervalArray ( long[] ids, int[] starts, int[] ends, int[] colors ) {
+
+            mIds = ids;
+            mStarts = starts;
+            mEnds = ends;
+            mColors = colors;
+            mMaxEnds = new int[ ids.length ];
+            buildMaxEnds( 0, ids.length );
+      }
+
+      /**
+       * @return 该范围子树的最大结束日期
+       */
+      private int buildMaxEnds ( int low, int high ) {
+
+            if( low >= high ) {
+                  return Integer.MIN_VALUE;
+            }
+            int mid = ( low + high ) >>> 1;
+            int max = Math.max( mEnds[ mid ], Math.max( buildMaxEnds( low, mid ), buildMaxEnds( mid + 1, high ) ) );
+            mMaxEnds[ mid ] = max;
+            return max;
+      }
+
+      int size ( ) {
+
+            return mIds.length;
+      }
+
+      /**
+       * @return 该id的位置, 没有时返回-1
+       */
+      int indexOf ( long id ) {
+
+            for( int i = 0; i < mIds.length; i++ ) {
+                  if( mIds[ i ] == id ) {
+                        return i;
+                  }
+            }
+            return -1;
+      }
+
+      /**
+       * 插入到相同开始日期的最后,保持有序
+       *
+       * @return 新的数组
+       */
+      IntervalArray insert ( long id, int startDay, int endDay, int color ) {
+
+            int low = 0;
+            int high = mStarts.length;
+            while( low < high ) {
+                  int mid = ( low + high ) >>> 1;
+                  if( mStarts[ mid ] <= startDay ) {
+                        low = mid + 1;
+                  } else {
+                        high = mid;
+                  }
+            }
+
+            int count = mIds.length;
+            long[] ids = new long[ count + 1 ];
+            int[] starts = new int[ count + 1 ];
+            int[] ends = new int[ count + 1 ];
+            int[] colors = new int[ count + 1 ];
+            copyWithGap( mIds, ids, low );
+            copyWithGap( mStarts, starts, low );
+            copyWithGap( mEnds, ends, low );
+            copyWithGap( mColors, colors, low );
+            ids[ low ] = id;
+            starts[ low ] = startDay;
+            ends[ low ] = endDay;
+            colors[ low ] = color;
+            return new IntervalArray( ids, starts, ends, colors );
+      }
+
+      /**
+       * @return 删除该位置之后新的数组
+       */
+      IntervalArray removeAt ( int index ) {
+
+            int count = mIds.length - 1;
+            long[] ids = new long[ count ];
+            int[] starts = new int[ count ];
+            int[] ends = new int[ count ];
+            int[] colors = new int[ count ];
+            copyWithout( mIds, ids, index );
+            copyWithout( mStarts, starts, index );
+            copyWithout( mEnds, ends, index );
+            copyWithout( mColors, colors, index );
+            return new IntervalArray( ids, starts, ends, colors );
+      }
+
+      /**
+       * 查询与该范围有重叠的事件
+       *
+       * @param excluded 跳过这些id,有序, null:不跳过
+       */
+      void query ( int startDay, int endDay, long[] excluded, Visitor visitor ) {
+
+            if( excluded != null && excluded.length == 0 ) {
+                  excluded = null;
+            }
+            query( 0, mIds.length, startDay, endDay, excluded, visitor );
+      }
+
+      /**
+       * 子树中最大结束日期早于查询范围时跳过整棵子树,根节点开始日期晚于查询范围时跳过右子树
+       */
+      private void query ( int low, int high, int startDay, int endDay, long[] excluded, Visitor visitor ) {
+
+            if( low >= high ) {
+                  return;
+            }
+            int mid = ( low + high ) >>> 1;
+            if( mMaxEnds[ mid ] < startDay ) {
+                  return;
+            }
+
+            query( low, mid, startDay, endDay, excluded, visitor );
+            if( mStarts[ mid ] > endDay ) {
+                  return;
+            }
+            if( mEnds[ mid ] >= startDay && ( excluded == null || Arrays.binarySearch( excluded, mIds[ mid ] ) < 0 ) ) {
+                  visitor.visit( mIds[ mid ], mStarts[ mid ], mEnds[ mid ], mColors[ mid ] );
+            }
+            query( mid + 1, high, startDay, endDay, excluded, visitor );
+      }
+
+      private static void copyWithGap ( long[] from, long[] to, int index ) {
+
+            System.arraycopy( from, 0, to, 0, index );
+            System.arraycopy( from, index, to, index + 1, from.length - index );
+      }
+
+      private static void copyWithGap ( int[] from, int[] to, int index ) {
+
+            System.arraycopy( from, 0, to, 0, index );
+            System.arraycopy( from, index, to, index + 1, from.length - index );
+      }
+
+      private static void copyWithout ( long[] from, long[] to, int index ) {
+
+            System.arraycopy( from, 0, to, 0, index );
+            System.arraycopy( from, index + 1, to, index, from.length - index - 1 );
+      }
+
+      private static void copyWithout ( int[] from, int[] to, int index ) {
+
+            System.arraycopy( from, 0, to, 0, index );
+            System.arraycopy( from, index + 1, to, index, from.length - index - 1 );
+      }
+}
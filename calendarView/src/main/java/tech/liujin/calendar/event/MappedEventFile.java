@@ -0,0 +1,439 @@
+package tech.liujin.calendar.event;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import tech.liujin.calendar.event.EventIndex.Visitor;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 保存在文件中的事件,使用{@link FileChannel#map}打开,不需要读取全部事件就可以查询,冷启动时当前月份可以立即显示
+ * <p>
+ * 文件格式:
+ * <pre>
+ * 头部   32字节: 魔数,版本,记录数,追加记录数
+ * 索引   记录数 * 4字节: 隐式二叉树每个节点子树的最大结束日期,与{@link EventIndex}相同
+ * 记录   记录数 * 20字节: id,开始日期,结束日期,颜色,按照开始日期排序
+ * 追加   追加记录数 * 24字节: 操作,id,开始日期,结束日期,颜色
+ * </pre>
+ * 修改只追加到文件末尾并且记录在内存中,追加超过一定数量后重写整个文件;
+ * 查询可以在任意线程进行,修改需要由调用者保证在同一个线程,重写文件比较耗时,应该在后台线程修改
+ *
+ * @author Liujin 2019/5/1:10:05:31
+ */
+public class MappedEventFile implements EventQuery {
+
+      private static final int MAGIC   = 0x43414C45;
+      private static final int VERSION = 1;
+
+      private static final int HEADER_BYTES = 32;
+      private static final int RECORD_BYTES = 20;
+      private static final int LOG_BYTES    = 24;
+
+      private static final int HEADER_RECORD_COUNT = 8;
+      private static final int HEADER_LOG_COUNT    = 12;
+
+      private static final int OP_PUT    = 1;
+      private static final int OP_REMOVE = 2;
+
+      /**
+       * 追加记录最少达到该数量才重写
+       */
+      private static final int MIN_LOG_TO_COMPACT = 64;
+
+      private File        mFile;
+      private FileChannel mChannel;
+
+      private volatile State mState;
+
+      private MappedEventFile ( File file ) {
+
+            mFile = file;
+      }
+
+      /**
+       * 打开文件,只读取头部以及追加的记录,排序的记录直接映射
+       *
+       * @param file 文件,不存在时创建一个空文件
+       *
+       * @return 文件
+       */
+      public static MappedEventFile open ( File file ) throws IOException {
+
+            if( !file.exists() || file.length() < HEADER_BYTES ) {
+                  write( file, new long[ 0 ], new int[ 0 ], new int[ 0 ], new int[ 0 ], 0 );
+            }
+            MappedEventFile eventFile = new MappedEventFile( file );
+            eventFile.load();
+            return eventFile;
+      }
+
+      /**
+       * 将全部事件写入文件,替换原有内容
+       *
+       * @param file 文件
+       * @param events 事件,例如{@link EventIndex#snapshot()}
+       */
+      public static void write ( File file, EventQuery events ) throws IOException {
+
+            Collector collector = new Collector();
+            events.query( Integer.MIN_VALUE, Integer.MAX_VALUE, collector );
+            write( file, collector.mIds, collector.mStarts, collector.mEnds, collector.mColors, collector.mCount );
+      }
+
+      /**
+       * 排序后写入临时文件,完成后替换,写入过程中失败不会破坏原文件
+       */
+      private static void write ( File file, long[] ids, int[] starts, int[] ends, int[] colors, int count ) throws IOException {
+
+            /* 开始日期放在高位,原索引放在低位,排序不需要装箱 */
+            long[] order = new long[ count ];
+            for( int i = 0; i < count; i++ ) {
+                  order[ i ] = ( (long) starts[ i ] << 32 ) | i;
+            }
+            Arrays.sort( order );
+
+            int[] sortedEnds = new int[ count ];
+            for( int i = 0; i < count; i++ ) {
+                  sortedEnds[ i ] = ends[ (int) order[ i ] ];
+            }
+            int[] maxEnds = new int[ count ];
+            buildMaxEnds( sortedEnds, maxEnds, 0, count );
+
+            ByteBuffer buffer = ByteBuffer.allocate( HEADER_BYTES + count * ( 4 + RECORD_BYTES ) );
+            buffer.putInt( MAGIC ).putInt( VERSION ).putInt( count ).putInt( 0 );
+            buffer.position( HEADER_BYTES );
+            for( int i = 0; i < count; i++ ) {
+                  buffer.putInt( maxEnds[ i ] );
+            }
+            for( int i = 0; i < count; i++ ) {
+                  int index = (int) order[ i ];
+                  buffer.putLong( ids[ index ] ).putInt( starts[ index ] ).putInt( ends[ index ] ).putInt( colors[ index ] );
+            }
+            buffer.flip();
+
+            File temp = new File( file.getPath() + ".tmp" );
+            RandomAccessFile randomAccessFile = new RandomAccessFile( temp, "rw" );
+            try {
+                  FileChannel channel = randomAccessFile.getChannel();
+                  channel.truncate( 0 );
+                  while( buffer.hasRemaining() ) {
+                        channel.write( buffer );
+                  }
+                  channel.force( true );
+            } finally {
+                  randomAccessFile.close();
+            }
+            if( !temp.renameTo( file ) ) {
+                  throw new IOException( "can not rename " + temp + " to " + file );
+            }
+      }
+
+      /**
+       * @return 该范围子树的最大结束日期
+       */
+      private static int buildMaxEnds ( int[] ends, int[] maxEnds, int low, int high ) {
+
+            if( low >= high ) {
+                  return Integer.MIN_VALUE;
+            }
+            int mid = ( low + high ) >>> 1;
+            int max = Math.max( ends[ mid ], Math.max( buildMaxEnds( ends, maxEnds, low, mid ), buildMaxEnds( ends, maxEnds, mid + 1, high ) ) );
+            maxEnds[ mid ] = max;
+            return max;
+      }
+
+      /**
+       * 映射排序的记录,读取追加的记录
+       */
+      private void load ( ) throws IOException {
+
+            if( mChannel != null ) {
+                  mChannel.close();
+            }
+            mChannel = new RandomAccessFile( mFile, "rw" ).getChannel();
+
+            ByteBuffer header = ByteBuffer.allocate( HEADER_BYTES );
+            readFully( header, 0 );
+            if( header.getInt( 0 ) != MAGIC || header.getInt( 4 ) != VERSION ) {
+                  throw new IOException( "not an event file: " + mFile );
+            }
+            int recordCount = header.getInt( HEADER_RECORD_COUNT );
+            int logCount = header.getInt( HEADER_LOG_COUNT );
+
+            long logStart = HEADER_BYTES + (long) recordCount * ( 4 + RECORD_BYTES );
+            ByteBuffer mapped = mChannel.map( MapMode.READ_ONLY, 0, logStart );
+
+            /* 最后一条追加记录可能没有写完 */
+            logCount = (int) Math.min( logCount, ( mChannel.size() - logStart ) / LOG_BYTES );
+            State state = new State( mapped, recordCount, logCount, Overlay.EMPTY );
+            if( logCount > 0 ) {
+                  ByteBuffer log = ByteBuffer.allocate( logCount * LOG_BYTES );
+                  readFully( log, logStart );
+                  Overlay overlay = Overlay.EMPTY;
+                  for( int i = 0; i < logCount; i++ ) {
+                        int position = i * LOG_BYTES;
+                        long id = log.getLong( position + 4 );
+                        if( log.getInt( position ) == OP_PUT ) {
+                              overlay = overlay.put( id, log.getInt( position + 12 ), log.getInt( position + 16 ), log.getInt( position + 20 ) );
+                        } else {
+                              overlay = overlay.remove( id );
+                        }
+                  }
+                  state = new State( mapped, recordCount, logCount, overlay );
+            }
+            mState = state;
+      }
+
+      private void readFully ( ByteBuffer buffer, long position ) throws IOException {
+
+            while( buffer.hasRemaining() ) {
+                  int count = mChannel.read( buffer, position + buffer.position() );
+                  if( count < 0 ) {
+                        throw new IOException( "unexpected end of " + mFile );
+                  }
+            }
+      }
+
+      /**
+       * 新增事件,已经存在相同id时替换
+       *
+       * @param id 事件id
+       * @param startDay 开始日期 {@link DayKeys}
+       * @param endDay 结束日期 {@link DayKeys},包含
+       * @param color 颜色
+       */
+      public synchronized void put ( long id, int startDay, int endDay, int color ) throws IOException {
+
+            if( endDay < startDay ) {
+                  return;
+            }
+            State state = mState;
+            append( state, OP_PUT, id, startDay, endDay, color );
+            publish( new State( state.mBuffer, state.mRecordCount, state.mLogCount + 1, state.mOverlay.put( id, startDay, endDay, color ) ) );
+      }
+
+      /**
+       * 删除事件
+       *
+       * @param id 事件id
+       */
+      public synchronized void remove ( long id ) throws IOException {
+
+            State state = mState;
+            append( state, OP_REMOVE, id, 0, 0, 0 );
+            publish( new State( state.mBuffer, state.mRecordCount, state.mLogCount + 1, state.mOverlay.remove( id ) ) );
+      }
+
+      /**
+       * 先写入记录再更新头部的数量,中途失败时记录被忽略
+       */
+      private void append ( State state, int op, long id, int startDay, int endDay, int color ) throws IOException {
+
+            ByteBuffer record = ByteBuffer.allocate( LOG_BYTES );
+            record.putInt( op ).putLong( id ).putInt( startDay ).putInt( endDay ).putInt( color );
+            record.flip();
+            long position = HEADER_BYTES + (long) state.mRecordCount * ( 4 + RECORD_BYTES ) + (long) state.mLogCount * LOG_BYTES;
+            while( record.hasRemaining() ) {
+                  mChannel.write( record, position + record.position() );
+            }
+
+            ByteBuffer count = ByteBuffer.allocate( 4 );
+            count.putInt( state.mLogCount + 1 );
+            count.flip();
+            mChannel.write( count, HEADER_LOG_COUNT );
+      }
+
+      /**
+       * 追加记录太多时重写文件,保证查询复杂度
+       */
+      private void publish ( State state ) throws IOException {
+
+            mState = state;
+            if( state.mLogCount >= Math.max( MIN_LOG_TO_COMPACT, state.mRecordCount / 16 ) ) {
+                  compact();
+            }
+      }
+
+      /**
+       * 合并追加的记录,重写整个文件
+       */
+      public synchronized void compact ( ) throws IOException {
+
+            State state = mState;
+            if( state.mLogCount == 0 ) {
+                  return;
+            }
+            Collector collector = new Collector();
+            state.query( Integer.MIN_VALUE, Integer.MAX_VALUE, collector );
+            write( mFile, collector.mIds, collector.mStarts, collector.mEnds, collector.mColors, collector.mCount );
+            load();
+      }
+
+      /**
+       * 关闭文件,之后不能再修改,已经映射的数据仍然可以查询
+       */
+      public synchronized void close ( ) throws IOException {
+
+            if( mChannel != null ) {
+                  mChannel.close();
+                  mChannel = null;
+            }
+      }
+
+      @Override
+      public void query ( int startDay, int endDay, Visitor visitor ) {
+
+            if( endDay < startDay ) {
+                  return;
+            }
+            mState.query( startDay, endDay, visitor );
+      }
+
+      /**
+       * 某一时刻的映射数据以及内存中的修改,创建之后不再改变
+       */
+      private static final class State {
+
+            private final ByteBuffer mBuffer;
+            private final int        mRecordCount;
+            private final int        mLogCount;
+            private final Overlay    mOverlay;
+
+            private State ( ByteBuffer buffer, int recordCount, int logCount, Overlay overlay ) {
+
+                  mBuffer = buffer;
+                  mRecordCount = recordCount;
+                  mLogCount = logCount;
+                  mOverlay = overlay;
+            }
+
+            void query ( int startDay, int endDay, Visitor visitor ) {
+
+                  query( 0, mRecordCount, startDay, endDay, visitor );
+                  mOverlay.query( startDay, endDay, visitor );
+            }
+
+            /**
+             * 与{@link EventIndex}相同:子树中最大结束日期早于查询范围时跳过整棵子树,根节点开始日期晚于查询范围时跳过右子树;
+             * 只读取访问到的记录
+             */
+            private void query ( int low, int high, int startDay, int endDay, Visitor visitor ) {
+
+                  if( low >= high ) {
+                        return;
+                  }
+                  int mid = ( low + high ) >>> 1;
+                  if( mBuffer.getInt( HEADER_BYTES + mid * 4 ) < startDay ) {
+                        return;
+                  }
+
+                  query( low, mid, startDay, endDay, visitor );
+                  int position = HEADER_BYTES + mRecordCount * 4 + mid * RECORD_BYTES;
+                  int start = mBuffer.getInt( position + 8 );
+                  if( start > endDay ) {
+                        return;
+                  }
+                  int end = mBuffer.getInt( position + 12 );
+                  if( end >= startDay ) {
+                        long id = mBuffer.getLong( position );
+                        if( !mOverlay.isHidden( id ) ) {
+                              visitor.visit( id, start, end, mBuffer.getInt( position + 16 ) );
+                        }
+                  }
+                  query( mid + 1, high, startDay, endDay, visitor );
+            }
+      }
+
+      /**
+       * 追加的修改:新增的事件按照开始日期排序,查询与映射的记录一样O(log d + k);以及被删除或者替换的id,每次修改都复制一份新的
+       */
+      private static final class Overlay {
+
+            static final Overlay EMPTY = new Overlay( IntervalArray.EMPTY, new long[ 0 ] );
+
+            private final IntervalArray mAdded;
+            /**
+             * 映射的记录中需要隐藏的id,有序
+             */
+            private final long[]        mHidden;
+
+            private Overlay ( IntervalArray added, long[] hidden ) {
+
+                  mAdded = added;
+                  mHidden = hidden;
+            }
+
+            boolean isHidden ( long id ) {
+
+                  return Arrays.binarySearch( mHidden, id ) >= 0;
+            }
+
+            /**
+             * 映射的记录中可能存在相同id,所以总是隐藏
+             */
+            Overlay put ( long id, int startDay, int endDay, int color ) {
+
+                  Overlay removed = remove( id );
+                  return new Overlay( removed.mAdded.insert( id, startDay, endDay, color ), removed.mHidden );
+            }
+
+            Overlay remove ( long id ) {
+
+                  IntervalArray added = mAdded;
+                  int position = added.indexOf( id );
+                  if( position >= 0 ) {
+                        added = added.removeAt( position );
+                  }
+
+                  long[] hidden = mHidden;
+                  int index = Arrays.binarySearch( hidden, id );
+                  if( index < 0 ) {
+                        index = -index - 1;
+                        hidden = new long[ mHidden.length + 1 ];
+                        System.arraycopy( mHidden, 0, hidden, 0, index );
+                        hidden[ index ] = id;
+                        System.arraycopy( mHidden, index, hidden, index + 1, mHidden.length - index );
+                  }
+                  return new Overlay( added, hidden );
+            }
+
+            void query ( int startDay, int endDay, Visitor visitor ) {
+
+                  mAdded.query( startDay, endDay, null, visitor );
+            }
+      }
+
+      /**
+       * 收集查询结果
+       */
+      private static class Collector implements Visitor {
+
+            private long[] mIds    = new long[ 64 ];
+            private int[]  mStarts = new int[ 64 ];
+            private int[]  mEnds   = new int[ 64 ];
+            private int[]  mColors = new int[ 64 ];
+            private int    mCount;
+
+            @Override
+            public void visit ( long id, int startDay, int endDay, int color ) {
+
+                  if( mCount == mIds.length ) {
+                        int capacity = mCount * 2;
+                        mIds = Arrays.copyOf( mIds, capacity );
+                        mStarts = Arrays.copyOf( mStarts, capacity );
+                        mEnds = Arrays.copyOf( mEnds, capacity );
+                        mColors = Arrays.copyOf( mColors, capacity );
+                  }
+                  mIds[ mCount ] = id;
+                  mStarts[ mCount ] = startDay;
+                  mEnds[ mCount ] = endDay;
+                  mColors[ mCount ] = color;
+                  mCount++;
+            }
+      }
+}
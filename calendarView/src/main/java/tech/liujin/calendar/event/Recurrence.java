@@ -0,0 +1,539 @@
+package tech.liujin.calendar.event;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 重复规则(RRULE),只在需要时计算某个范围内的发生日期,不会提前展开全部事件;创建之后不再改变,可以在任意线程使用
+ * <p>
+ * 支持FREQ(DAILY/WEEKLY/MONTHLY/YEARLY),INTERVAL,BYDAY(月和年可以带序号,例如-1FR),BYMONTHDAY,COUNT,UNTIL,WKST以及EXDATE;
+ * YEARLY只在DTSTART所在的月份中展开
+ *
+ * @author Liujin 2019/4/30:15:40:27
+ */
+public class Recurrence {
+
+      public static final int DAILY   = 0;
+      public static final int WEEKLY  = 1;
+      public static final int MONTHLY = 2;
+      public static final int YEARLY  = 3;
+
+      private static final int[] EMPTY = new int[ 0 ];
+
+      private int mFrequency;
+      private int mInterval = 1;
+      /**
+       * 第一次发生的日期 {@link DayKeys}
+       */
+      private int mStartDay;
+      /**
+       * 每次持续的天数减一
+       */
+      private int mDuration;
+      /**
+       * 最多发生的次数,0:不限制
+       */
+      private int mCount;
+      /**
+       * 最后一天,包含
+       */
+      private int mUntilDay  = Integer.MAX_VALUE;
+      /**
+       * 最后一次发生的开始日期不会晚于这一天,由UNTIL以及COUNT决定
+       */
+      private int mLastDay   = Integer.MAX_VALUE;
+      private int mWeekStart = Calendar.MONDAY;
+
+      /**
+       * BYDAY中不带序号的星期,第{@code dayOfWeek - 1}位
+       */
+      private int   mWeekdayMask;
+      /**
+       * BYDAY中带序号的星期
+       */
+      private int[] mOrdinals = EMPTY;
+      private int[] mOrdinalWeekdays = EMPTY;
+      private int[] mMonthDays = EMPTY;
+      /**
+       * 排除的日期,有序
+       */
+      private int[] mExDates   = EMPTY;
+
+      private Recurrence ( int startDay, int endDay ) {
+
+            mStartDay = startDay;
+            mDuration = Math.max( endDay - startDay, 0 );
+      }
+
+      /**
+       * 解析规则,例如{@code FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;COUNT=10}
+       *
+       * @param rule 规则
+       * @param startDay 第一次开始的日期 {@link DayKeys}
+       * @param endDay 第一次结束的日期,包含
+       *
+       * @return 重复规则, 无法解析时返回null
+       */
+      public static Recurrence parse ( String rule, int startDay, int endDay ) {
+
+            Recurrence recurrence = new Recurrence( startDay, endDay );
+            int frequency = -1;
+
+            for( String part : rule.split( ";" ) ) {
+                  int index = part.indexOf( '=' );
+                  if( index <= 0 ) {
+                        continue;
+                  }
+                  String name = part.substring( 0, index ).trim().toUpperCase();
+                  String value = part.substring( index + 1 ).trim().toUpperCase();
+
+                  try {
+                        switch( name ) {
+                              case "FREQ":
+                                    frequency = parseFrequency( value );
+                                    break;
+                              case "INTERVAL":
+                                    recurrence.mInterval = Math.max( Integer.parseInt( value ), 1 );
+                                    break;
+                              case "COUNT":
+                                    recurrence.mCount = Math.max( Integer.parseInt( value ), 0 );
+                                    break;
+                              case "UNTIL":
+                                    recurrence.mUntilDay = parseDay( value );
+                                    break;
+                              case "WKST":
+                                    recurrence.mWeekStart = parseWeekday( value );
+                                    break;
+                              case "BYDAY":
+                                    recurrence.parseByDay( value );
+                                    break;
+                              case "BYMONTHDAY":
+                                    recurrence.parseByMonthDay( value );
+                                    break;
+                              default:
+                                    break;
+                        }
+                  } catch(NumberFormatException e) {
+                        return null;
+                  }
+            }
+
+            if( frequency < 0 || recurrence.mWeekStart < 0 || recurrence.mUntilDay == Integer.MIN_VALUE ) {
+                  return null;
+            }
+            recurrence.mFrequency = frequency;
+            recurrence.mLastDay = recurrence.findLastDay();
+            return recurrence;
+      }
+
+      /**
+       * 设置了COUNT时找到最后一次发生;很多周期都没有发生的规则(例如每年的2月29日)数到一定周期后放弃,只使用UNTIL
+       */
+      private int findLastDay ( ) {
+
+            if( mCount <= 0 ) {
+                  return mUntilDay;
+            }
+
+            int counted = 0;
+            int maxPeriod = Math.max( mCount, 128 ) * 8;
+            int[] candidates = new int[ 31 ];
+            for( int period = 0; period < maxPeriod; period++ ) {
+                  int periodStart = getPeriodStart( period );
+                  if( periodStart > mUntilDay ) {
+                        break;
+                  }
+                  int candidateCount = getCandidates( period, periodStart, candidates );
+                  for( int i = 0; i < candidateCount; i++ ) {
+                        int day = candidates[ i ];
+                        if( day < mStartDay ) {
+                              continue;
+                        }
+                        if( day > mUntilDay ) {
+                              return mUntilDay;
+                        }
+                        if( ++counted == mCount ) {
+                              return day;
+                        }
+                  }
+            }
+            return mUntilDay;
+      }
+
+      private static int parseFrequency ( String value ) {
+
+            switch( value ) {
+                  case "DAILY":
+                        return DAILY;
+                  case "WEEKLY":
+                        return WEEKLY;
+                  case "MONTHLY":
+                        return MONTHLY;
+                  case "YEARLY":
+                        return YEARLY;
+                  default:
+                        return -1;
+            }
+      }
+
+      /**
+       * @return yyyyMMdd开头的日期, 无法解析时返回{@link Integer#MIN_VALUE}
+       */
+      private static int parseDay ( String value ) {
+
+            if( value.length() < 8 ) {
+                  return Integer.MIN_VALUE;
+            }
+            int year = Integer.parseInt( value.substring( 0, 4 ) );
+            int month = Integer.parseInt( value.substring( 4, 6 ) );
+            int day = Integer.parseInt( value.substring( 6, 8 ) );
+            return DayKeys.of( year, month - 1, day );
+      }
+
+      /**
+       * @return {@link Calendar#SUNDAY}...{@link Calendar#SATURDAY}, 无法解析时返回-1
+       */
+      private static int parseWeekday ( String value ) {
+
+            switch( value ) {
+                  case "SU":
+                        return Calendar.SUNDAY;
+                  case "MO":
+                        return Calendar.MONDAY;
+                  case "TU":
+                        return Calendar.TUESDAY;
+                  case "WE":
+                        return Calendar.WEDNESDAY;
+                  case "TH":
+                        return Calendar.THURSDAY;
+                  case "FR":
+                        return Calendar.FRIDAY;
+                  case "SA":
+                        return Calendar.SATURDAY;
+                  default:
+                        return -1;
+            }
+      }
+
+      private void parseByDay ( String value ) {
+
+            String[] days = value.split( "," );
+            int[] ordinals = new int[ days.length ];
+            int[] weekdays = new int[ days.length ];
+            int count = 0;
+
+            for( String day : days ) {
+                  day = day.trim();
+                  if( day.length() < 2 ) {
+                        continue;
+                  }
+                  int weekday = parseWeekday( day.substring( day.length() - 2 ) );
+                  if( weekday < 0 ) {
+                        continue;
+                  }
+                  String ordinal = day.substring( 0, day.length() - 2 );
+                  if( ordinal.startsWith( "+" ) ) {
+                        ordinal = ordinal.substring( 1 );
+                  }
+                  if( ordinal.isEmpty() ) {
+                        mWeekdayMask |= 1 << ( weekday - 1 );
+                  } else {
+                        ordinals[ count ] = Integer.parseInt( ordinal );
+                        weekdays[ count ] = weekday;
+                        count++;
+                  }
+            }
+            mOrdinals = Arrays.copyOf( ordinals, count );
+            mOrdinalWeekdays = Arrays.copyOf( weekdays, count );
+      }
+
+      private void parseByMonthDay ( String value ) {
+
+            String[] days = value.split( "," );
+            int[] monthDays = new int[ days.length ];
+            for( int i = 0; i < days.length; i++ ) {
+                  monthDays[ i ] = Integer.parseInt( days[ i ].trim().replace( "+", "" ) );
+            }
+            mMonthDays = monthDays;
+      }
+
+      /**
+       * 设置排除的日期(EXDATE),只能在使用之前设置
+       *
+       * @param exDates 日期 {@link DayKeys}
+       * @param count 数量
+       */
+      public void setExDates ( int[] exDates, int count ) {
+
+            mExDates = Arrays.copyOf( exDates, count );
+            Arrays.sort( mExDates );
+      }
+
+      /**
+       * 返回增加了一个排除日期的规则,自身不变,可以在已经发布之后使用
+       *
+       * @param exDate 日期 {@link DayKeys}
+       *
+       * @return 新的规则, 已经排除该日期时返回自身
+       */
+      public Recurrence withExDate ( int exDate ) {
+
+            int index = Arrays.binarySearch( mExDates, exDate );
+            if( index >= 0 ) {
+                  return this;
+            }
+            index = -index - 1;
+            int[] exDates = new int[ mExDates.length + 1 ];
+            System.arraycopy( mExDates, 0, exDates, 0, index );
+            exDates[ index ] = exDate;
+            System.arraycopy( mExDates, index, exDates, index + 1, mExDates.length - index );
+
+            Recurrence recurrence = new Recurrence( mStartDay, mStartDay + mDuration );
+            recurrence.mFrequency = mFrequency;
+            recurrence.mInterval = mInterval;
+            recurrence.mCount = mCount;
+            recurrence.mUntilDay = mUntilDay;
+            recurrence.mLastDay = mLastDay;
+            recurrence.mWeekStart = mWeekStart;
+            recurrence.mWeekdayMask = mWeekdayMask;
+            recurrence.mOrdinals = mOrdinals;
+            recurrence.mOrdinalWeekdays = mOrdinalWeekdays;
+            recurrence.mMonthDays = mMonthDays;
+            recurrence.mExDates = exDates;
+            return recurrence;
+      }
+
+      public int getStartDay ( ) {
+
+            return mStartDay;
+      }
+
+      /**
+       * @return 最后一次发生的开始日期不会晚于这一天, 没有结束时为{@link Integer#MAX_VALUE}
+       */
+      public int getLastDay ( ) {
+
+            return mLastDay;
+      }
+
+      /**
+       * @return 每次持续的天数减一, 单天的事件为0
+       */
+      public int getDuration ( ) {
+
+            return mDuration;
+      }
+
+      /**
+       * 计算开始日期在该范围内的每一次发生;设置了COUNT时需要从第一次开始计数,否则直接从范围所在的周期开始
+       *
+       * @param fromDay 第一天
+       * @param toDay 最后一天,包含
+       *
+       * @return 每次发生的开始日期, 有序
+       */
+      public int[] expand ( int fromDay, int toDay ) {
+
+            int from = Math.max( fromDay, mStartDay );
+            int to = Math.min( toDay, mUntilDay );
+            if( from > to ) {
+                  return EMPTY;
+            }
+
+            int[] result = EMPTY;
+            int size = 0;
+            int counted = 0;
+            int period = mCount > 0 ? 0 : firstPeriod( from );
+            int[] candidates = new int[ 31 ];
+
+            while( true ) {
+                  int periodStart = getPeriodStart( period );
+                  if( periodStart > to ) {
+                        break;
+                  }
+
+                  int candidateCount = getCandidates( period, periodStart, candidates );
+                  for( int i = 0; i < candidateCount; i++ ) {
+                        int day = candidates[ i ];
+                        if( day < mStartDay ) {
+                              continue;
+                        }
+                        if( day > to ) {
+                              return Arrays.copyOf( result, size );
+                        }
+                        if( mCount > 0 ) {
+                              if( counted == mCount ) {
+                                    return Arrays.copyOf( result, size );
+                              }
+                              counted++;
+                        }
+                        if( day < from || Arrays.binarySearch( mExDates, day ) >= 0 ) {
+                              continue;
+                        }
+                        if( size == result.length ) {
+                              result = Arrays.copyOf( result, size * 2 + 4 );
+                        }
+                        result[ size++ ] = day;
+                  }
+                  period++;
+            }
+            return Arrays.copyOf( result, size );
+      }
+
+      /**
+       * @return 包含该天的周期
+       */
+      private int firstPeriod ( int day ) {
+
+            switch( mFrequency ) {
+                  case DAILY:
+                        return ( day - mStartDay ) / mInterval;
+                  case WEEKLY:
+                        return ( getWeekStart( day ) - getWeekStart( mStartDay ) ) / 7 / mInterval;
+                  default:
+                        return ( DayKeys.getMonthKey( day ) - DayKeys.getMonthKey( mStartDay ) ) / getMonthStep();
+            }
+      }
+
+      /**
+       * @return 该周期的第一天
+       */
+      private int getPeriodStart ( int period ) {
+
+            switch( mFrequency ) {
+                  case DAILY:
+                        return mStartDay + period * mInterval;
+                  case WEEKLY:
+                        return getWeekStart( mStartDay ) + period * mInterval * 7;
+                  default:
+                        return DayKeys.firstDayOfMonthKey( DayKeys.getMonthKey( mStartDay ) + period * getMonthStep() );
+            }
+      }
+
+      private int getMonthStep ( ) {
+
+            return mFrequency == YEARLY ? mInterval * 12 : mInterval;
+      }
+
+      private int getWeekStart ( int day ) {
+
+            return day - ( DayKeys.getDayOfWeek( day ) - mWeekStart + 7 ) % 7;
+      }
+
+      /**
+       * 该周期中符合规则的日期
+       *
+       * @return 数量
+       */
+      private int getCandidates ( int period, int periodStart, int[] out ) {
+
+            switch( mFrequency ) {
+                  case DAILY:
+                        if( matchesWeekday( periodStart ) && matchesMonthDay( periodStart ) ) {
+                              out[ 0 ] = periodStart;
+                              return 1;
+                        }
+                        return 0;
+
+                  case WEEKLY:
+                        int weekdayMask = mWeekdayMask != 0 ? mWeekdayMask : 1 << ( DayKeys.getDayOfWeek( mStartDay ) - 1 );
+                        int count = 0;
+                        for( int day = periodStart; day < periodStart + 7; day++ ) {
+                              if( ( weekdayMask & ( 1 << ( DayKeys.getDayOfWeek( day ) - 1 ) ) ) != 0 && matchesMonthDay( day ) ) {
+                                    out[ count++ ] = day;
+                              }
+                        }
+                        return count;
+
+                  default:
+                        int mask = getMonthMask( periodStart );
+                        count = 0;
+                        for( int i = 0; i < 31; i++ ) {
+                              if( ( mask & ( 1 << i ) ) != 0 ) {
+                                    out[ count++ ] = periodStart + i;
+                              }
+                        }
+                        return count;
+            }
+      }
+
+      private boolean matchesWeekday ( int day ) {
+
+            return mWeekdayMask == 0 || ( mWeekdayMask & ( 1 << ( DayKeys.getDayOfWeek( day ) - 1 ) ) ) != 0;
+      }
+
+      private boolean matchesMonthDay ( int day ) {
+
+            if( mMonthDays.length == 0 ) {
+                  return true;
+            }
+            int firstDay = DayKeys.firstDayOfMonth( day );
+            return ( getMonthDayMask( firstDay, DayKeys.dayCountOfMonth( day ) ) & ( 1 << ( day - firstDay ) ) ) != 0;
+      }
+
+      /**
+       * 按月重复时该月符合规则的日期,第{@code dayOfMonth - 1}位;BYDAY与BYMONTHDAY同时存在时取交集
+       */
+      private int getMonthMask ( int firstDay ) {
+
+            int dayCount = DayKeys.dayCountOfMonth( firstDay );
+            boolean hasByDay = mWeekdayMask != 0 || mOrdinals.length > 0;
+            boolean hasByMonthDay = mMonthDays.length > 0;
+
+            if( !hasByDay && !hasByMonthDay ) {
+                  int dayOfMonth = DayKeys.getDayOfMonth( mStartDay );
+                  return dayOfMonth <= dayCount ? 1 << ( dayOfMonth - 1 ) : 0;
+            }
+
+            int mask = -1;
+            if( hasByDay ) {
+                  mask = getByDayMask( firstDay, dayCount );
+            }
+            if( hasByMonthDay ) {
+                  mask &= getMonthDayMask( firstDay, dayCount );
+            }
+            return mask;
+      }
+
+      private int getByDayMask ( int firstDay, int dayCount ) {
+
+            int mask = 0;
+            int firstWeekday = DayKeys.getDayOfWeek( firstDay );
+            for( int i = 0; i < dayCount; i++ ) {
+                  int weekday = ( firstWeekday - 1 + i ) % 7;
+                  if( ( mWeekdayMask & ( 1 << weekday ) ) != 0 ) {
+                        mask |= 1 << i;
+                  }
+            }
+
+            for( int i = 0; i < mOrdinals.length; i++ ) {
+                  int ordinal = mOrdinals[ i ];
+                  int index;
+                  if( ordinal > 0 ) {
+                        int first = ( mOrdinalWeekdays[ i ] - firstWeekday + 7 ) % 7;
+                        index = first + ( ordinal - 1 ) * 7;
+                  } else {
+                        int lastWeekday = ( firstWeekday - 1 + dayCount - 1 ) % 7 + 1;
+                        int last = dayCount - 1 - ( lastWeekday - mOrdinalWeekdays[ i ] + 7 ) % 7;
+                        index = last + ( ordinal + 1 ) * 7;
+                  }
+                  if( index >= 0 && index < dayCount ) {
+                        mask |= 1 << index;
+                  }
+            }
+            return mask;
+      }
+
+      private int getMonthDayMask ( int firstDay, int dayCount ) {
+
+            int mask = 0;
+            for( int monthDay : mMonthDays ) {
+                  int dayOfMonth = monthDay < 0 ? dayCount + 1 + monthDay : monthDay;
+                  if( dayOfMonth >= 1 && dayOfMonth <= dayCount ) {
+                        mask |= 1 << ( dayOfMonth - 1 );
+                  }
+            }
+            return mask;
+      }
+}
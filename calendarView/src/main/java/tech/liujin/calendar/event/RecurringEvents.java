@@ -0,0 +1,285 @@
+package tech.liujin.calendar.event;
+
+import android.util.LruCache;
+import java.util.Arrays;
+import java.util.HashMap;
+import tech.liujin.calendar.event.EventIndex.Visitor;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 保存重复的事件,查询时只展开需要的范围;展开结果按照开始日期所在的月份缓存,
+ * 页面以及预取窗口查询相邻月份时不需要再次计算
+ * <p>
+ * 修改会发布新的不可变规则列表,缓存的结果属于旧列表时自动失效,可以在任意线程查询;
+ * 只是新增规则时追加到数组的空余位置,旧列表只读取自己的数量,不需要复制,批量导入的总开销是O(n)
+ *
+ * @author Liujin 2019/4/30:16:52:13
+ */
+public class RecurringEvents implements EventQuery {
+
+      /**
+       * 默认缓存的月数,可以覆盖前后各一页以及预取的页面
+       */
+      public static final int DEFAULT_MONTH_CACHE_SIZE = 24;
+
+      private volatile Rules mRules = Rules.EMPTY;
+      /**
+       * id -> 在规则数组中的位置,修改时使用
+       */
+      private HashMap<Long, Integer> mIndexes = new HashMap<>();
+
+      /**
+       * 月份 -> 开始日期在该月的发生
+       */
+      private LruCache<Integer, MonthOccurrences> mMonths;
+
+      public RecurringEvents ( ) {
+
+            this( DEFAULT_MONTH_CACHE_SIZE );
+      }
+
+      /**
+       * @param monthCacheSize 缓存的月数
+       */
+      public RecurringEvents ( int monthCacheSize ) {
+
+            mMonths = new LruCache<>( monthCacheSize );
+      }
+
+      /**
+       * 添加或者替换一个重复事件
+       *
+       * @param id 事件id
+       * @param recurrence 重复规则
+       * @param color 颜色
+       */
+      public void put ( long id, Recurrence recurrence, int color ) {
+
+            putAll( new long[]{ id }, new Recurrence[]{ recurrence }, new int[]{ color }, 1 );
+      }
+
+      /**
+       * 批量添加或者替换,只发布一次
+       *
+       * @param ids 事件id
+       * @param recurrences 重复规则
+       * @param colors 颜色
+       * @param count 数量
+       */
+      public synchronized void putAll ( long[] ids, Recurrence[] recurrences, int[] colors, int count ) {
+
+            Rules rules = mRules;
+            int size = rules.mSize;
+            long[] newIds = rules.mIds;
+            Recurrence[] newRecurrences = rules.mRecurrences;
+            int[] newColors = rules.mColors;
+
+            /* 替换会修改旧列表可见的部分,空间不够时也需要复制 */
+            boolean isReplacing = false;
+            for( int i = 0; i < count && !isReplacing; i++ ) {
+                  isReplacing = mIndexes.containsKey( ids[ i ] );
+            }
+            if( isReplacing || size + count > newIds.length ) {
+                  int capacity = Math.max( newIds.length, size + count );
+                  if( capacity > newIds.length ) {
+                        capacity = Math.max( capacity, newIds.length * 2 );
+                  }
+                  newIds = Arrays.copyOf( newIds, capacity );
+                  newRecurrences = Arrays.copyOf( newRecurrences, capacity );
+                  newColors = Arrays.copyOf( newColors, capacity );
+            }
+
+            int maxDuration = rules.mMaxDuration;
+            for( int i = 0; i < count; i++ ) {
+                  Integer index = mIndexes.get( ids[ i ] );
+                  if( index == null ) {
+                        index = size++;
+                        newIds[ index ] = ids[ i ];
+                        mIndexes.put( ids[ i ], index );
+                  }
+                  newRecurrences[ index ] = recurrences[ i ];
+                  newColors[ index ] = colors[ i ];
+                  maxDuration = Math.max( maxDuration, recurrences[ i ].getDuration() );
+            }
+            publish( new Rules( newIds, newRecurrences, newColors, size, maxDuration ) );
+      }
+
+      /**
+       * @param id 事件id
+       *
+       * @return 该事件的重复规则, 没有时返回null
+       */
+      public synchronized Recurrence get ( long id ) {
+
+            Integer index = mIndexes.get( id );
+            return index == null ? null : mRules.mRecurrences[ index ];
+      }
+
+      /**
+       * 删除一个重复事件
+       *
+       * @param id 事件id
+       */
+      public synchronized void remove ( long id ) {
+
+            Integer index = mIndexes.get( id );
+            if( index == null ) {
+                  return;
+            }
+
+            Rules rules = mRules;
+            int size = rules.mSize - 1;
+            long[] ids = new long[ size ];
+            Recurrence[] recurrences = new Recurrence[ size ];
+            int[] colors = new int[ size ];
+            System.arraycopy( rules.mIds, 0, ids, 0, index );
+            System.arraycopy( rules.mIds, index + 1, ids, index, size - index );
+            System.arraycopy( rules.mRecurrences, 0, recurrences, 0, index );
+            System.arraycopy( rules.mRecurrences, index + 1, recurrences, index, size - index );
+            System.arraycopy( rules.mColors, 0, colors, 0, index );
+            System.arraycopy( rules.mColors, index + 1, colors, index, size - index );
+
+            mIndexes.remove( id );
+            int maxDuration = 0;
+            for( int i = 0; i < size; i++ ) {
+                  if( i >= index ) {
+                        mIndexes.put( ids[ i ], i );
+                  }
+                  maxDuration = Math.max( maxDuration, recurrences[ i ].getDuration() );
+            }
+            publish( new Rules( ids, recurrences, colors, size, maxDuration ) );
+      }
+
+      public synchronized void clear ( ) {
+
+            mIndexes.clear();
+            publish( Rules.EMPTY );
+      }
+
+      public int size ( ) {
+
+            return mRules.mSize;
+      }
+
+      private void publish ( Rules rules ) {
+
+            mRules = rules;
+            mMonths.evictAll();
+      }
+
+      /**
+       * 查询与该范围重叠的每一次发生,每次发生的id由事件id与开始日期计算
+       *
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       * @param visitor 回调
+       */
+      @Override
+      public void query ( int startDay, int endDay, Visitor visitor ) {
+
+            Rules rules = mRules;
+            if( rules.mSize == 0 ) {
+                  return;
+            }
+
+            /* 开始得更早的发生可能持续到范围内 */
+            int firstMonth = DayKeys.getMonthKey( startDay - rules.mMaxDuration );
+            int lastMonth = DayKeys.getMonthKey( endDay );
+            for( int month = firstMonth; month <= lastMonth; month++ ) {
+                  MonthOccurrences occurrences = obtainMonth( rules, month );
+                  for( int i = 0; i < occurrences.mCount; i++ ) {
+                        int index = occurrences.mIndexes[ i ];
+                        int start = occurrences.mStarts[ i ];
+                        int end = start + rules.mRecurrences[ index ].getDuration();
+                        if( start <= endDay && end >= startDay ) {
+                              long id = rules.mIds[ index ] ^ ( start * 0x9E3779B97F4A7C15L );
+                              visitor.visit( id, start, end, rules.mColors[ index ] );
+                        }
+                  }
+            }
+      }
+
+      /**
+       * 使用缓存,缓存不存在或者属于旧的规则列表时重新展开;跳过在该月之后才开始或者之前已经结束的规则
+       */
+      private MonthOccurrences obtainMonth ( Rules rules, int month ) {
+
+            MonthOccurrences occurrences = mMonths.get( month );
+            if( occurrences != null && occurrences.mRules == rules ) {
+                  return occurrences;
+            }
+
+            occurrences = new MonthOccurrences( rules );
+            int firstDay = DayKeys.firstDayOfMonthKey( month );
+            int lastDay = DayKeys.firstDayOfMonthKey( month + 1 ) - 1;
+            for( int i = 0; i < rules.mSize; i++ ) {
+                  Recurrence recurrence = rules.mRecurrences[ i ];
+                  if( recurrence.getStartDay() > lastDay || recurrence.getLastDay() < firstDay ) {
+                        continue;
+                  }
+                  int[] starts = recurrence.expand( firstDay, lastDay );
+                  for( int start : starts ) {
+                        occurrences.add( i, start );
+                  }
+            }
+
+            /* 查询期间规则已经改变时不缓存旧结果 */
+            if( rules == mRules ) {
+                  mMonths.put( month, occurrences );
+            }
+            return occurrences;
+      }
+
+      /**
+       * 不可变的规则列表,只使用数组的前{@link #mSize}个,之后的位置可能被新的列表使用
+       */
+      private static class Rules {
+
+            private static final Rules EMPTY = new Rules( new long[ 0 ], new Recurrence[ 0 ], new int[ 0 ], 0, 0 );
+
+            private final long[]       mIds;
+            private final Recurrence[] mRecurrences;
+            private final int[]        mColors;
+            private final int          mSize;
+            /**
+             * 所有规则中最长的持续天数,替换规则时不会减小
+             */
+            private final int          mMaxDuration;
+
+            private Rules ( long[] ids, Recurrence[] recurrences, int[] colors, int size, int maxDuration ) {
+
+                  mIds = ids;
+                  mRecurrences = recurrences;
+                  mColors = colors;
+                  mSize = size;
+                  mMaxDuration = maxDuration;
+            }
+      }
+
+      /**
+       * 一个月中每次发生的规则索引以及开始日期
+       */
+      private static class MonthOccurrences {
+
+            private final Rules mRules;
+            private int[] mIndexes = new int[ 8 ];
+            private int[] mStarts  = new int[ 8 ];
+            private int   mCount;
+
+            private MonthOccurrences ( Rules rules ) {
+
+                  mRules = rules;
+            }
+
+            private void add ( int index, int start ) {
+
+                  if( mCount == mIndexes.length ) {
+                        mIndexes = Arrays.copyOf( mIndexes, mCount * 2 );
+                        mStarts = Arrays.copyOf( mStarts, mCount * 2 );
+                  }
+                  mIndexes[ mCount ] = index;
+                  mStarts[ mCount ] = start;
+                  mCount++;
+            }
+      }
+}
@@ -0,0 +1,370 @@
+package tech.liujin.calendar.month;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import androidx.viewpager.widget.ViewPager.SimpleOnPageChangeListener;
+import java.util.concurrent.Executor;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 在{@link Executor}中异步加载装饰数据的{@link DayDecorationSource},加载当前页面以及前后若干个月,
+ * 翻页后取消已经离开范围的请求,当前页面最先提交;
+ * 数据变化后{@link #invalidate()}会增加代数,之前代数的结果到达后直接丢弃,结果只会应用到仍然显示该范围的页面
+ *
+ * @author Liujin 2019/4/28:10:42:17
+ */
+public class AsyncDecorationLoader implements DayDecorationSource {
+
+      /**
+       * 默认加载当前页面前后各多少页
+       */
+      public static final int DEFAULT_WINDOW_RADIUS = 1;
+
+      private MonthLayout mLayout;
+      private Executor    mExecutor;
+      private Loader      mLoader;
+      private Handler     mMainHandler = new Handler( Looper.getMainLooper() );
+
+      /**
+       * 当前页面前后各加载多少页
+       */
+      private int mWindowRadius = DEFAULT_WINDOW_RADIUS;
+      /**
+       * 当前加载范围,页面第一天{@link DayKeys},当前页面在第一个
+       */
+      private int[] mWindow = new int[ 0 ];
+
+      /**
+       * 页面第一天 -> 加载完成的数据
+       */
+      private SparseArray<DayDecorations> mResults  = new SparseArray<>();
+      /**
+       * 页面第一天 -> 正在加载的请求
+       */
+      private SparseArray<Request>        mInFlight = new SparseArray<>();
+      /**
+       * 数据代数,{@link #invalidate()}时增加
+       */
+      private int                         mGeneration;
+
+      private PageSelectedListener mPageSelectedListener = new PageSelectedListener();
+      private boolean              isAttached;
+
+      /**
+       * @param layout 显示数据的布局
+       * @param executor 执行加载
+       * @param loader 加载数据,在executor的线程中调用
+       */
+      public AsyncDecorationLoader ( MonthLayout layout, Executor executor, Loader loader ) {
+
+            mLayout = layout;
+            mExecutor = executor;
+            mLoader = loader;
+      }
+
+      /**
+       * 设置为布局的装饰数据源,并且开始加载当前范围
+       */
+      public void attach ( ) {
+
+            if( isAttached ) {
+                  return;
+            }
+            isAttached = true;
+
+            /* 先提交当前范围,保证当前页面最先加载 */
+            updateWindow( mLayout.getCurrentItem() );
+            mLayout.addOnPageChangeListener( mPageSelectedListener );
+            mLayout.setDayDecorationSource( this );
+      }
+
+      /**
+       * 取消所有请求,不再作为布局的装饰数据源
+       */
+      public void detach ( ) {
+
+            if( !isAttached ) {
+                  return;
+            }
+            isAttached = false;
+
+            mLayout.removeOnPageChangeListener( mPageSelectedListener );
+            cancelAll();
+            mResults.clear();
+            if( mLayout.getDayDecorationSource() == this ) {
+                  mLayout.setDayDecorationSource( null );
+            }
+      }
+
+      /**
+       * 设置当前页面前后各加载多少页
+       *
+       * @param radius 页数
+       */
+      public void setWindowRadius ( int radius ) {
+
+            mWindowRadius = Math.max( radius, 0 );
+            if( isAttached ) {
+                  updateWindow( mLayout.getCurrentItem() );
+            }
+      }
+
+      /**
+       * 数据已经变化,丢弃所有结果以及正在加载的请求,重新加载当前范围
+       */
+      public void invalidate ( ) {
+
+            mGeneration++;
+            cancelAll();
+            mResults.clear();
+            DecorationCache cache = mLayout.getDecorationCache();
+            if( cache != null ) {
+                  cache.clear();
+            }
+            if( isAttached ) {
+                  updateWindow( mLayout.getCurrentItem() );
+            }
+      }
+
+      /**
+       * 数据可能已经变化但是不知道范围,例如收到数据库的通知:重新加载当前范围,加载完成之前页面继续显示旧的数据,
+       * 只有结果与之前不同的页面才会重新绑定
+       */
+      public void refresh ( ) {
+
+            mGeneration++;
+            cancelAll();
+            if( isAttached ) {
+                  for( int firstDay : mWindow ) {
+                        submit( firstDay );
+                  }
+                  /* 范围之外单独加载的页面 */
+                  for( int i = 0; i < mResults.size(); i++ ) {
+                        int firstDay = mResults.keyAt( i );
+                        if( !isInWindow( firstDay ) ) {
+                              submit( firstDay );
+                        }
+                  }
+            }
+      }
+
+      /**
+       * 该范围内的天的数据已经变化,只重新加载包含这些天的页面范围,
+       * 加载完成之前页面继续显示旧的数据
+       *
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       */
+      public void invalidate ( int startDay, int endDay ) {
+
+            DecorationCache cache = mLayout.getDecorationCache();
+            if( cache != null ) {
+                  cache.invalidate( startDay, endDay );
+            }
+
+            for( int i = mInFlight.size() - 1; i >= 0; i-- ) {
+                  if( isOverlapping( mInFlight.keyAt( i ), startDay, endDay ) ) {
+                        mInFlight.valueAt( i ).isCancelled = true;
+                        mInFlight.removeAt( i );
+                  }
+            }
+            for( int i = mResults.size() - 1; i >= 0; i-- ) {
+                  if( isOverlapping( mResults.keyAt( i ), startDay, endDay ) ) {
+                        mResults.removeAt( i );
+                  }
+            }
+
+            if( isAttached ) {
+                  for( int firstDay : mWindow ) {
+                        if( isOverlapping( firstDay, startDay, endDay ) ) {
+                              request( firstDay );
+                        }
+                  }
+            }
+      }
+
+      private static boolean isOverlapping ( int firstDay, int startDay, int endDay ) {
+
+            return firstDay <= endDay && firstDay + MonthPage.CELL_COUNT > startDay;
+      }
+
+      @Override
+      public void fillDecorations ( int firstDay, int dayCount, DayDecorations out ) {
+
+            DayDecorations result = mResults.get( firstDay );
+            if( result == null ) {
+                  /* 重设日期等情况下页面不在当前范围之内,单独加载 */
+                  request( firstDay );
+                  out.markPending();
+                  return;
+            }
+
+            out.copyFrom( result );
+      }
+
+      /**
+       * 根据当前页面重新计算范围,取消范围之外的请求,丢弃范围之外的结果,当前页面最先提交
+       */
+      private void updateWindow ( int current ) {
+
+            int size = mWindowRadius * 2 + 1;
+            if( mWindow.length != size ) {
+                  mWindow = new int[ size ];
+            }
+            mWindow[ 0 ] = mLayout.getPageFirstDay( current );
+            for( int i = 1; i <= mWindowRadius; i++ ) {
+                  mWindow[ i * 2 - 1 ] = mLayout.getPageFirstDay( current + i );
+                  mWindow[ i * 2 ] = mLayout.getPageFirstDay( current - i );
+            }
+
+            for( int i = mInFlight.size() - 1; i >= 0; i-- ) {
+                  if( !isInWindow( mInFlight.keyAt( i ) ) ) {
+                        mInFlight.valueAt( i ).isCancelled = true;
+                        mInFlight.removeAt( i );
+                  }
+            }
+            for( int i = mResults.size() - 1; i >= 0; i-- ) {
+                  if( !isInWindow( mResults.keyAt( i ) ) ) {
+                        mResults.removeAt( i );
+                  }
+            }
+
+            for( int firstDay : mWindow ) {
+                  request( firstDay );
+            }
+      }
+
+      private boolean isInWindow ( int firstDay ) {
+
+            for( int day : mWindow ) {
+                  if( day == firstDay ) {
+                        return true;
+                  }
+            }
+            return false;
+      }
+
+      /**
+       * 提交请求,已经有结果或者正在加载时忽略
+       */
+      private void request ( int firstDay ) {
+
+            if( mResults.get( firstDay ) != null || mInFlight.get( firstDay ) != null ) {
+                  return;
+            }
+            submit( firstDay );
+      }
+
+      private void submit ( int firstDay ) {
+
+            Request request = new Request( firstDay, mGeneration );
+            mInFlight.put( firstDay, request );
+            mExecutor.execute( request );
+      }
+
+      private void cancelAll ( ) {
+
+            int size = mInFlight.size();
+            for( int i = 0; i < size; i++ ) {
+                  mInFlight.valueAt( i ).isCancelled = true;
+            }
+            mInFlight.clear();
+      }
+
+      /**
+       * 主线程接收结果
+       */
+      private void onLoaded ( Request request ) {
+
+            if( mInFlight.get( request.mFirstDay ) == request ) {
+                  mInFlight.remove( request.mFirstDay );
+            }
+            if( request.isCancelled || request.mGeneration != mGeneration || !isAttached ) {
+                  return;
+            }
+
+            DayDecorations old = mResults.get( request.mFirstDay );
+            mResults.put( request.mFirstDay, request.mResult );
+            if( old != null ) {
+                  /* 刷新后结果没有变化时不需要重新绑定 */
+                  if( old.isSameAs( request.mResult ) ) {
+                        return;
+                  }
+                  DecorationCache cache = mLayout.getDecorationCache();
+                  if( cache != null ) {
+                        cache.invalidate( request.mFirstDay, request.mFirstDay + MonthPage.CELL_COUNT - 1 );
+                  }
+            }
+            mLayout.notifyDecorationsLoaded( request.mFirstDay );
+      }
+
+      /**
+       * 加载数据
+       */
+      public interface Loader {
+
+            /**
+             * 加载该范围内每天的装饰数据,在{@link Executor}的线程中调用
+             *
+             * @param firstDay 页面第一天 {@link DayKeys}
+             * @param dayCount 天数
+             * @param out 填充到这里
+             */
+            void load ( int firstDay, int dayCount, DayDecorations out );
+      }
+
+      /**
+       * 一个页面范围的加载请求
+       */
+      private class Request implements Runnable {
+
+            private final int      mFirstDay;
+            private final int      mGeneration;
+            private volatile boolean isCancelled;
+            private DayDecorations mResult;
+
+            private Request ( int firstDay, int generation ) {
+
+                  mFirstDay = firstDay;
+                  mGeneration = generation;
+            }
+
+            @Override
+            public void run ( ) {
+
+                  /* 排队期间已经离开范围 */
+                  if( isCancelled ) {
+                        return;
+                  }
+
+                  DayDecorations result = new DayDecorations( MonthPage.CELL_COUNT );
+                  result.reset( mFirstDay, MonthPage.CELL_COUNT );
+                  mLoader.load( mFirstDay, MonthPage.CELL_COUNT, result );
+                  mResult = result;
+
+                  if( !isCancelled ) {
+                        mMainHandler.post( new Runnable() {
+
+                              @Override
+                              public void run ( ) {
+
+                                    onLoaded( Request.this );
+                              }
+                        } );
+                  }
+            }
+      }
+
+      /**
+       * 翻页后更新范围
+       */
+      private class PageSelectedListener extends SimpleOnPageChangeListener {
+
+            @Override
+            public void onPageSelected ( int position ) {
+
+                  updateWindow( position );
+            }
+      }
+}
@@ -0,0 +1,140 @@
+package tech.liujin.calendar.month;
+
+import java.util.Arrays;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 占用时间段列表,使用分钟表示时间:{@code dayKey * 1440 + 当天第几分钟},由{@link DayOccupancySource}填充;
+ * 时间段可以相互重叠,计算时先合并再统计每天的占用分钟数
+ *
+ * @author Liujin 2019/5/2:09:40:18
+ */
+public class BusyIntervals {
+
+      public static final int MINUTES_PER_DAY = 24 * 60;
+
+      private int[] mStarts = new int[ 32 ];
+      private int[] mEnds   = new int[ 32 ];
+      private int   mSize;
+
+      /**
+       * 合并时排序使用,开始时间在高位,结束时间在低位
+       */
+      private long[] mOrder = new long[ 32 ];
+
+      /**
+       * @param day 天 {@link DayKeys}
+       * @param minuteOfDay 当天第几分钟
+       *
+       * @return 分钟
+       */
+      public static int minuteOf ( int day, int minuteOfDay ) {
+
+            return day * MINUTES_PER_DAY + minuteOfDay;
+      }
+
+      /**
+       * 清空,准备重新填充
+       */
+      void reset ( ) {
+
+            mSize = 0;
+      }
+
+      /**
+       * 添加一个占用时间段
+       *
+       * @param startDay 开始日期 {@link DayKeys}
+       * @param startMinute 开始日期的第几分钟
+       * @param endDay 结束日期 {@link DayKeys}
+       * @param endMinute 结束日期的第几分钟,不包含
+       */
+      public void add ( int startDay, int startMinute, int endDay, int endMinute ) {
+
+            addMinutes( minuteOf( startDay, startMinute ), minuteOf( endDay, endMinute ) );
+      }
+
+      /**
+       * 添加一个占用时间段
+       *
+       * @param start 开始 {@link #minuteOf(int, int)}
+       * @param end 结束 {@link #minuteOf(int, int)},不包含
+       */
+      public void addMinutes ( int start, int end ) {
+
+            if( end <= start ) {
+                  return;
+            }
+
+            if( mSize == mStarts.length ) {
+                  int capacity = mSize * 2;
+                  mStarts = Arrays.copyOf( mStarts, capacity );
+                  mEnds = Arrays.copyOf( mEnds, capacity );
+            }
+            mStarts[ mSize ] = start;
+            mEnds[ mSize ] = end;
+            mSize++;
+      }
+
+      public int size ( ) {
+
+            return mSize;
+      }
+
+      /**
+       * 按照开始时间排序后合并重叠的时间段,再把合并结果按照天拆分累加,O(n log n + 天数)
+       *
+       * @param firstDay 第一天 {@link DayKeys}
+       * @param dayCount 天数
+       * @param outMinutes 每天占用的分钟数
+       */
+      void sweep ( int firstDay, int dayCount, int[] outMinutes ) {
+
+            Arrays.fill( outMinutes, 0, dayCount, 0 );
+            if( mSize == 0 ) {
+                  return;
+            }
+
+            if( mOrder.length < mSize ) {
+                  mOrder = new long[ mStarts.length ];
+            }
+            for( int i = 0; i < mSize; i++ ) {
+                  mOrder[ i ] = ( (long) mStarts[ i ] << 32 ) | ( mEnds[ i ] & 0xFFFFFFFFL );
+            }
+            Arrays.sort( mOrder, 0, mSize );
+
+            int rangeStart = minuteOf( firstDay, 0 );
+            int rangeEnd = minuteOf( firstDay + dayCount, 0 );
+
+            int mergedStart = (int) ( mOrder[ 0 ] >> 32 );
+            int mergedEnd = (int) mOrder[ 0 ];
+            for( int i = 1; i < mSize; i++ ) {
+                  int start = (int) ( mOrder[ i ] >> 32 );
+                  int end = (int) mOrder[ i ];
+                  if( start > mergedEnd ) {
+                        accumulate( mergedStart, mergedEnd, rangeStart, rangeEnd, outMinutes );
+                        mergedStart = start;
+                        mergedEnd = end;
+                  } else if( end > mergedEnd ) {
+                        mergedEnd = end;
+                  }
+            }
+            accumulate( mergedStart, mergedEnd, rangeStart, rangeEnd, outMinutes );
+      }
+
+      /**
+       * 将一个合并后的时间段在天的边界拆分,累加到每天
+       */
+      private static void accumulate ( int start, int end, int rangeStart, int rangeEnd, int[] outMinutes ) {
+
+            start = Math.max( start, rangeStart );
+            end = Math.min( end, rangeEnd );
+            while( start < end ) {
+                  int index = ( start - rangeStart ) / MINUTES_PER_DAY;
+                  int dayEnd = rangeStart + ( index + 1 ) * MINUTES_PER_DAY;
+                  int to = Math.min( end, dayEnd );
+                  outMinutes[ index ] += to - start;
+                  start = to;
+            }
+      }
+}
@@ -0,0 +1,21 @@
+package tech.liujin.calendar.month;
+
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 为页面提供每天的装饰数据,每次绑定页面时按照页面显示的范围调用一次,在主线程调用,需要很快返回,
+ * 一般从预先按天整理好的数据中复制
+ *
+ * @author Liujin 2019/4/27:16:05:52
+ */
+public interface DayDecorationSource {
+
+      /**
+       * 填充该范围内每天的装饰数据
+       *
+       * @param firstDay 范围内第一天 {@link DayKeys}
+       * @param dayCount 天数
+       * @param out 填充到这里,{@link DayDecorations#set(int, int, int, int)}
+       */
+      void fillDecorations ( int firstDay, int dayCount, DayDecorations out );
+}
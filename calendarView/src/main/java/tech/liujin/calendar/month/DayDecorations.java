@@ -0,0 +1,225 @@
+package tech.liujin.calendar.month;
+
+import java.util.Arrays;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 一个页面所有天的装饰数据:事件数量,颜色,标记,使用int数组保存,以{@link DayKeys}天为索引,
+ * 绑定页面时由{@link DayDecorationSource}填充一次,绘制时直接读取,不需要装箱,哈希以及创建对象
+ *
+ * @author Liujin 2019/4/27:16:05:52
+ */
+public class DayDecorations {
+
+      /**
+       * 标记之一:在右上角绘制角标
+       */
+      public static final int FLAG_BADGE  = 1;
+      /**
+       * 从该位开始的标记由使用者自定义,在{@link MonthDayView#drawDecoration(android.graphics.Canvas, DayDecorations, int)}中自行处理
+       */
+      public static final int FLAG_CUSTOM = 1 << 8;
+
+      /**
+       * 第一天
+       */
+      private int mFirstDay;
+      /**
+       * 包含的天数
+       */
+      private int mDayCount;
+
+      private int[] mCounts;
+      private int[] mColors;
+      private int[] mFlags;
+      /**
+       * 数据还没有准备好
+       */
+      private boolean isPending;
+
+      DayDecorations ( int capacity ) {
+
+            mCounts = new int[ capacity ];
+            mColors = new int[ capacity ];
+            mFlags = new int[ capacity ];
+      }
+
+      /**
+       * 清空数据,准备填充新的范围
+       */
+      void reset ( int firstDay, int dayCount ) {
+
+            mFirstDay = firstDay;
+            mDayCount = Math.min( dayCount, mCounts.length );
+            Arrays.fill( mCounts, 0 );
+            Arrays.fill( mColors, 0 );
+            Arrays.fill( mFlags, 0 );
+            isPending = false;
+      }
+
+      /**
+       * 复制全部数据
+       */
+      void copyFrom ( DayDecorations other ) {
+
+            mFirstDay = other.mFirstDay;
+            mDayCount = Math.min( other.mDayCount, mCounts.length );
+            System.arraycopy( other.mCounts, 0, mCounts, 0, mDayCount );
+            System.arraycopy( other.mColors, 0, mColors, 0, mDayCount );
+            System.arraycopy( other.mFlags, 0, mFlags, 0, mDayCount );
+            isPending = other.isPending;
+      }
+
+      /**
+       * @return true:数据完全相同
+       */
+      boolean isSameAs ( DayDecorations other ) {
+
+            if( mFirstDay != other.mFirstDay || mDayCount != other.mDayCount || isPending != other.isPending ) {
+                  return false;
+            }
+            for( int i = 0; i < mDayCount; i++ ) {
+                  if( mCounts[ i ] != other.mCounts[ i ] || mColors[ i ] != other.mColors[ i ] || mFlags[ i ] != other.mFlags[ i ] ) {
+                        return false;
+                  }
+            }
+            return true;
+      }
+
+      /**
+       * @return true:该位置的数量,颜色,标记都相同
+       */
+      boolean isSameAt ( DayDecorations other, int index ) {
+
+            return mCounts[ index ] == other.mCounts[ index ]
+                && mColors[ index ] == other.mColors[ index ]
+                && mFlags[ index ] == other.mFlags[ index ];
+      }
+
+      /**
+       * @return 三个数组以及对象本身大约占用的字节数
+       */
+      int getByteCount ( ) {
+
+            return mCounts.length * 4 * 3 + 64;
+      }
+
+      /**
+       * 异步数据源还没有加载完成时调用,这样的数据不会被{@link DecorationCache}缓存
+       */
+      public void markPending ( ) {
+
+            isPending = true;
+      }
+
+      /**
+       * @return true:数据还没有准备好
+       */
+      public boolean isPending ( ) {
+
+            return isPending;
+      }
+
+      /**
+       * @return 第一天 {@link DayKeys}
+       */
+      public int getFirstDay ( ) {
+
+            return mFirstDay;
+      }
+
+      /**
+       * @return 包含的天数
+       */
+      public int getDayCount ( ) {
+
+            return mDayCount;
+      }
+
+      /**
+       * @return 最后一天 {@link DayKeys}
+       */
+      public int getLastDay ( ) {
+
+            return mFirstDay + mDayCount - 1;
+      }
+
+      /**
+       * @return true:该天在范围之内
+       */
+      public boolean contains ( int day ) {
+
+            return day >= mFirstDay && day < mFirstDay + mDayCount;
+      }
+
+      /**
+       * 设置该天的装饰,不在范围之内时忽略
+       *
+       * @param day 天 {@link DayKeys}
+       * @param count 事件数量,绘制时按照数量绘制圆点
+       * @param color 颜色
+       * @param flags 标记{@link #FLAG_BADGE},或者自定义的标记
+       */
+      public void set ( int day, int count, int color, int flags ) {
+
+            if( !contains( day ) ) {
+                  return;
+            }
+            int index = day - mFirstDay;
+            mCounts[ index ] = count;
+            mColors[ index ] = color;
+            mFlags[ index ] = flags;
+      }
+
+      /**
+       * 该天事件数量增加,用于逐个事件填充
+       *
+       * @param day 天 {@link DayKeys}
+       * @param color 颜色,只有第一个事件的颜色会被保存
+       */
+      public void add ( int day, int color ) {
+
+            if( !contains( day ) ) {
+                  return;
+            }
+            int index = day - mFirstDay;
+            if( mCounts[ index ] == 0 ) {
+                  mColors[ index ] = color;
+            }
+            mCounts[ index ]++;
+      }
+
+      /**
+       * 为该天添加标记
+       */
+      public void addFlags ( int day, int flags ) {
+
+            if( contains( day ) ) {
+                  mFlags[ day - mFirstDay ] |= flags;
+            }
+      }
+
+      /**
+       * @param index 距离第一天的天数,与页面中子view的索引一致
+       */
+      public int getCount ( int index ) {
+
+            return mCounts[ index ];
+      }
+
+      /**
+       * @param index 距离第一天的天数,与页面中子view的索引一致
+       */
+      public int getColor ( int index ) {
+
+            return mColors[ index ];
+      }
+
+      /**
+       * @param index 距离第一天的天数,与页面中子view的索引一致
+       */
+      public int getFlags ( int index ) {
+
+            return mFlags[ index ];
+      }
+}
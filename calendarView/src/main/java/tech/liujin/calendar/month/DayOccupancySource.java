@@ -0,0 +1,20 @@
+package tech.liujin.calendar.month;
+
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 为热力图提供占用时间段,每次绑定页面时按照页面范围获取一次,数据变化之后需要调用{@link MonthLayout#notifyDaysChanged(int, int)}
+ *
+ * @author Liujin 2019/5/2:09:40:18
+ */
+public interface DayOccupancySource {
+
+      /**
+       * 添加与该范围有重叠的占用时间段
+       *
+       * @param firstDay 范围内第一天 {@link DayKeys}
+       * @param dayCount 天数
+       * @param out 添加到这里,{@link BusyIntervals#add(int, int, int, int)}
+       */
+      void fillBusyIntervals ( int firstDay, int dayCount, BusyIntervals out );
+}
@@ -0,0 +1,377 @@
+package tech.liujin.calendar.month;
+
+import java.util.BitSet;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 选中的日期,使用{@link BitSet}按天保存,可以跨越任意多个月;绑定时每个子view只需要检查自己和相邻两天,
+ * 就可以得到单独选中,范围开始,范围中间,范围结束四种状态;多选模式下每一天都单独选中,相邻的天也不显示为范围
+ * <p>
+ * 修改可以放在{@link #beginBatch()}与{@link #endBatch()}之间,结束时合并为一次回调,页面只更新变化范围内的子view
+ *
+ * @author Liujin 2019/5/2:14:31:06
+ */
+public class DaySelection {
+
+      /**
+       * 只选中当前日期,与原来的行为一致
+       */
+      public static final int MODE_SINGLE   = 0;
+      /**
+       * 点击切换每一天是否选中
+       */
+      public static final int MODE_MULTIPLE = 1;
+      /**
+       * 第一次点击选择开始,第二次点击选择结束,再次点击重新开始
+       */
+      public static final int MODE_RANGE    = 2;
+
+      /**
+       * 第0位对应的天,更早的日期不能选中
+       */
+      private static final int BASE_DAY = DayKeys.of( 1900, 0, 1 );
+      private static final int NO_DAY   = Integer.MIN_VALUE;
+
+      private int    mMode = MODE_SINGLE;
+      private BitSet mDays = new BitSet();
+      /**
+       * 范围模式下第一次点击的天
+       */
+      private int    mAnchor = NO_DAY;
+      /**
+       * 拖动选择时当前的另一端,范围是{@link #mAnchor}到该天
+       */
+      private int    mDragEnd = NO_DAY;
+
+      /**
+       * 批量修改的层数,以及还没有通知的范围
+       */
+      private int mBatchDepth;
+      private int mDirtyStart = Integer.MAX_VALUE;
+      private int mDirtyEnd   = Integer.MIN_VALUE;
+
+      private MonthLayout                mLayout;
+      private OnSelectionChangedListener mOnSelectionChangedListener;
+
+      DaySelection ( MonthLayout layout ) {
+
+            mLayout = layout;
+      }
+
+      /**
+       * 设置选择模式,会清除已经选中的日期
+       *
+       * @param mode {@link #MODE_SINGLE},{@link #MODE_MULTIPLE},{@link #MODE_RANGE}
+       */
+      public void setMode ( int mode ) {
+
+            if( mMode == mode ) {
+                  return;
+            }
+            beginBatch();
+            clear();
+            mMode = mode;
+            /* 状态的计算方式改变,所有页面都需要更新 */
+            markDirty( Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1 );
+            endBatch();
+      }
+
+      public int getMode ( ) {
+
+            return mMode;
+      }
+
+      public void setOnSelectionChangedListener ( OnSelectionChangedListener onSelectionChangedListener ) {
+
+            mOnSelectionChangedListener = onSelectionChangedListener;
+      }
+
+      /**
+       * @param day 天 {@link DayKeys}
+       *
+       * @return 是否选中
+       */
+      public boolean isSelected ( int day ) {
+
+            int index = day - BASE_DAY;
+            return index >= 0 && mDays.get( index );
+      }
+
+      /**
+       * 根据自己以及相邻两天是否选中计算状态,O(1);多选模式下选中的天总是{@link MonthDayView#SELECTED}
+       *
+       * @param day 天 {@link DayKeys}
+       *
+       * @return {@link MonthDayView#UNSELECTED},{@link MonthDayView#SELECTED},{@link MonthDayView#SELECTED_START},
+       *     {@link MonthDayView#SELECTED_MIDDLE},{@link MonthDayView#SELECTED_END}
+       */
+      public int getCellState ( int day ) {
+
+            if( !isSelected( day ) ) {
+                  return MonthDayView.UNSELECTED;
+            }
+            if( mMode == MODE_MULTIPLE ) {
+                  return MonthDayView.SELECTED;
+            }
+            boolean hasPrevious = isSelected( day - 1 );
+            boolean hasNext = isSelected( day + 1 );
+            if( hasPrevious && hasNext ) {
+                  return MonthDayView.SELECTED_MIDDLE;
+            }
+            if( hasNext ) {
+                  return MonthDayView.SELECTED_START;
+            }
+            if( hasPrevious ) {
+                  return MonthDayView.SELECTED_END;
+            }
+            return MonthDayView.SELECTED;
+      }
+
+      /**
+       * 选中一天
+       *
+       * @param day 天 {@link DayKeys}
+       */
+      public void select ( int day ) {
+
+            selectRange( day, day );
+      }
+
+      /**
+       * 选中一个范围
+       *
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       */
+      public void selectRange ( int startDay, int endDay ) {
+
+            setRange( startDay, endDay, true );
+      }
+
+      /**
+       * 取消选中一个范围
+       *
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       */
+      public void deselectRange ( int startDay, int endDay ) {
+
+            setRange( startDay, endDay, false );
+      }
+
+      /**
+       * 切换一天是否选中
+       *
+       * @param day 天 {@link DayKeys}
+       */
+      public void toggle ( int day ) {
+
+            setRange( day, day, !isSelected( day ) );
+      }
+
+      /**
+       * 清除所有选中
+       */
+      public void clear ( ) {
+
+            mAnchor = mDragEnd = NO_DAY;
+            if( mDays.isEmpty() ) {
+                  return;
+            }
+            int first = getFirstSelectedDay();
+            int last = getLastSelectedDay();
+            mDays.clear();
+            markDirty( first, last );
+            dispatchIfNeed();
+      }
+
+      private void setRange ( int startDay, int endDay, boolean selected ) {
+
+            int from = Math.max( Math.min( startDay, endDay ) - BASE_DAY, 0 );
+            int to = Math.max( startDay, endDay ) - BASE_DAY;
+            if( to < from ) {
+                  return;
+            }
+            mDays.set( from, to + 1, selected );
+            markDirty( from + BASE_DAY, to + BASE_DAY );
+            dispatchIfNeed();
+      }
+
+      /**
+       * @return 选中的天数
+       */
+      public int getSelectedCount ( ) {
+
+            return mDays.cardinality();
+      }
+
+      /**
+       * @return 第一个选中的天, 没有时返回{@link Integer#MIN_VALUE}
+       */
+      public int getFirstSelectedDay ( ) {
+
+            return nextSelectedDay( BASE_DAY );
+      }
+
+      /**
+       * @return 最后一个选中的天, 没有时返回{@link Integer#MIN_VALUE}
+       */
+      public int getLastSelectedDay ( ) {
+
+            int length = mDays.length();
+            return length == 0 ? NO_DAY : length - 1 + BASE_DAY;
+      }
+
+      /**
+       * 用于遍历选中的天
+       *
+       * @param fromDay 从这一天开始查找,包含
+       *
+       * @return 下一个选中的天, 没有时返回{@link Integer#MIN_VALUE}
+       */
+      public int nextSelectedDay ( int fromDay ) {
+
+            int index = mDays.nextSetBit( Math.max( fromDay - BASE_DAY, 0 ) );
+            return index < 0 ? NO_DAY : index + BASE_DAY;
+      }
+
+      /**
+       * 开始批量修改,可以嵌套
+       */
+      public void beginBatch ( ) {
+
+            mBatchDepth++;
+      }
+
+      /**
+       * 结束批量修改,最外层结束时合并为一次通知
+       */
+      public void endBatch ( ) {
+
+            if( mBatchDepth > 0 ) {
+                  mBatchDepth--;
+            }
+            dispatchIfNeed();
+      }
+
+      /**
+       * 用户点击了一天,根据模式修改选中
+       *
+       * @param day 天 {@link DayKeys}
+       */
+      void onDayClicked ( int day ) {
+
+            switch( mMode ) {
+                  case MODE_MULTIPLE:
+                        toggle( day );
+                        break;
+                  case MODE_RANGE:
+                        beginBatch();
+                        if( mAnchor == NO_DAY ) {
+                              clear();
+                              select( day );
+                              mAnchor = day;
+                        } else {
+                              selectRange( mAnchor, day );
+                              mAnchor = NO_DAY;
+                        }
+                        endBatch();
+                        break;
+                  default:
+                        break;
+            }
+      }
+
+      /**
+       * 长按开始拖动选择,只在范围模式下调用;清除之前的选中,从这一天开始
+       *
+       * @param day 天 {@link DayKeys}
+       */
+      void beginDrag ( int day ) {
+
+            beginBatch();
+            clear();
+            select( day );
+            endBatch();
+            mAnchor = mDragEnd = day;
+      }
+
+      /**
+       * 拖动到新的一天,只修改新旧两个范围不同的部分,合并为一次通知,页面只更新状态变化的子view
+       *
+       * @param day 天 {@link DayKeys}
+       */
+      void dragTo ( int day ) {
+
+            if( mDragEnd == NO_DAY || day == mDragEnd ) {
+                  return;
+            }
+
+            int oldStart = Math.min( mAnchor, mDragEnd );
+            int oldEnd = Math.max( mAnchor, mDragEnd );
+            int newStart = Math.min( mAnchor, day );
+            int newEnd = Math.max( mAnchor, day );
+            mDragEnd = day;
+
+            beginBatch();
+            if( oldStart < newStart ) {
+                  deselectRange( oldStart, Math.min( oldEnd, newStart - 1 ) );
+            }
+            if( oldEnd > newEnd ) {
+                  deselectRange( Math.max( oldStart, newEnd + 1 ), oldEnd );
+            }
+            if( newStart < oldStart ) {
+                  selectRange( newStart, Math.min( newEnd, oldStart - 1 ) );
+            }
+            if( newEnd > oldEnd ) {
+                  selectRange( Math.max( newStart, oldEnd + 1 ), newEnd );
+            }
+            endBatch();
+      }
+
+      /**
+       * 拖动结束,范围已经完成,下一次点击重新开始
+       */
+      void endDrag ( ) {
+
+            mAnchor = mDragEnd = NO_DAY;
+      }
+
+      /**
+       * 状态与相邻的天有关,所以范围向两侧各扩大一天
+       */
+      private void markDirty ( int startDay, int endDay ) {
+
+            mDirtyStart = Math.min( mDirtyStart, startDay - 1 );
+            mDirtyEnd = Math.max( mDirtyEnd, endDay + 1 );
+      }
+
+      private void dispatchIfNeed ( ) {
+
+            if( mBatchDepth > 0 || mDirtyStart > mDirtyEnd ) {
+                  return;
+            }
+            int startDay = mDirtyStart;
+            int endDay = mDirtyEnd;
+            mDirtyStart = Integer.MAX_VALUE;
+            mDirtyEnd = Integer.MIN_VALUE;
+
+            mLayout.notifySelectionChanged( startDay, endDay );
+            if( mOnSelectionChangedListener != null ) {
+                  mOnSelectionChangedListener.onSelectionChanged( this, startDay, endDay );
+            }
+      }
+
+      /**
+       * 选中变化,批量修改时只回调一次
+       */
+      public interface OnSelectionChangedListener {
+
+            /**
+             * @param selection 选中的日期
+             * @param startDay 变化范围第一天 {@link DayKeys}
+             * @param endDay 变化范围最后一天 {@link DayKeys},包含
+             */
+            void onSelectionChanged ( DaySelection selection, int startDay, int endDay );
+      }
+}
@@ -0,0 +1,20 @@
+package tech.liujin.calendar.month;
+
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 为页面提供跨越多天的事件,计算出的分行结果按照页面范围缓存,数据变化之后需要调用{@link MonthLayout#notifyDaysChanged(int, int)}
+ *
+ * @author Liujin 2019/4/29:09:48:33
+ */
+public interface DaySpanSource {
+
+      /**
+       * 添加与该范围有重叠的事件
+       *
+       * @param firstDay 范围内第一天 {@link DayKeys}
+       * @param dayCount 天数
+       * @param out 添加到这里,{@link DaySpans#add(int, int, int)}
+       */
+      void fillSpans ( int firstDay, int dayCount, DaySpans out );
+}
@@ -0,0 +1,76 @@
+package tech.liujin.calendar.month;
+
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 跨越多天的事件列表,使用int数组保存开始日期,结束日期以及颜色,由{@link DaySpanSource}填充
+ *
+ * @author Liujin 2019/4/29:09:48:33
+ */
+public class DaySpans {
+
+      private int[] mStarts = new int[ 16 ];
+      private int[] mEnds   = new int[ 16 ];
+      private int[] mColors = new int[ 16 ];
+      private int   mSize;
+
+      /**
+       * 清空,准备重新填充
+       */
+      void reset ( ) {
+
+            mSize = 0;
+      }
+
+      /**
+       * 添加一个事件
+       *
+       * @param startDay 开始日期 {@link DayKeys}
+       * @param endDay 结束日期 {@link DayKeys},包含
+       * @param color 颜色
+       */
+      public void add ( int startDay, int endDay, int color ) {
+
+            if( endDay < startDay ) {
+                  return;
+            }
+
+            if( mSize == mStarts.length ) {
+                  int capacity = mSize * 2;
+                  mStarts = grow( mStarts, capacity );
+                  mEnds = grow( mEnds, capacity );
+                  mColors = grow( mColors, capacity );
+            }
+            mStarts[ mSize ] = startDay;
+            mEnds[ mSize ] = endDay;
+            mColors[ mSize ] = color;
+            mSize++;
+      }
+
+      private static int[] grow ( int[] array, int capacity ) {
+
+            int[] result = new int[ capacity ];
+            System.arraycopy( array, 0, result, 0, array.length );
+            return result;
+      }
+
+      public int size ( ) {
+
+            return mSize;
+      }
+
+      public int getStart ( int index ) {
+
+            return mStarts[ index ];
+      }
+
+      public int getEnd ( int index ) {
+
+            return mEnds[ index ];
+      }
+
+      public int getColor ( int index ) {
+
+            return mColors[ index ];
+      }
+}
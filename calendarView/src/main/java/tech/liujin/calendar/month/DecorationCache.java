@@ -0,0 +1,151 @@
+package tech.liujin.calendar.month;
+
+import android.util.LruCache;
+import java.util.Calendar;
+import java.util.Map;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 位于{@link DayDecorationSource}与页面绑定之间的装饰数据缓存,以月份以及每周起始为键,
+ * 按照字节数限制大小,超出后淘汰最久没有使用的月份;来回翻页时重新绑定页面不需要再次查询数据源
+ *
+ * @author Liujin 2019/4/28:15:20:06
+ */
+public class DecorationCache {
+
+      /**
+       * 默认缓存大小,每个月约500字节
+       */
+      public static final int DEFAULT_MAX_BYTES = 64 * 1024;
+
+      /**
+       * 月份以及每周起始 -> 数据
+       */
+      private LruCache<Integer, DayDecorations> mCache;
+
+      DecorationCache ( int maxBytes ) {
+
+            mCache = new DecorationLruCache( maxBytes );
+      }
+
+      /**
+       * 页面第一天是周一还是周日就可以区分每周起始
+       *
+       * @param firstDay 页面第一天 {@link DayKeys}
+       *
+       * @return 键
+       */
+      private static int keyOf ( int firstDay ) {
+
+            /* 页面第一天最多在本月第一天之前6天 */
+            int monthKey = DayKeys.getMonthKey( firstDay + 6 );
+            boolean isFirstDayMonday = DayKeys.getDayOfWeek( firstDay ) == Calendar.MONDAY;
+            return monthKey * 2 + ( isFirstDayMonday ? 1 : 0 );
+      }
+
+      /**
+       * 优先使用缓存填充,没有缓存时从数据源获取并且缓存
+       *
+       * @param source 数据源
+       * @param firstDay 页面第一天 {@link DayKeys}
+       * @param out 填充到这里
+       */
+      void fill ( DayDecorationSource source, int firstDay, DayDecorations out ) {
+
+            int key = keyOf( firstDay );
+            DayDecorations cached = mCache.get( key );
+            if( cached != null && cached.getFirstDay() == firstDay ) {
+                  out.copyFrom( cached );
+                  return;
+            }
+
+            source.fillDecorations( firstDay, out.getDayCount(), out );
+
+            /* 异步数据源还没有加载完成的数据不缓存 */
+            if( !out.isPending() ) {
+                  DayDecorations copy = new DayDecorations( MonthPage.CELL_COUNT );
+                  copy.copyFrom( out );
+                  mCache.put( key, copy );
+            }
+      }
+
+      /**
+       * 删除包含该范围内任意一天的月份
+       *
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       */
+      public void invalidate ( int startDay, int endDay ) {
+
+            Map<Integer, DayDecorations> snapshot = mCache.snapshot();
+            for( Map.Entry<Integer, DayDecorations> entry : snapshot.entrySet() ) {
+                  DayDecorations decorations = entry.getValue();
+                  if( decorations.getFirstDay() <= endDay && decorations.getLastDay() >= startDay ) {
+                        mCache.remove( entry.getKey() );
+                  }
+            }
+      }
+
+      /**
+       * 删除全部缓存
+       */
+      public void clear ( ) {
+
+            mCache.evictAll();
+      }
+
+      /**
+       * 修改缓存大小,超出部分会被淘汰
+       *
+       * @param maxBytes 最大字节数
+       */
+      public void resize ( int maxBytes ) {
+
+            mCache.resize( maxBytes );
+      }
+
+      /**
+       * @return 当前占用的字节数
+       */
+      public int getByteCount ( ) {
+
+            return mCache.size();
+      }
+
+      public int getHitCount ( ) {
+
+            return mCache.hitCount();
+      }
+
+      public int getMissCount ( ) {
+
+            return mCache.missCount();
+      }
+
+      /**
+       * @return 命中率, 没有查询过时为0
+       */
+      public float getHitRate ( ) {
+
+            int hit = mCache.hitCount();
+            int total = hit + mCache.missCount();
+            return total == 0 ? 0 : hit / (float) total;
+      }
+
+      /**
+       * 按照字节数计算缓存大小
+       */
+      private static class DecorationLruCache extends LruCache<Integer, DayDecorations> {
+
+            private DecorationLruCache ( int maxSize ) {
+
+                  super( maxSize );
+            }
+
+            @Override
+            protected int sizeOf ( Integer key, DayDecorations value ) {
+
+                  return value.getByteCount();
+            }
+      }
+}
@@ -0,0 +1,244 @@
+package tech.liujin.calendar.month;
+
+import android.view.HapticFeedbackConstants;
+import android.view.MotionEvent;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+
+/**
+ * 范围模式下长按日期开始拖动选择:触摸位置直接换算为子view的位置,不需要遍历子view;
+ * 只有经过的格子变化时才修改选中,并且只修改新旧范围不同的天,页面只重绘状态变化的子view
+ * <p>
+ * 拖动到左右边缘停留时翻到相邻的页面,每次翻页都等待pager停止之后再继续,不会连续滑过多页
+ *
+ * @author Liujin 2019/5/3:10:18:42
+ */
+class DragSelectHelper {
+
+      /**
+       * 在边缘停留多久翻页,毫秒
+       */
+      private static final int AUTO_PAGE_DELAY = 400;
+
+      private MonthLayout mLayout;
+      private int         mTouchSlop;
+
+      /**
+       * 按下以及最后的位置,相对于{@link MonthLayout}
+       */
+      private float       mDownX;
+      private float       mDownY;
+      private float       mLastX;
+      private float       mLastY;
+      /**
+       * 按下事件的拷贝,开始拖动时用于取消pager的手势
+       */
+      private MotionEvent mDownEvent;
+
+      private boolean isLongPressPending;
+      private boolean isDragging;
+
+      /**
+       * 上一次所在的页面和子view,没有变化时不需要修改选中
+       */
+      private MonthPage mLastPage;
+      private int       mLastCell = MonthPage.NO_CELL;
+      /**
+       * 正在停留的边缘,-1:左侧,1:右侧,0:不在边缘
+       */
+      private int       mEdgeDirection;
+
+      private Runnable mLongPress = new LongPressRunnable();
+      private Runnable mAutoPage  = new AutoPageRunnable();
+
+      DragSelectHelper ( MonthLayout layout ) {
+
+            mLayout = layout;
+            mTouchSlop = ViewConfiguration.get( layout.getContext() ).getScaledTouchSlop();
+      }
+
+      /**
+       * @param ev 触摸事件
+       *
+       * @return true:正在拖动选择,已经消费事件
+       */
+      boolean handleMotionEvent ( MotionEvent ev ) {
+
+            switch( ev.getAction() ) {
+                  case MotionEvent.ACTION_DOWN:
+                        cancel();
+                        if( mLayout.getDaySelection().getMode() != DaySelection.MODE_RANGE ) {
+                              return false;
+                        }
+                        mLastX = mDownX = ev.getX();
+                        mLastY = mDownY = ev.getY();
+                        mDownEvent = MotionEvent.obtain( ev );
+                        isLongPressPending = true;
+                        mLayout.postDelayed( mLongPress, ViewConfiguration.getLongPressTimeout() );
+                        return false;
+
+                  case MotionEvent.ACTION_MOVE:
+                        mLastX = ev.getX();
+                        mLastY = ev.getY();
+                        if( isDragging ) {
+                              dragToLastPoint();
+                              updateEdge();
+                              return true;
+                        }
+                        if( isLongPressPending
+                            && ( Math.abs( mLastX - mDownX ) > mTouchSlop || Math.abs( mLastY - mDownY ) > mTouchSlop ) ) {
+                              cancel();
+                        }
+                        return false;
+
+                  case MotionEvent.ACTION_UP:
+                  case MotionEvent.ACTION_CANCEL:
+                        boolean wasDragging = isDragging;
+                        cancel();
+                        return wasDragging;
+
+                  default:
+                        return isDragging;
+            }
+      }
+
+      /**
+       * pager停止滚动,手指下面已经是新的页面
+       */
+      void onPageSettled ( ) {
+
+            if( !isDragging ) {
+                  return;
+            }
+            dragToLastPoint();
+            if( mEdgeDirection != 0 ) {
+                  mLayout.removeCallbacks( mAutoPage );
+                  mLayout.postDelayed( mAutoPage, AUTO_PAGE_DELAY );
+            }
+      }
+
+      /**
+       * 结束拖动以及等待中的长按
+       */
+      void cancel ( ) {
+
+            mLayout.removeCallbacks( mLongPress );
+            mLayout.removeCallbacks( mAutoPage );
+            if( isDragging ) {
+                  mLayout.getDaySelection().endDrag();
+            }
+            if( mDownEvent != null ) {
+                  mDownEvent.recycle();
+                  mDownEvent = null;
+            }
+            isLongPressPending = isDragging = false;
+            mLastPage = null;
+            mLastCell = MonthPage.NO_CELL;
+            mEdgeDirection = 0;
+      }
+
+      /**
+       * 长按时间到达,按下位置有日期时开始拖动
+       */
+      private void startDrag ( ) {
+
+            isLongPressPending = false;
+            MonthPage page = mLayout.getCurrentPage();
+            if( page == null || mLayout.isScrolling() || page.isAnimatingOrMoving() ) {
+                  return;
+            }
+            int cell = findCellAt( page, mLastX, mLastY );
+            if( cell == MonthPage.NO_CELL ) {
+                  return;
+            }
+
+            /* pager以及子view不再接收这次手势,子view也不会触发点击 */
+            mDownEvent.setAction( MotionEvent.ACTION_CANCEL );
+            mLayout.cancelPagerTouchEvent( mDownEvent );
+            ViewParent parent = mLayout.getParent();
+            if( parent != null ) {
+                  parent.requestDisallowInterceptTouchEvent( true );
+            }
+            mLayout.performHapticFeedback( HapticFeedbackConstants.LONG_PRESS );
+
+            isDragging = true;
+            mLastPage = page;
+            mLastCell = cell;
+            mLayout.getDaySelection().beginDrag( page.getFirstCellDay() + cell );
+      }
+
+      /**
+       * 只有所在的格子变化时才修改选中;滚动中页面位置还在变化,等待停止后再计算
+       */
+      private void dragToLastPoint ( ) {
+
+            if( mLayout.isScrolling() ) {
+                  return;
+            }
+            MonthPage page = mLayout.getCurrentPage();
+            if( page == null ) {
+                  return;
+            }
+            int cell = findCellAt( page, mLastX, mLastY );
+            if( cell == MonthPage.NO_CELL || ( page == mLastPage && cell == mLastCell ) ) {
+                  return;
+            }
+            mLastPage = page;
+            mLastCell = cell;
+            mLayout.getDaySelection().dragTo( page.getFirstCellDay() + cell );
+      }
+
+      private int findCellAt ( MonthPage page, float x, float y ) {
+
+            return page.findCellAt( x + mLayout.getScrollX() - page.getLeft(), y - page.getTop() );
+      }
+
+      /**
+       * 进入边缘之后等待一段时间翻页,离开边缘时取消
+       */
+      private void updateEdge ( ) {
+
+            int edge = mLayout.getCellWidth() / 2;
+            int direction = 0;
+            if( mLastX < edge ) {
+                  direction = -1;
+            } else if( mLastX > mLayout.getWidth() - edge ) {
+                  direction = 1;
+            }
+
+            if( direction == mEdgeDirection ) {
+                  return;
+            }
+            mEdgeDirection = direction;
+            mLayout.removeCallbacks( mAutoPage );
+            if( direction != 0 ) {
+                  mLayout.postDelayed( mAutoPage, AUTO_PAGE_DELAY );
+            }
+      }
+
+      private class LongPressRunnable implements Runnable {
+
+            @Override
+            public void run ( ) {
+
+                  if( isLongPressPending ) {
+                        startDrag();
+                  }
+            }
+      }
+
+      /**
+       * 翻到相邻页面;pager还在滚动时不翻页,停止后{@link #onPageSettled()}会重新等待
+       */
+      private class AutoPageRunnable implements Runnable {
+
+            @Override
+            public void run ( ) {
+
+                  if( !isDragging || mEdgeDirection == 0 || mLayout.isScrolling() ) {
+                        return;
+                  }
+                  mLayout.setCurrentItem( mLayout.getCurrentItem() + mEdgeDirection, true );
+            }
+      }
+}
@@ -0,0 +1,88 @@
+package tech.liujin.calendar.month;
+
+/**
+ * 热力图颜色:创建时在两个颜色之间插值出固定数量的颜色,绘制时根据占用比例直接取用
+ *
+ * @author Liujin 2019/5/2:10:12:51
+ */
+public class HeatMapRamp {
+
+      /**
+       * 默认颜色数量
+       */
+      public static final int DEFAULT_STEPS = 8;
+
+      /**
+       * 默认颜色,由浅到深的橙色
+       */
+      public static final int DEFAULT_LOW_COLOR  = 0x26FF9800;
+      public static final int DEFAULT_HIGH_COLOR = 0xB3E65100;
+
+      private int[] mColors;
+      /**
+       * 占满一天的分钟数,例如只统计工作时间时为480
+       */
+      private int   mCapacityMinutes;
+
+      public HeatMapRamp ( ) {
+
+            this( DEFAULT_LOW_COLOR, DEFAULT_HIGH_COLOR );
+      }
+
+      /**
+       * @param lowColor 占用最少时的颜色
+       * @param highColor 占满时的颜色
+       */
+      public HeatMapRamp ( int lowColor, int highColor ) {
+
+            this( lowColor, highColor, DEFAULT_STEPS, BusyIntervals.MINUTES_PER_DAY );
+      }
+
+      /**
+       * @param lowColor 占用最少时的颜色
+       * @param highColor 占满时的颜色
+       * @param steps 颜色数量
+       * @param capacityMinutes 占满一天的分钟数
+       */
+      public HeatMapRamp ( int lowColor, int highColor, int steps, int capacityMinutes ) {
+
+            steps = Math.max( steps, 1 );
+            mCapacityMinutes = Math.max( capacityMinutes, 1 );
+            mColors = new int[ steps ];
+            for( int i = 0; i < steps; i++ ) {
+                  float fraction = steps == 1 ? 1 : (float) i / ( steps - 1 );
+                  mColors[ i ] = blend( lowColor, highColor, fraction );
+            }
+      }
+
+      private static int blend ( int from, int to, float fraction ) {
+
+            int result = 0;
+            for( int shift = 0; shift < 32; shift += 8 ) {
+                  int start = ( from >>> shift ) & 0xFF;
+                  int end = ( to >>> shift ) & 0xFF;
+                  result |= ( start + Math.round( ( end - start ) * fraction ) ) << shift;
+            }
+            return result;
+      }
+
+      /**
+       * @param busyMinutes 一天占用的分钟数
+       *
+       * @return 颜色, 没有占用时为0
+       */
+      public int getColor ( int busyMinutes ) {
+
+            if( busyMinutes <= 0 ) {
+                  return 0;
+            }
+            int last = mColors.length - 1;
+            int index = (int) ( (long) busyMinutes * last / mCapacityMinutes );
+            return mColors[ Math.min( index, last ) ];
+      }
+
+      public int getCapacityMinutes ( ) {
+
+            return mCapacityMinutes;
+      }
+}
@@ -25,17 +25,34 @@ public class MonthDayView extends View {
        * 选中状态
        */
       public static final int SELECTED   = 12;
+      /**
+       * 选中范围的第一天
+       */
+      public static final int SELECTED_START  = 13;
+      /**
+       * 选中范围中间的天
+       */
+      public static final int SELECTED_MIDDLE = 14;
+      /**
+       * 选中范围的最后一天
+       */
+      public static final int SELECTED_END    = 15;
 
       /**
        * 显示的日期
        */
       private Date mDate;
+      /**
+       * 绘制笔,只在主线程绘制时使用,每次绘制前都会重新设置属性,所以所有实例共用一个
+       */
+      private static Paint sPaint;
+
       /**
        * 绘制笔
        */
       private Paint mPaint;
       /**
-       * 当前状态 {@link #UNSELECTED}{@link #SELECTED}
+       * 当前状态 {@link #UNSELECTED}{@link #SELECTED}{@link #SELECTED_START}{@link #SELECTED_MIDDLE}{@link #SELECTED_END}
        */
       private int mState;
 
@@ -43,6 +60,29 @@ public class MonthDayView extends View {
        * 选中时颜色
        */
       private int mSelectColor = Color.parseColor( "#C94B87B5" );
+      /**
+       * 装饰没有设置颜色时使用的颜色
+       */
+      private int mDecorationColor = Color.GRAY;
+
+      /**
+       * 所在页面的装饰数据,为null时没有装饰
+       */
+      private DayDecorations mDecorations;
+      /**
+       * 该天在{@link #mDecorations}中的索引
+       */
+      private int            mDecorationIndex;
+      /**
+       * 上次绑定时该天的装饰,数据没有变化时不需要重绘
+       */
+      private int            mBoundCount;
+      private int            mBoundColor;
+      private int            mBoundFlags;
+      /**
+       * 热力图颜色,0:不绘制
+       */
+      private int            mHeatColor;
 
       public MonthDayView ( Context context ) {
 
@@ -52,7 +92,10 @@ public class MonthDayView extends View {
 
       private void init ( ) {
 
-            mPaint = new Paint( Paint.ANTI_ALIAS_FLAG );
+            if( sPaint == null ) {
+                  sPaint = new Paint( Paint.ANTI_ALIAS_FLAG );
+            }
+            mPaint = sPaint;
       }
 
       @Override
@@ -79,12 +122,58 @@ public class MonthDayView extends View {
       @Override
       protected void onDraw ( Canvas canvas ) {
 
+            if( mHeatColor != 0 ) {
+                  drawHeat( canvas, mHeatColor );
+            }
+
             if( mState == UNSELECTED ) {
                   drawUnSelected( canvas );
-                  return;
+            } else if( mState == SELECTED ) {
+                  drawSelected( canvas );
+            } else {
+                  drawRangeSelected( canvas, mState );
             }
 
-            drawSelected( canvas );
+            if( mDecorations != null ) {
+                  drawDecoration( canvas, mDecorations, mDecorationIndex );
+            }
+      }
+
+      /**
+       * 设置装饰数据,数据属于页面,所有子view共用
+       *
+       * @param decorations 装饰数据,null:没有装饰
+       * @param index 该天在装饰数据中的索引
+       */
+      void bindDecoration ( DayDecorations decorations, int index ) {
+
+            int count = decorations == null ? 0 : decorations.getCount( index );
+            int color = decorations == null ? 0 : decorations.getColor( index );
+            int flags = decorations == null ? 0 : decorations.getFlags( index );
+            boolean isChanged = ( decorations == null ) != ( mDecorations == null )
+                || count != mBoundCount || color != mBoundColor || flags != mBoundFlags;
+
+            mDecorations = decorations;
+            mDecorationIndex = index;
+            mBoundCount = count;
+            mBoundColor = color;
+            mBoundFlags = flags;
+            if( isChanged ) {
+                  invalidate();
+            }
+      }
+
+      /**
+       * 设置热力图颜色
+       *
+       * @param heatColor 颜色,0:不绘制
+       */
+      void bindHeatColor ( int heatColor ) {
+
+            if( mHeatColor != heatColor ) {
+                  mHeatColor = heatColor;
+                  invalidate();
+            }
       }
 
       /**
@@ -106,13 +195,69 @@ public class MonthDayView extends View {
             return mDate;
       }
 
+      /**
+       * 绘制装饰:按照事件数量绘制最多3个圆点,{@link DayDecorations#FLAG_BADGE}时绘制角标;
+       * 只读取数组,不创建对象,子类可以重写以绘制自定义的标记
+       *
+       * @param decorations 页面的装饰数据
+       * @param index 该天在装饰数据中的索引
+       */
+      protected void drawDecoration ( Canvas canvas, DayDecorations decorations, int index ) {
+
+            int count = decorations.getCount( index );
+            int flags = decorations.getFlags( index );
+            if( count <= 0 && flags == 0 ) {
+                  return;
+            }
+
+            int color = decorations.getColor( index );
+            mPaint.setColor( color == 0 ? mDecorationColor : color );
+
+            int width = getWidth();
+            int height = getHeight();
+            float radius = Math.min( width, height ) * 0.04f;
+
+            if( count > 0 ) {
+                  int dotCount = Math.min( count, 3 );
+                  float gap = radius * 3;
+                  float x = width * 0.5f - gap * ( dotCount - 1 ) * 0.5f;
+                  float y = height * 0.82f;
+                  for( int i = 0; i < dotCount; i++ ) {
+                        canvas.drawCircle( x + gap * i, y, radius, mPaint );
+                  }
+            }
+
+            if( ( flags & DayDecorations.FLAG_BADGE ) != 0 ) {
+                  canvas.drawCircle( width * 0.8f, height * 0.2f, radius * 1.5f, mPaint );
+            }
+      }
+
+      /**
+       * 绘制热力图背景,在其他内容之前绘制,子类可以重写以改变形状
+       *
+       * @param heatColor {@link HeatMapRamp}中的颜色
+       */
+      protected void drawHeat ( Canvas canvas, int heatColor ) {
+
+            mPaint.setColor( heatColor );
+            canvas.drawRect( 0, 0, getWidth(), getHeight(), mPaint );
+      }
+
+      /**
+       * @param decorationColor 装饰没有设置颜色时使用的颜色
+       */
+      public void setDecorationColor ( int decorationColor ) {
+
+            mDecorationColor = decorationColor;
+      }
+
       /**
        * 绘制未选中状态
        */
       protected void drawUnSelected ( Canvas canvas ) {
 
-            int height = canvas.getHeight();
-            int width = canvas.getWidth();
+            int height = getHeight();
+            int width = getWidth();
             int widthCenter = width / 2;
 
             float bigTextSize = Math.min( width, height ) * 0.4f;
@@ -126,13 +271,51 @@ public class MonthDayView extends View {
             );
       }
 
+      /**
+       * 绘制选中范围中的一天:中间的天绘制横跨整个宽度的条,开始和结束的天只绘制一半并且绘制圆
+       *
+       * @param state {@link #SELECTED_START}{@link #SELECTED_MIDDLE}{@link #SELECTED_END}
+       */
+      protected void drawRangeSelected ( Canvas canvas, int state ) {
+
+            int height = getHeight();
+            int width = getWidth();
+            float radius = Math.min( height - 20, width - 20 ) >> 1;
+            float centerX = width >> 1;
+            float centerY = height >> 1;
+
+            mPaint.setColor( mSelectColor );
+            float left = state == SELECTED_START ? centerX : 0;
+            float right = state == SELECTED_END ? centerX : width;
+            canvas.drawRect( left, centerY - radius, right, centerY + radius, mPaint );
+
+            /* 只绘制条之外的半圆,选中颜色半透明,重叠部分会更深 */
+            if( state != SELECTED_MIDDLE ) {
+                  int save = canvas.save();
+                  if( state == SELECTED_START ) {
+                        canvas.clipRect( 0, 0, centerX, height );
+                  } else {
+                        canvas.clipRect( centerX, 0, width, height );
+                  }
+                  canvas.drawCircle( centerX, centerY, radius, mPaint );
+                  canvas.restoreToCount( save );
+            }
+
+            float bigTextSize = Math.min( width, height ) * 0.4f;
+            mPaint.setTextSize( bigTextSize );
+            mPaint.setTextAlign( Align.CENTER );
+            mPaint.setColor( Color.BLACK );
+            int day = CalendarUtils.getDayOfMonth( mDate );
+            canvas.drawText( String.valueOf( day ), centerX, centerY + BaseLineUtils.getBaselineOffset( mPaint ), mPaint );
+      }
+
       /**
        * 绘制选中状态
        */
       protected void drawSelected ( Canvas canvas ) {
 
-            int height = canvas.getHeight();
-            int width = canvas.getWidth();
+            int height = getHeight();
+            int width = getWidth();
 
             int widthCenter = width / 2;
 
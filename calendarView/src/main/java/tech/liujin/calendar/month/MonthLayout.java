@@ -2,17 +2,26 @@ package tech.liujin.calendar.month;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Looper;
+import android.os.MessageQueue.IdleHandler;
+import android.util.LruCache;
+import android.util.SparseArray;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.viewpager.widget.PagerAdapter;
 import androidx.viewpager.widget.ViewPager;
 import java.util.Date;
-import java.util.LinkedList;
 import tech.liujin.calendar.CalendarView;
 import tech.liujin.calendar.CalendarView.OnDateChangeListener;
+import tech.liujin.calendar.CalendarView.OnPageSettledListener;
 import tech.liujin.calendar.util.CalendarUtils;
+import tech.liujin.calendar.util.DayKeys;
 
 /**
  * 用于显示时间的页面
@@ -22,6 +31,24 @@ import tech.liujin.calendar.util.CalendarUtils;
 @SuppressLint("ViewConstructor")
 public class MonthLayout extends ViewPager {
 
+      /**
+       * 默认一次惯性滑动最多滑过的页数
+       */
+      public static final int DEFAULT_MAX_FLING_PAGES = 12;
+      private static final int NO_JUMP = -1;
+      /**
+       * 默认跨越多天的事件最多使用的行数
+       */
+      public static final int DEFAULT_MAX_SPAN_LANES = 3;
+      /**
+       * 缓存多少个页面的跨越多天的事件分行结果
+       */
+      private static final int SPAN_LAYOUT_CACHE_SIZE = 12;
+      /**
+       * 默认创建天的view的工厂,所有布局共用
+       */
+      private static final MonthDayViewFactory DEFAULT_ITEM_FACTORY = new DefaultItemFactory();
+
       /**
        * 父布局
        */
@@ -42,6 +69,18 @@ public class MonthLayout extends ViewPager {
        * 监听日期变化
        */
       private OnDateChangeListener     mOnDateChangeListener;
+      /**
+       * 监听页面停止滚动
+       */
+      private OnPageSettledListener    mOnPageSettledListener;
+      /**
+       * 页面代数,每次选中新页面加1
+       */
+      private long                     mPageGeneration;
+      /**
+       * 已经回调过{@link #mOnPageSettledListener}的代数
+       */
+      private long                     mSettledGeneration;
       /**
        * 计算页面需要使用的基础尺寸
        */
@@ -54,15 +93,103 @@ public class MonthLayout extends ViewPager {
        * 页面高度变化时使用的策略
        */
       private PageHeightChangeStrategy mPageHeightChangeStrategy;
+      /**
+       * 提供每天的装饰数据,为null时没有装饰
+       */
+      private DayDecorationSource      mDayDecorationSource;
+      /**
+       * 装饰数据缓存,为null时每次绑定都从数据源获取
+       */
+      private DecorationCache          mDecorationCache;
+      /**
+       * 提供跨越多天的事件,为null时没有
+       */
+      private DaySpanSource                 mDaySpanSource;
+      /**
+       * 页面第一天 -> 跨越多天的事件的分行结果
+       */
+      private LruCache<Integer, SpanLayout> mSpanLayouts;
+      /**
+       * 获取跨越多天的事件时复用
+       */
+      private DaySpans                      mSpanBuffer;
+      /**
+       * 跨越多天的事件最多使用的行数
+       */
+      private int                           mMaxSpanLanes = DEFAULT_MAX_SPAN_LANES;
+      /**
+       * 提供热力图的占用时间段,为null时不显示热力图
+       */
+      private DayOccupancySource            mDayOccupancySource;
+      /**
+       * 热力图颜色
+       */
+      private HeatMapRamp                   mHeatMapRamp;
+      /**
+       * 获取占用时间段时复用
+       */
+      private BusyIntervals                 mBusyBuffer;
+      /**
+       * 选中的日期
+       */
+      private DaySelection                  mDaySelection = new DaySelection( this );
 
       /**
-       * 缓存的页面的索引,用于判断是否过期,简化判断
+       * 相邻页面快照,为null时不使用快照
        */
-      private int       mCachedCurrentItem = -1;
+      private PageSnapshotCache        mSnapshotCache;
+
+      /**
+       * 回收的页面
+       */
+      private MonthPagePool            mPagePool;
+      /**
+       * 首帧绘制之后预先创建的页面数量
+       */
+      private int                      mPagePrewarmCount = 1;
+      /**
+       * 是否已经绘制过
+       */
+      private boolean                  isFirstDrawn;
+      /**
+       * true:首帧之前只为当前页面创建子view,其他页面的子view在首帧之后空闲时创建
+       */
+      private boolean                  isAsyncBuildEnabled;
+      /**
+       * 首帧之后空闲时为页面创建子view
+       */
+      private CellBuilder              mCellBuilder;
+
       /**
-       * 缓存的当前页面,简化判断
+       * 位置 -> 已经添加到pager中的页面,在{@link PagerMonthAdapter}中维护,查找页面不需要遍历子view
        */
-      private MonthPage mCachedCurrentPage;
+      private SparseArray<MonthPage> mAttachedPages = new SparseArray<>( 4 );
+
+      /**
+       * true:根据速度一次滑过多页
+       */
+      private boolean isMultiPageFlingEnabled;
+      /**
+       * 一次惯性滑动最多滑过的页数
+       */
+      private int     mMaxFlingPages   = DEFAULT_MAX_FLING_PAGES;
+      /**
+       * 每滑过一页需要的速度,像素/秒
+       */
+      private float   mPageFlingVelocity;
+      /**
+       * 正在跳转到的位置,跳转时只绑定该位置的页面,{@link #NO_JUMP}:没有跳转
+       */
+      private int     mJumpTarget      = NO_JUMP;
+
+      /**
+       * 按照翻页方向预取页面,为null时不预取
+       */
+      private PagePrefetcher mPrefetcher;
+      /**
+       * 长按拖动选择范围,为null时不能拖动选择
+       */
+      private DragSelectHelper mDragSelectHelper;
 
       /**
        * 只能new出来不能再布局中使用
@@ -82,6 +209,9 @@ public class MonthLayout extends ViewPager {
 
             int position = Integer.MAX_VALUE >> 1;
             mSource = new DateSource( new Date(), position );
+            mPagePool = new MonthPagePool( MonthPagePool.DEFAULT_CAPACITY );
+            mMonthDayViewFactory = DEFAULT_ITEM_FACTORY;
+            mPagePool.addFactoryUser( mMonthDayViewFactory );
 
             PagerMonthAdapter adapter = new PagerMonthAdapter();
             setAdapter( adapter );
@@ -91,31 +221,681 @@ public class MonthLayout extends ViewPager {
             addOnPageChangeListener( mScroller );
 
             mExpandFoldPage = new ExpandFoldPage();
+            ViewConfiguration configuration = ViewConfiguration.get( getContext() );
+            mPageFlingVelocity = configuration.getScaledMinimumFlingVelocity() * 20;
             mCellSize = new CellSize();
-            mMonthDayViewFactory = new DefaultItemFactory();
             mPageHeightChangeStrategy = new DefaultPageHeightChangeStrategy();
       }
 
       /**
        * 设置生成显示天信息的view的工厂
        *
-       * @param monthDayViewFactory 生成天的view的工厂
+       * @param monthDayViewFactory 生成天的view的工厂
+       */
+      public void setMonthDayViewFactory ( MonthDayViewFactory monthDayViewFactory ) {
+
+            if( monthDayViewFactory == null ) {
+                  monthDayViewFactory = DEFAULT_ITEM_FACTORY;
+            }
+            if( monthDayViewFactory == mMonthDayViewFactory ) {
+                  return;
+            }
+
+            /* 旧工厂创建的页面不再需要,没有其他布局使用时从缓存池中丢弃 */
+            mPagePool.addFactoryUser( monthDayViewFactory );
+            mPagePool.removeFactoryUser( mMonthDayViewFactory );
+            mMonthDayViewFactory = monthDayViewFactory;
+            if( mPrefetcher != null ) {
+                  mPrefetcher.clear();
+            }
+      }
+
+      public MonthDayViewFactory getMonthDayViewFactory ( ) {
+
+            return mMonthDayViewFactory;
+      }
+
+      /**
+       * 设置每天的装饰数据源,每次绑定页面时按照页面显示的范围获取一次,绘制时直接读取
+       *
+       * @param source 数据源,null:没有装饰
+       */
+      public void setDayDecorationSource ( DayDecorationSource source ) {
+
+            mDayDecorationSource = source;
+            notifyDecorationsChanged();
+      }
+
+      public DayDecorationSource getDayDecorationSource ( ) {
+
+            return mDayDecorationSource;
+      }
+
+      /**
+       * 设置跨越多天的事件数据源,事件在页面上绘制为连续的条,在周的边界换行,
+       * 分行结果按照页面范围缓存,数据变化后调用{@link #notifyDaysChanged(int, int)}
+       *
+       * @param source 数据源,null:不显示
+       */
+      public void setDaySpanSource ( DaySpanSource source ) {
+
+            mDaySpanSource = source;
+            if( source == null ) {
+                  mSpanLayouts = null;
+                  mSpanBuffer = null;
+            } else if( mSpanLayouts == null ) {
+                  mSpanLayouts = new LruCache<>( SPAN_LAYOUT_CACHE_SIZE );
+                  mSpanBuffer = new DaySpans();
+            } else {
+                  mSpanLayouts.evictAll();
+            }
+            notifyDecorationsChanged();
+      }
+
+      public DaySpanSource getDaySpanSource ( ) {
+
+            return mDaySpanSource;
+      }
+
+      /**
+       * 设置跨越多天的事件最多使用的行数,超出的事件不显示
+       *
+       * @param maxLanes 行数
+       */
+      public void setMaxSpanLanes ( int maxLanes ) {
+
+            mMaxSpanLanes = Math.max( maxLanes, 0 );
+            notifyDecorationsChanged();
+      }
+
+      /**
+       * 设置热力图数据源,每天按照占用的分钟数在绘制天时填充背景色
+       *
+       * @param source 数据源,null:不显示热力图
+       */
+      public void setDayOccupancySource ( DayOccupancySource source ) {
+
+            mDayOccupancySource = source;
+            if( source == null ) {
+                  mBusyBuffer = null;
+            } else {
+                  if( mBusyBuffer == null ) {
+                        mBusyBuffer = new BusyIntervals();
+                  }
+                  if( mHeatMapRamp == null ) {
+                        mHeatMapRamp = new HeatMapRamp();
+                  }
+            }
+            notifyDecorationsChanged();
+      }
+
+      public DayOccupancySource getDayOccupancySource ( ) {
+
+            return mDayOccupancySource;
+      }
+
+      /**
+       * @param ramp 热力图颜色
+       */
+      public void setHeatMapRamp ( HeatMapRamp ramp ) {
+
+            mHeatMapRamp = ramp;
+            notifyDecorationsChanged();
+      }
+
+      public HeatMapRamp getHeatMapRamp ( ) {
+
+            return mHeatMapRamp;
+      }
+
+      /**
+       * 计算该页面范围每天占用的分钟数
+       *
+       * @param firstDay 页面第一天 {@link DayKeys}
+       * @param outMinutes 每天占用的分钟数
+       *
+       * @return false:没有设置数据源
+       */
+      boolean fillOccupancy ( int firstDay, int[] outMinutes ) {
+
+            if( mDayOccupancySource == null ) {
+                  return false;
+            }
+            mBusyBuffer.reset();
+            mDayOccupancySource.fillBusyIntervals( firstDay, MonthPage.CELL_COUNT, mBusyBuffer );
+            mBusyBuffer.sweep( firstDay, MonthPage.CELL_COUNT, outMinutes );
+            return true;
+      }
+
+      /**
+       * @return 选中的日期, 用于设置选择模式, 修改选中以及监听变化
+       */
+      public DaySelection getDaySelection ( ) {
+
+            return mDaySelection;
+      }
+
+      /**
+       * 选中的日期变化,只更新显示这些天的子view,预取的页面和快照已经过期
+       *
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       */
+      void notifySelectionChanged ( int startDay, int endDay ) {
+
+            int size = mAttachedPages.size();
+            for( int i = 0; i < size; i++ ) {
+                  mAttachedPages.valueAt( i ).notifySelectionChanged( startDay, endDay );
+            }
+            if( mPrefetcher != null ) {
+                  mPrefetcher.release( startDay, endDay );
+            }
+            if( mSnapshotCache != null ) {
+                  mSnapshotCache.invalidate( startDay, endDay );
+                  mSnapshotCache.scheduleRender();
+            }
+      }
+
+      /**
+       * 获取该页面范围的分行结果,没有缓存时从数据源获取并计算
+       *
+       * @param firstDay 页面第一天 {@link DayKeys}
+       *
+       * @return 分行结果, 没有设置数据源时返回null
+       */
+      SpanLayout obtainSpanLayout ( int firstDay ) {
+
+            if( mDaySpanSource == null ) {
+                  return null;
+            }
+
+            SpanLayout layout = mSpanLayouts.get( firstDay );
+            if( layout == null ) {
+                  mSpanBuffer.reset();
+                  mDaySpanSource.fillSpans( firstDay, MonthPage.CELL_COUNT, mSpanBuffer );
+                  layout = new SpanLayout( firstDay );
+                  layout.compute( mSpanBuffer, MonthPage.CELL_COUNT, mMaxSpanLanes );
+                  mSpanLayouts.put( firstDay, layout );
+            }
+            return layout;
+      }
+
+      /**
+       * 设置是否缓存装饰数据,开启后以月份为单位缓存,来回翻页不需要再次查询数据源
+       *
+       * @param enabled true:开启
+       */
+      public void setDecorationCacheEnabled ( boolean enabled ) {
+
+            if( enabled ) {
+                  if( mDecorationCache == null ) {
+                        mDecorationCache = new DecorationCache( DecorationCache.DEFAULT_MAX_BYTES );
+                  }
+            } else {
+                  mDecorationCache = null;
+            }
+      }
+
+      /**
+       * 设置装饰数据缓存最多占用的字节数,会同时开启缓存
+       *
+       * @param maxBytes 最大字节数
+       */
+      public void setDecorationCacheMaxBytes ( int maxBytes ) {
+
+            if( mDecorationCache == null ) {
+                  mDecorationCache = new DecorationCache( maxBytes );
+            } else {
+                  mDecorationCache.resize( maxBytes );
+            }
+      }
+
+      /**
+       * @return 装饰数据缓存, 可以获取命中统计, 没有开启时返回null
+       */
+      public DecorationCache getDecorationCache ( ) {
+
+            return mDecorationCache;
+      }
+
+      /**
+       * 使用缓存或者数据源填充装饰数据
+       */
+      void fillDecorations ( DayDecorationSource source, int firstDay, DayDecorations out ) {
+
+            if( mDecorationCache != null ) {
+                  mDecorationCache.fill( source, firstDay, out );
+            } else {
+                  source.fillDecorations( firstDay, out.getDayCount(), out );
+            }
+      }
+
+      /**
+       * 该范围内的天的数据变化,只重绘显示这些天的子view,不重新绑定页面;
+       * 同时删除包含这些天的装饰缓存,预取的页面以及快照
+       * <p>
+       * 装饰数据源是{@link AsyncDecorationLoader}时同时通知它重新加载这些天所在的页面,
+       * 加载完成之前页面继续显示旧的装饰数据
+       *
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       */
+      public void notifyDaysChanged ( int startDay, int endDay ) {
+
+            boolean isReloading = mDayDecorationSource instanceof AsyncDecorationLoader;
+            if( isReloading ) {
+                  ( (AsyncDecorationLoader) mDayDecorationSource ).invalidate( startDay, endDay );
+            } else if( mDecorationCache != null ) {
+                  mDecorationCache.invalidate( startDay, endDay );
+            }
+            if( mSpanLayouts != null ) {
+                  for( Integer firstDay : mSpanLayouts.snapshot().keySet() ) {
+                        if( firstDay <= endDay && firstDay + MonthPage.CELL_COUNT > startDay ) {
+                              mSpanLayouts.remove( firstDay );
+                        }
+                  }
+            }
+
+            int size = mAttachedPages.size();
+            for( int i = 0; i < size; i++ ) {
+                  mAttachedPages.valueAt( i ).notifyDaysChanged( startDay, endDay, !isReloading );
+            }
+            if( mPrefetcher != null ) {
+                  mPrefetcher.release( startDay, endDay );
+            }
+            if( mSnapshotCache != null ) {
+                  mSnapshotCache.invalidate( startDay, endDay );
+                  mSnapshotCache.scheduleRender();
+            }
+      }
+
+      /**
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       *
+       * @deprecated 使用{@link #notifyDaysChanged(int, int)}
+       */
+      @Deprecated
+      public void invalidateDecorations ( int startDay, int endDay ) {
+
+            notifyDaysChanged( startDay, endDay );
+      }
+
+      /**
+       * 该范围的装饰数据加载完成,只有仍然显示该范围的页面(包括预取的页面)重新获取装饰数据,
+       * 只丢弃与该范围重叠的快照
+       *
+       * @param firstDay 页面第一天 {@link DayKeys}
+       */
+      void notifyDecorationsLoaded ( int firstDay ) {
+
+            int size = mAttachedPages.size();
+            for( int i = 0; i < size; i++ ) {
+                  MonthPage page = mAttachedPages.valueAt( i );
+                  if( page.getDate() != null && page.getFirstCellDay() == firstDay ) {
+                        page.rebindDecorations();
+                  }
+            }
+            if( mPrefetcher != null ) {
+                  mPrefetcher.rebindDecorations( firstDay );
+            }
+            if( mSnapshotCache != null ) {
+                  mSnapshotCache.invalidate( firstDay, firstDay + MonthPage.CELL_COUNT - 1 );
+                  mSnapshotCache.scheduleRender();
+            }
+      }
+
+      /**
+       * 计算该位置页面第一个子view显示的天,与{@link MonthPage}的计算一致
+       *
+       * @param position 位置
+       *
+       * @return 天 {@link DayKeys}
+       */
+      int getPageFirstDay ( int position ) {
+
+            int firstDayOfMonth = DayKeys.firstDayOfMonth( DayKeys.fromDate( mSource.getDate( position ) ) );
+            int dayOfWeek = DayKeys.getDayOfWeek( firstDayOfMonth );
+            int offset;
+            if( mParent.isFirstDayMonday() ) {
+                  offset = dayOfWeek == 1 ? 6 : dayOfWeek - 2;
+            } else {
+                  offset = dayOfWeek - 1;
+            }
+            return firstDayOfMonth - offset;
+      }
+
+      /**
+       * 装饰数据变化之后调用,已经添加的页面重新获取装饰数据
+       */
+      public void notifyDecorationsChanged ( ) {
+
+            if( mDecorationCache != null ) {
+                  mDecorationCache.clear();
+            }
+            if( mSpanLayouts != null ) {
+                  mSpanLayouts.evictAll();
+            }
+            int size = mAttachedPages.size();
+            for( int i = 0; i < size; i++ ) {
+                  mAttachedPages.valueAt( i ).rebindDecorations();
+            }
+            if( mPrefetcher != null ) {
+                  mPrefetcher.clear();
+            }
+            if( mSnapshotCache != null ) {
+                  mSnapshotCache.clear();
+                  mSnapshotCache.scheduleRender();
+            }
+      }
+
+      /**
+       * @return 回收页面的缓存池, 可以获取命中统计
+       */
+      public MonthPagePool getPagePool ( ) {
+
+            return mPagePool;
+      }
+
+      /**
+       * 设置回收页面使用的缓存池,多个{@link MonthLayout}可以使用同一个缓存池,互相复用页面
+       *
+       * @param pagePool 缓存池, null:使用自己的缓存池
+       */
+      public void setPagePool ( MonthPagePool pagePool ) {
+
+            if( pagePool == null ) {
+                  pagePool = new MonthPagePool( MonthPagePool.DEFAULT_CAPACITY );
+            }
+            if( pagePool == mPagePool ) {
+                  return;
+            }
+
+            mPagePool.cancelPrewarm( this );
+            mPagePool.removeFactoryUser( mMonthDayViewFactory );
+            if( mPrefetcher != null ) {
+                  mPrefetcher.clear();
+            }
+            mPagePool = pagePool;
+            mPagePool.addFactoryUser( mMonthDayViewFactory );
+      }
+
+      /**
+       * 设置回收页面的最大数量
+       *
+       * @param capacity 容量
+       */
+      public void setPagePoolCapacity ( int capacity ) {
+
+            mPagePool.setCapacity( capacity );
+      }
+
+      /**
+       * 设置首帧绘制之后,利用主线程空闲时间预先创建多少页面放入缓存池,0:不预先创建
+       *
+       * @param count 页面数量,不会超过缓存池容量
+       */
+      public void setPagePrewarmCount ( int count ) {
+
+            mPagePrewarmCount = Math.max( count, 0 );
+            if( isFirstDrawn ) {
+                  mPagePool.prewarm( this, mPagePrewarmCount );
+            }
+      }
+
+      /**
+       * 设置是否开启异步创建,开启后首帧之前只为当前页面创建子view,前后页面只计算高度作为占位,
+       * 它们的子view在首帧绘制之后利用主线程空闲时间逐行创建,开始滑动时如果还没有创建完成会立即创建;
+       * 需要在第一次测量之前设置才会生效
+       *
+       * @param enabled true:开启
+       */
+      public void setAsyncBuildEnabled ( boolean enabled ) {
+
+            isAsyncBuildEnabled = enabled;
+      }
+
+      public boolean isAsyncBuildEnabled ( ) {
+
+            return isAsyncBuildEnabled;
+      }
+
+      /**
+       * 设置是否按照翻页方向预取页面,开启后根据最近几次翻页的方向和速度,在主线程空闲时提前绑定前方一到两页,
+       * 翻页方向改变后另一侧预取的页面立即回收到缓存池
+       *
+       * @param enabled true:开启
+       */
+      public void setAdaptivePrefetchEnabled ( boolean enabled ) {
+
+            if( enabled ) {
+                  if( mPrefetcher == null ) {
+                        mPrefetcher = new PagePrefetcher( this, getCurrentItem() );
+                  }
+            } else if( mPrefetcher != null ) {
+                  mPrefetcher.release();
+                  mPrefetcher = null;
+                  if( mSnapshotCache != null ) {
+                        mSnapshotCache.setDirection( 0 );
+                  }
+            }
+      }
+
+      public boolean isAdaptivePrefetchEnabled ( ) {
+
+            return mPrefetcher != null;
+      }
+
+      /**
+       * 设置是否使用相邻页面快照,开启后主线程空闲时会将前后页面绘制成bitmap,快速滑动时新页面先显示快照,
+       * 滚动停止后再绑定真实数据
+       *
+       * @param enabled true:开启
+       */
+      public void setSnapshotCacheEnabled ( boolean enabled ) {
+
+            if( enabled ) {
+                  if( mSnapshotCache == null ) {
+                        mSnapshotCache = new PageSnapshotCache( this, PageSnapshotCache.DEFAULT_MAX_BYTES );
+                        mSnapshotCache.scheduleRender();
+                  }
+            } else if( mSnapshotCache != null ) {
+                  mSnapshotCache.release();
+                  mSnapshotCache = null;
+                  bindPendingPages();
+            }
+      }
+
+      /**
+       * @return true:开启了相邻页面快照
+       */
+      public boolean isSnapshotCacheEnabled ( ) {
+
+            return mSnapshotCache != null;
+      }
+
+      /**
+       * 设置快照缓存最多占用的字节数,超出后淘汰最久没有使用的快照,会同时开启快照
+       *
+       * @param maxBytes 最大字节数
+       */
+      public void setSnapshotCacheMaxBytes ( int maxBytes ) {
+
+            if( mSnapshotCache == null ) {
+                  mSnapshotCache = new PageSnapshotCache( this, maxBytes );
+                  mSnapshotCache.scheduleRender();
+            } else {
+                  mSnapshotCache.resize( maxBytes );
+            }
+      }
+
+      /**
+       * 重设基准日期,所有页面的日期基于这个日期计算所得
+       *
+       * @param date 新的基准日期
+       */
+      public void setDate ( Date date ) {
+
+            onDateChanged( date, mSource.mBasePosition, mSource.isMonthMode, mParent.isFirstDayMonday(), true );
+            if( mOnDateChangeListener != null ) {
+                  mOnDateChangeListener.onNewDateClick( getCurrentPage().getDate() );
+            }
+      }
+
+      /**
+       * 使用动画滚动到该日期所在的页面,经过的页面不会绑定数据,只绑定目标页面;目标页面选中该日期
+       *
+       * @param date 日期
+       */
+      public void scrollToDate ( Date date ) {
+
+            MonthPage currentPage = getCurrentPage();
+            if( currentPage == null ) {
+                  setDate( date );
+                  return;
+            }
+
+            int step = getPageStep( currentPage.getDate(), date );
+            if( step == 0 ) {
+                  setDate( date );
+                  return;
+            }
+
+            /* 以目标位置为基准,目标页面直接绑定到该日期 */
+            int target = getCurrentItem() + step;
+            mSource.resetDate( date, target );
+            if( mPrefetcher != null ) {
+                  mPrefetcher.clear();
+            }
+            /* 快照按照位置保存,基准日期变化后全部过期 */
+            if( mSnapshotCache != null ) {
+                  mSnapshotCache.clear();
+                  mSnapshotCache.scheduleRender();
+            }
+            MonthPage targetPage = findPageAt( target );
+            if( targetPage != null ) {
+                  bindPage( targetPage, target );
+            }
+            jumpTo( target );
+            if( mOnDateChangeListener != null ) {
+                  mOnDateChangeListener.onNewDateSet( date );
+            }
+      }
+
+      /**
+       * 计算两个日期所在页面相差的页数
+       */
+      private int getPageStep ( Date from, Date to ) {
+
+            int fromDay = DayKeys.fromDate( from );
+            int toDay = DayKeys.fromDate( to );
+            if( mSource.isMonthMode ) {
+                  return DayKeys.getMonthKey( toDay ) - DayKeys.getMonthKey( fromDay );
+            }
+            return getWeekIndex( toDay ) - getWeekIndex( fromDay );
+      }
+
+      /**
+       * @return 该天所在的周距离1970年第一周的周数
+       */
+      private int getWeekIndex ( int day ) {
+
+            /* 1970年1月4日是周日,1月5日是周一 */
+            int offset = day - ( mParent.isFirstDayMonday() ? 4 : 3 );
+            int week = offset / 7;
+            if( offset < 0 && week * 7 != offset ) {
+                  week--;
+            }
+            return week;
+      }
+
+      /**
+       * 使用动画跳转到该位置,经过的位置不会创建页面,目标位置两侧的页面等到停止滚动后再绑定
+       *
+       * @param target 位置
+       */
+      private void jumpTo ( int target ) {
+
+            mJumpTarget = target;
+            setCurrentItem( target, true );
+      }
+
+      /**
+       * 设置是否根据惯性速度一次滑过多页,速度越快滑过的页数越多,经过的页面不会绑定数据
+       *
+       * @param enabled true:开启
+       */
+      public void setMultiPageFlingEnabled ( boolean enabled ) {
+
+            isMultiPageFlingEnabled = enabled;
+            if( !enabled ) {
+                  mExpandFoldPage.recycleVelocityTracker();
+            }
+      }
+
+      public boolean isMultiPageFlingEnabled ( ) {
+
+            return isMultiPageFlingEnabled;
+      }
+
+      /**
+       * 设置是否可以在范围选择模式下长按日期之后拖动选择范围,拖动到左右边缘停留时翻到相邻的页面
+       *
+       * @param enabled true:开启
+       */
+      public void setDragSelectEnabled ( boolean enabled ) {
+
+            if( enabled ) {
+                  if( mDragSelectHelper == null ) {
+                        mDragSelectHelper = new DragSelectHelper( this );
+                  }
+            } else if( mDragSelectHelper != null ) {
+                  mDragSelectHelper.cancel();
+                  mDragSelectHelper = null;
+            }
+      }
+
+      public boolean isDragSelectEnabled ( ) {
+
+            return mDragSelectHelper != null;
+      }
+
+      /**
+       * 设置一次惯性滑动最多滑过的页数
+       *
+       * @param maxPages 页数
+       */
+      public void setMaxFlingPages ( int maxPages ) {
+
+            mMaxFlingPages = Math.max( maxPages, 1 );
+      }
+
+      /**
+       * 根据惯性速度计算滑过的页数
+       *
+       * @param velocity 水平速度,像素/秒
+       *
+       * @return 页数, 向后为正
        */
-      public void setMonthDayViewFactory ( MonthDayViewFactory monthDayViewFactory ) {
+      private int computeFlingPages ( float velocity ) {
 
-            mMonthDayViewFactory = monthDayViewFactory;
+            int pages = Math.min( (int) ( Math.abs( velocity ) / mPageFlingVelocity ), mMaxFlingPages );
+            return velocity < 0 ? pages : -pages;
       }
 
       /**
-       * 重设基准日期,所有页面的日期基于这个日期计算所得
-       *
-       * @param date 新的基准日期
+       * 跳转结束,绑定目标两侧的页面,并且改变到目标页面高度
        */
-      public void setDate ( Date date ) {
+      private void finishJump ( ) {
 
-            onDateChanged( date, mSource.mBasePosition, mSource.isMonthMode, mParent.isFirstDayMonday(), true );
-            if( mOnDateChangeListener != null ) {
-                  mOnDateChangeListener.onNewDateClick( getCurrentPage().getDate() );
+            mJumpTarget = NO_JUMP;
+            rebindStalePages();
+            bindPendingPages();
+
+            MonthPage currentPage = getCurrentPage();
+            if( currentPage != null ) {
+                  mPageHeightChangeStrategy.onHeightChanging(
+                      currentPage.getMeasuredHeight(), PageHeightChangeStrategy.SCROLLING );
             }
       }
 
@@ -186,25 +966,63 @@ public class MonthLayout extends ViewPager {
        */
       public MonthPage getCurrentPage ( ) {
 
-            int currentItem = getCurrentItem();
+            return mAttachedPages.get( getCurrentItem() );
+      }
+
+      /**
+       * 查找已经添加到pager中的该位置的页面
+       *
+       * @param position 位置
+       *
+       * @return 页面, 没有添加时返回null
+       */
+      MonthPage findPageAt ( int position ) {
+
+            return mAttachedPages.get( position );
+      }
+
+      /**
+       * 创建一个新的页面
+       */
+      MonthPage createPage ( ) {
+
+            return new MonthPage( getContext(), this, mMonthDayViewFactory );
+      }
+
+      /**
+       * 为页面绑定该位置的数据
+       */
+      void bindPage ( MonthPage page, int position ) {
+
+            Date date = mSource.getDate( position );
+            page.setInfo( date, position, mParent.isFirstDayMonday(), mSource.isMonthMode );
+      }
+
+      /**
+       * 跳转之前已经添加的页面可能使用的是旧的基准日期,重新绑定日期已经变化的页面
+       */
+      private void rebindStalePages ( ) {
 
-            if( currentItem == mCachedCurrentItem ) {
-                  return mCachedCurrentPage;
+            int size = mAttachedPages.size();
+            for( int i = 0; i < size; i++ ) {
+                  MonthPage page = mAttachedPages.valueAt( i );
+                  int position = mAttachedPages.keyAt( i );
+                  Date date = mSource.getDate( position );
+                  if( !page.isBindPending() && !date.equals( page.getDate() ) ) {
+                        bindPage( page, position );
+                  }
             }
+      }
+
+      /**
+       * 所有还在使用快照显示的页面绑定真实数据
+       */
+      private void bindPendingPages ( ) {
 
             int count = getChildCount();
             for( int i = 0; i < count; i++ ) {
-                  MonthPage child = (MonthPage) getChildAt( i );
-                  if( child.getPosition() == currentItem ) {
-                        mCachedCurrentItem = currentItem;
-                        mCachedCurrentPage = child;
-                        return child;
-                  }
+                  ( (MonthPage) getChildAt( i ) ).bindPendingIfNeed();
             }
-
-            mCachedCurrentItem = -1;
-            mCachedCurrentPage = null;
-            return null;
       }
 
       /**
@@ -235,6 +1053,29 @@ public class MonthLayout extends ViewPager {
             return mOnDateChangeListener;
       }
 
+      /**
+       * 设置页面停止滚动监听
+       *
+       * @param onPageSettledListener 监听
+       */
+      public void setOnPageSettledListener ( OnPageSettledListener onPageSettledListener ) {
+
+            mOnPageSettledListener = onPageSettledListener;
+      }
+
+      public OnPageSettledListener getOnPageSettledListener ( ) {
+
+            return mOnPageSettledListener;
+      }
+
+      /**
+       * @return 当前页面代数, 每次选中新页面都会增加
+       */
+      public long getPageGeneration ( ) {
+
+            return mPageGeneration;
+      }
+
       public int getCellWidth ( ) {
 
             return mCellSize.mCellWidth;
@@ -271,9 +1112,53 @@ public class MonthLayout extends ViewPager {
             }
       }
 
+      /**
+       * 不重新布局改变高度,偏移页面的子view并且裁剪{@link CalendarView},停止变化后需要调用{@link #commitPageHeightIfIdle()};
+       * 只有高度超过已经布局的高度时才会按照所有页面的最大高度布局一次
+       *
+       * @param currentPageHeight 当前页面高度
+       */
+      public void offsetToPageHeight ( int currentPageHeight ) {
+
+            if( currentPageHeight > getHeight() ) {
+                  int maxHeight = currentPageHeight;
+                  int size = mAttachedPages.size();
+                  for( int i = 0; i < size; i++ ) {
+                        maxHeight = Math.max( maxHeight, mAttachedPages.valueAt( i ).getPageHeight() );
+                  }
+                  reLayoutToPageHeight( maxHeight );
+            }
+
+            int size = mAttachedPages.size();
+            for( int i = 0; i < size; i++ ) {
+                  mAttachedPages.valueAt( i ).offsetCellsToMoved();
+            }
+            mParent.clipToMonthHeight( currentPageHeight );
+      }
+
+      /**
+       * 如果通过{@link #offsetToPageHeight(int)}改变了高度,并且页面已经停止滚动和展开折叠,那么重新布局到真实高度
+       *
+       * @return true:已经提交重新布局
+       */
+      public boolean commitPageHeightIfIdle ( ) {
+
+            if( !mParent.isClipped() || isScrolling() ) {
+                  return false;
+            }
+
+            MonthPage currentPage = getCurrentPage();
+            if( currentPage == null || currentPage.isAnimatingOrMoving() ) {
+                  return false;
+            }
+
+            mParent.commitClip();
+            return true;
+      }
+
       /**
        * 设置当前页面高度发生变化时使用的策略,{@link PageHeightChangeStrategy#onHeightChanging(int, int)}
-       * 一般需要调用{@link #reLayoutToPageHeight(int)}重新布局一下
+       * 一般需要调用{@link #reLayoutToPageHeight(int)}重新布局一下,或者使用{@link #offsetToPageHeight(int)}避免布局
        *
        * @param pageHeightChangeStrategy 策略
        */
@@ -292,6 +1177,19 @@ public class MonthLayout extends ViewPager {
             return getCurrentPage().onMoveTouchEvent( dy );
       }
 
+      /**
+       * 以惯性速度展开或者折叠当前页面
+       *
+       * @param velocity 速度,像素/秒,大于0为展开方向,小于0为折叠方向
+       *
+       * @return true:当前页面开始惯性滑动
+       */
+      public boolean dispatchFlingToCurrentPage ( float velocity ) {
+
+            MonthPage currentPage = getCurrentPage();
+            return currentPage != null && currentPage.onFling( velocity );
+      }
+
       public void dispatchReleaseToCurrentPage ( int dy ) {
 
             getCurrentPage().onTouchEventRelease( dy, mSource.isMonthMode );
@@ -327,16 +1225,9 @@ public class MonthLayout extends ViewPager {
             super.onMeasure( widthMeasureSpec, heightMeasureSpec );
 
             /* 将当前页面的高度设置为pager高度 */
-            int childCount = getChildCount();
-            int currentItem = getCurrentItem();
-            for( int i = 0; i < childCount; i++ ) {
-                  MonthPage view = (MonthPage) getChildAt( i );
-                  if( currentItem == view.getPosition() ) {
-                        /* 将当前页面的高度设置为pager高度 */
-                        int measuredHeight = view.getMeasuredHeight();
-                        setMeasuredDimension( widthSize, measuredHeight );
-                        break;
-                  }
+            MonthPage currentPage = getCurrentPage();
+            if( currentPage != null ) {
+                  setMeasuredDimension( widthSize, currentPage.getMeasuredHeight() );
             }
       }
 
@@ -368,13 +1259,110 @@ public class MonthLayout extends ViewPager {
             }
       }
 
+      @Override
+      protected void dispatchDraw ( Canvas canvas ) {
+
+            super.dispatchDraw( canvas );
+
+            /* 首帧之后再创建占位页面的子view以及预先创建页面,不影响首帧时间 */
+            if( !isFirstDrawn ) {
+                  isFirstDrawn = true;
+                  if( hasPageWithoutCells() ) {
+                        if( mCellBuilder == null ) {
+                              mCellBuilder = new CellBuilder();
+                        }
+                        mCellBuilder.schedule();
+                  } else {
+                        prewarmPagePool();
+                  }
+            }
+      }
+
+      private void prewarmPagePool ( ) {
+
+            if( mPagePrewarmCount > 0 ) {
+                  mPagePool.prewarm( this, mPagePrewarmCount );
+            }
+      }
+
+      /**
+       * @return true:有页面的子view还没有创建完成
+       */
+      private boolean hasPageWithoutCells ( ) {
+
+            int count = getChildCount();
+            for( int i = 0; i < count; i++ ) {
+                  if( !( (MonthPage) getChildAt( i ) ).hasCells() ) {
+                        return true;
+                  }
+            }
+            return false;
+      }
+
+      /**
+       * 立即为所有页面创建子view
+       */
+      private void buildAllPageCells ( ) {
+
+            int count = getChildCount();
+            for( int i = 0; i < count; i++ ) {
+                  ( (MonthPage) getChildAt( i ) ).buildAllCells();
+            }
+      }
+
+      @Override
+      protected void onAttachedToWindow ( ) {
+
+            super.onAttachedToWindow();
+            /* 离开窗口时快照已经释放,重新添加后(例如fragment从回退栈返回)重新绘制 */
+            if( mSnapshotCache != null ) {
+                  mSnapshotCache.scheduleRender();
+            }
+      }
+
+      @Override
+      protected void onDetachedFromWindow ( ) {
+
+            super.onDetachedFromWindow();
+            mPagePool.cancelPrewarm( this );
+            if( mCellBuilder != null ) {
+                  mCellBuilder.cancel();
+            }
+            isFirstDrawn = false;
+            if( mSnapshotCache != null ) {
+                  mSnapshotCache.release();
+            }
+            if( mPrefetcher != null ) {
+                  mPrefetcher.release();
+            }
+            if( mDragSelectHelper != null ) {
+                  mDragSelectHelper.cancel();
+            }
+            mExpandFoldPage.recycleVelocityTracker();
+      }
+
       @Override
       public boolean dispatchTouchEvent ( MotionEvent ev ) {
 
+            /* 正在拖动选择时不再分发给pager */
+            if( mDragSelectHelper != null && mDragSelectHelper.handleMotionEvent( ev ) ) {
+                  return true;
+            }
+
             /* 控制手势分发 */
             return mExpandFoldPage.handleMotionEvent( ev );
       }
 
+      /**
+       * 开始拖动选择,取消pager以及子view正在处理的手势
+       *
+       * @param cancel {@link MotionEvent#ACTION_CANCEL}事件
+       */
+      void cancelPagerTouchEvent ( MotionEvent cancel ) {
+
+            mExpandFoldPage.handleMotionEvent( cancel );
+      }
+
       /**
        * 重新日期信息
        *
@@ -389,6 +1377,9 @@ public class MonthLayout extends ViewPager {
 
             mSource.resetDate( date, position );
             mSource.isMonthMode = monthMode;
+            if( mPrefetcher != null ) {
+                  mPrefetcher.clear();
+            }
             int childCount = getChildCount();
             for( int i = 0; i < childCount; i++ ) {
                   MonthPage child = (MonthPage) getChildAt( i );
@@ -398,6 +1389,11 @@ public class MonthLayout extends ViewPager {
                         child.requestLayout();
                   }
             }
+
+            if( mSnapshotCache != null ) {
+                  mSnapshotCache.clear();
+                  mSnapshotCache.scheduleRender();
+            }
       }
 
       /**
@@ -405,9 +1401,37 @@ public class MonthLayout extends ViewPager {
        */
       void onNewPageSelected ( int position ) {
 
+            mPageGeneration++;
+            if( mPrefetcher != null ) {
+                  mPrefetcher.onPageSelected( position );
+                  /* 后方的快照不再需要 */
+                  if( mSnapshotCache != null ) {
+                        mSnapshotCache.setDirection( mPrefetcher.getDirection() );
+                  }
+            }
             if( mOnDateChangeListener != null ) {
                   mOnDateChangeListener.onNewPageSelected( mSource.getDate( position ) );
             }
+
+            /* 没有滚动直接切换页面时(setCurrentItem(item, false)),不会再收到停止滚动 */
+            if( !isScrolling() ) {
+                  dispatchPageSettledIfNeed();
+            }
+      }
+
+      /**
+       * 页面停止滚动后,如果选中了新的页面,回调一次{@link OnPageSettledListener}
+       */
+      private void dispatchPageSettledIfNeed ( ) {
+
+            if( mSettledGeneration == mPageGeneration ) {
+                  return;
+            }
+            mSettledGeneration = mPageGeneration;
+
+            if( mOnPageSettledListener != null ) {
+                  mOnPageSettledListener.onPageSettled( mSource.getDate( getCurrentItem() ), mPageGeneration );
+            }
       }
 
       /**
@@ -419,6 +1443,15 @@ public class MonthLayout extends ViewPager {
       void onNewDateClicked ( Date date, int position ) {
 
             onDateChanged( date, position, mSource.isMonthMode, mParent.isFirstDayMonday(), false );
+            dispatchNewDateClick( date );
+      }
+
+      /**
+       * 只通知监听点击了日期,不改变基准日期,用于多选以及范围选择
+       *
+       * @param date 被点击的日期
+       */
+      void dispatchNewDateClick ( Date date ) {
 
             if( mOnDateChangeListener != null ) {
                   mOnDateChangeListener.onNewDateClick( date );
@@ -513,7 +1546,10 @@ public class MonthLayout extends ViewPager {
             MonthDayView generateItemView ( Context context );
       }
 
-      private class DefaultItemFactory implements MonthDayViewFactory {
+      /**
+       * 所有布局共用同一个默认工厂,共享缓存池时默认的页面可以互相复用
+       */
+      private static class DefaultItemFactory implements MonthDayViewFactory {
 
             @Override
             public MonthDayView generateItemView ( Context context ) {
@@ -527,11 +1563,6 @@ public class MonthLayout extends ViewPager {
        */
       private class PagerMonthAdapter extends PagerAdapter {
 
-            /**
-             * 回收页面
-             */
-            private LinkedList<View> mReUsed = new LinkedList<>();
-
             @Override
             public int getCount ( ) {
                   /* 日期的个数是无限的 */
@@ -542,17 +1573,48 @@ public class MonthLayout extends ViewPager {
             @Override
             public Object instantiateItem ( @NonNull ViewGroup container, int position ) {
 
-                  MonthPage page;
-                  if( mReUsed.isEmpty() ) {
-                        page = new MonthPage( container.getContext(), MonthLayout.this, mMonthDayViewFactory );
+                  /* 已经预取并且绑定好的页面直接使用 */
+                  if( mPrefetcher != null ) {
+                        MonthPage prefetched = mPrefetcher.take( position );
+                        if( prefetched != null ) {
+                              container.addView( prefetched );
+                              mAttachedPages.put( position, prefetched );
+                              return prefetched;
+                        }
+                  }
+
+                  MonthPage page = mPagePool.acquire( mMonthDayViewFactory );
+                  if( page == null ) {
+                        if( isAsyncBuildEnabled && !isFirstDrawn && position != getCurrentItem() ) {
+                              /* 首帧之前不可见的页面只作为占位 */
+                              page = new MonthPage( container.getContext(), MonthLayout.this, mMonthDayViewFactory, true );
+                        } else {
+                              page = createPage();
+                        }
                   } else {
-                        page = (MonthPage) mReUsed.pollFirst();
+                        page.setParent( MonthLayout.this );
+                        if( isFirstDrawn ) {
+                              page.buildAllCells();
+                        }
                   }
 
-                  Date date = mSource.getDate( position );
-                  page.setInfo( date, position, mParent.isFirstDayMonday(), mSource.isMonthMode );
+                  /* 滚动中优先显示快照,滚动停止后再绑定 */
+                  Bitmap snapshot = null;
+                  if( mSnapshotCache != null && isScrolling() ) {
+                        snapshot = mSnapshotCache.get( position );
+                  }
+
+                  if( snapshot != null || ( mJumpTarget != NO_JUMP && position != mJumpTarget ) ) {
+                        /* 跳转时目标两侧的页面等到停止滚动再绑定 */
+                        Date date = mSource.getDate( position );
+                        page.setInfoWithSnapshot(
+                            date, position, mParent.isFirstDayMonday(), mSource.isMonthMode, snapshot );
+                  } else {
+                        bindPage( page, position );
+                  }
 
                   container.addView( page );
+                  mAttachedPages.put( position, page );
                   return page;
             }
 
@@ -565,9 +1627,53 @@ public class MonthLayout extends ViewPager {
             @Override
             public void destroyItem ( @NonNull ViewGroup container, int position, @NonNull Object object ) {
 
-                  View view = (View) object;
-                  container.removeView( view );
-                  mReUsed.add( view );
+                  MonthPage page = (MonthPage) object;
+                  container.removeView( page );
+                  if( mAttachedPages.get( position ) == page ) {
+                        mAttachedPages.remove( position );
+                  }
+                  mPagePool.release( page );
+            }
+      }
+
+      /**
+       * 首帧之后利用主线程空闲时间为占位页面创建子view,每次空闲只创建一行,全部完成后预先创建缓存页面
+       */
+      private class CellBuilder implements IdleHandler {
+
+            private boolean isScheduled;
+
+            private void schedule ( ) {
+
+                  if( !isScheduled ) {
+                        isScheduled = true;
+                        Looper.myQueue().addIdleHandler( this );
+                  }
+            }
+
+            private void cancel ( ) {
+
+                  if( isScheduled ) {
+                        isScheduled = false;
+                        Looper.myQueue().removeIdleHandler( this );
+                  }
+            }
+
+            @Override
+            public boolean queueIdle ( ) {
+
+                  int count = getChildCount();
+                  for( int i = 0; i < count; i++ ) {
+                        MonthPage page = (MonthPage) getChildAt( i );
+                        if( !page.hasCells() ) {
+                              page.buildNextCellRow();
+                              return true;
+                        }
+                  }
+
+                  isScheduled = false;
+                  prewarmPagePool();
+                  return false;
             }
       }
 
@@ -626,6 +1732,11 @@ public class MonthLayout extends ViewPager {
                   for( int i = 0; i < childCount; i++ ) {
                         getChildAt( i ).requestLayout();
                   }
+
+                  if( mSnapshotCache != null ) {
+                        mSnapshotCache.clear();
+                        mSnapshotCache.scheduleRender();
+                  }
             }
       }
 
@@ -704,6 +1815,45 @@ public class MonthLayout extends ViewPager {
                   onNewPageSelected( position );
             }
 
+            @Override
+            public void onPageScrollStateChanged ( int state ) {
+
+                  super.onPageScrollStateChanged( state );
+
+                  /* 开始滑动时,占位页面马上就要显示 */
+                  if( state == SCROLL_STATE_DRAGGING && mCellBuilder != null && mCellBuilder.isScheduled ) {
+                        mCellBuilder.cancel();
+                        buildAllPageCells();
+                        prewarmPagePool();
+                  }
+
+                  /* 跳转中途被拖动,占位页面马上就要显示 */
+                  if( state == SCROLL_STATE_DRAGGING && mJumpTarget != NO_JUMP ) {
+                        mJumpTarget = NO_JUMP;
+                        rebindStalePages();
+                        bindPendingPages();
+                  }
+
+                  if( state == SCROLL_STATE_IDLE ) {
+                        if( mJumpTarget != NO_JUMP ) {
+                              finishJump();
+                        }
+                        dispatchPageSettledIfNeed();
+                        if( mPrefetcher != null ) {
+                              mPrefetcher.schedule();
+                        }
+                        if( mDragSelectHelper != null ) {
+                              mDragSelectHelper.onPageSettled();
+                        }
+                  }
+
+                  /* 滚动停止,使用真实的view代替快照,并且准备新的快照 */
+                  if( state == SCROLL_STATE_IDLE && mSnapshotCache != null ) {
+                        bindPendingPages();
+                        mSnapshotCache.scheduleRender();
+                  }
+            }
+
             @Override
             protected void onScrolled ( int state, int current, float offset, int offsetPixels ) {
 
@@ -724,34 +1874,15 @@ public class MonthLayout extends ViewPager {
 
             private void changeHeightWhenScroll ( int currentPosition, int nextPosition, float offset ) {
 
-                  int currentHeight = 0;
-                  int targetHeight = 0;
-
-                  if( currentPosition == nextPosition ) {
-
-                        currentHeight = targetHeight = getCurrentPage().getMeasuredHeight();
-                  } else {
-
-                        int childCount = getChildCount();
-                        for( int i = 0; i < childCount; i++ ) {
-                              MonthPage child = (MonthPage) getChildAt( i );
-                              int position = child.getPosition();
-                              if( position == currentPosition ) {
-
-                                    currentHeight = child.getMeasuredHeight();
-                                    if( currentHeight != 0 && targetHeight != 0 ) {
-                                          break;
-                                    }
-                              } else if( position == nextPosition ) {
-
-                                    targetHeight = child.getMeasuredHeight();
-                                    if( currentHeight != 0 && targetHeight != 0 ) {
-                                          break;
-                                    }
-                              }
-                        }
+                  MonthPage current = findPageAt( currentPosition );
+                  MonthPage next = findPageAt( nextPosition );
+                  if( current == null || next == null ) {
+                        return;
                   }
 
+                  int currentHeight = current.getMeasuredHeight();
+                  int targetHeight = next.getMeasuredHeight();
+
                   if( currentHeight == targetHeight ) {
                         return;
                   }
@@ -779,6 +1910,11 @@ public class MonthLayout extends ViewPager {
             private boolean isHorizontalMove;
             private boolean isVerticalMove;
 
+            /**
+             * 计算水平惯性速度,用于一次滑过多页
+             */
+            private VelocityTracker mVelocityTracker;
+
             /**
              * 拦截垂直滑动事件,并且通知给当前页面,竖直滑动距离
              *
@@ -792,6 +1928,16 @@ public class MonthLayout extends ViewPager {
                   float y;
                   MonthPage monthPage = getCurrentPage();
 
+                  if( isMultiPageFlingEnabled ) {
+                        if( mVelocityTracker == null ) {
+                              mVelocityTracker = VelocityTracker.obtain();
+                        }
+                        if( ev.getAction() == MotionEvent.ACTION_DOWN ) {
+                              mVelocityTracker.clear();
+                        }
+                        mVelocityTracker.addMovement( ev );
+                  }
+
                   switch( ev.getAction() ) {
                         case MotionEvent.ACTION_DOWN:
                               x = ev.getRawX();
@@ -854,11 +2000,54 @@ public class MonthLayout extends ViewPager {
                                     }
                               }
 
+                              if( ev.getAction() == MotionEvent.ACTION_UP && isHorizontalMove && flingPagesIfNeed( ev ) ) {
+                                    isHorizontalMove = isVerticalMove = false;
+                                    return true;
+                              }
+
                               isHorizontalMove = isVerticalMove = false;
                               return superDispatchTouchEvent( ev );
                   }
             }
 
+            /**
+             * 关闭多页滑动或者离开窗口时释放速度追踪
+             */
+            void recycleVelocityTracker ( ) {
+
+                  if( mVelocityTracker != null ) {
+                        mVelocityTracker.recycle();
+                        mVelocityTracker = null;
+                  }
+            }
+
+            /**
+             * 抬起时速度足够快,取消pager自身的翻页,改为按照速度跳转多页
+             *
+             * @return true:已经开始跳转
+             */
+            private boolean flingPagesIfNeed ( MotionEvent ev ) {
+
+                  if( !isMultiPageFlingEnabled || mVelocityTracker == null ) {
+                        return false;
+                  }
+
+                  mVelocityTracker.computeCurrentVelocity( 1000 );
+                  int pages = computeFlingPages( mVelocityTracker.getXVelocity() );
+                  mVelocityTracker.clear();
+                  if( Math.abs( pages ) < 2 ) {
+                        return false;
+                  }
+
+                  MotionEvent cancel = MotionEvent.obtain( ev );
+                  cancel.setAction( MotionEvent.ACTION_CANCEL );
+                  superDispatchTouchEvent( cancel );
+                  cancel.recycle();
+
+                  jumpTo( getCurrentItem() + pages );
+                  return true;
+            }
+
             private boolean superDispatchTouchEvent ( MotionEvent ev ) {
 
                   return MonthLayout.super.dispatchTouchEvent( ev );
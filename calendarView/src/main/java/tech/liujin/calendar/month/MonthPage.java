@@ -5,13 +5,19 @@ import static tech.liujin.calendar.month.MonthDayView.UNSELECTED;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.view.View;
 import android.view.View.OnClickListener;
 import android.view.ViewGroup;
+import android.widget.OverScroller;
+import androidx.core.view.ViewCompat;
 import androidx.viewpager.widget.ViewPager;
 import java.util.Date;
 import tech.liujin.calendar.month.MonthLayout.MonthDayViewFactory;
 import tech.liujin.calendar.util.CalendarUtils;
+import tech.liujin.calendar.util.DayKeys;
 
 /**
  * {@link MonthLayout}的一个页面,用来显示一个月日期或者一周的日期,通过手势分发可以在月模式和周模式之间转换
@@ -21,6 +27,15 @@ import tech.liujin.calendar.util.CalendarUtils;
 @SuppressLint("ViewConstructor")
 public class MonthPage extends ViewGroup implements OnClickListener {
 
+      /**
+       * 每个月最多使用7列6行个子view就能包含所有日期
+       */
+      static final int CELL_COUNT = 6 * 7;
+      /**
+       * 该位置没有显示日期
+       */
+      static final int NO_CELL    = -1;
+
       /**
        * 当前状态之一:已经展开
        */
@@ -41,7 +56,11 @@ public class MonthPage extends ViewGroup implements OnClickListener {
       /**
        * 父布局
        */
-      private MonthLayout mParent;
+      private MonthLayout         mParent;
+      /**
+       * 用于延迟创建子view
+       */
+      private MonthDayViewFactory mFactory;
       /**
        * 记录当前页面日期
        */
@@ -72,6 +91,41 @@ public class MonthPage extends ViewGroup implements OnClickListener {
        */
       private int mPageHeight;
 
+      /**
+       * 快速滑动时代替子view显示的快照,{@link #bindPendingIfNeed()}之后置空
+       */
+      private Bitmap  mSnapshot;
+      /**
+       * 是否还没有绑定子view数据
+       */
+      private boolean isBindPending;
+
+      /**
+       * 页面显示范围内每天的装饰数据,设置了{@link DayDecorationSource}之后才创建,每次绑定时填充一次
+       */
+      private DayDecorations mDecorations;
+      /**
+       * 重新获取装饰数据时先填充到这里,与{@link #mDecorations}比较之后只绑定变化的子view
+       */
+      private DayDecorations mFetchedDecorations;
+      /**
+       * 跨越多天的事件的分行结果,由{@link MonthLayout}按照页面范围缓存,为null时没有
+       */
+      private SpanLayout     mSpanLayout;
+      /**
+       * 绘制跨越多天的事件,只在主线程绘制时使用,所有页面共用
+       */
+      private static Paint   sSpanPaint;
+      /**
+       * 每天占用的分钟数,显示热力图时使用
+       */
+      private int[]          mBusyMinutes;
+
+      /**
+       * 子view当前实际的top偏移,{@link MoveHelper#mTopMoved}变化后不重新布局时通过{@link #offsetCellsToMoved()}同步
+       */
+      private int mAppliedTopMoved;
+
       /**
        * 辅助管理当前状态,当从折叠状态改变为其他状态时,改变非本月的日期的子view的可见性,折叠时可见,展开时不可见
        */
@@ -83,25 +137,94 @@ public class MonthPage extends ViewGroup implements OnClickListener {
 
       public MonthPage ( Context context, MonthLayout parent, MonthDayViewFactory factory ) {
 
+            this( context, parent, factory, false );
+      }
+
+      /**
+       * @param deferCells true:先不创建子view,之后通过{@link #buildNextCellRow()}逐行创建,
+       *     创建完成之前页面只能计算高度,不会绘制任何内容
+       */
+      MonthPage ( Context context, MonthLayout parent, MonthDayViewFactory factory, boolean deferCells ) {
+
             super( context );
             mParent = parent;
-            init( factory );
+            init( factory, deferCells );
       }
 
       /**
        * 初始化
        */
-      private void init ( MonthDayViewFactory factory ) {
-
-            /*每个月最多使用7列6行个子view就能包含所有日期*/
-            for( int i = 0; i < 6 * 7; i++ ) {
-                  View child = factory.generateItemView( getContext() );
-                  addView( child );
-                  child.setOnClickListener( this );
-            }
+      private void init ( MonthDayViewFactory factory, boolean deferCells ) {
 
+            mFactory = factory;
             mMoveHelper = new MoveHelper();
             mStateManager = new StateManager();
+
+            if( !deferCells ) {
+                  buildAllCells();
+            }
+      }
+
+      /**
+       * 页面被其他{@link MonthLayout}复用时,更换父布局
+       */
+      void setParent ( MonthLayout parent ) {
+
+            mParent = parent;
+      }
+
+      /**
+       * @return 创建子view使用的工厂
+       */
+      MonthDayViewFactory getFactory ( ) {
+
+            return mFactory;
+      }
+
+      /**
+       * 创建一行子view,全部创建完成后绑定数据
+       *
+       * @return true:还有没有创建的子view
+       */
+      boolean buildNextCellRow ( ) {
+
+            int count = getChildCount();
+            int end = Math.min( count + 7, CELL_COUNT );
+            for( int i = count; i < end; i++ ) {
+                  addCell();
+            }
+
+            if( hasCells() ) {
+                  bindPendingIfNeed();
+                  return false;
+            }
+            return true;
+      }
+
+      /**
+       * 创建所有没有创建的子view
+       */
+      void buildAllCells ( ) {
+
+            for( int i = getChildCount(); i < CELL_COUNT; i++ ) {
+                  addCell();
+            }
+            bindPendingIfNeed();
+      }
+
+      private void addCell ( ) {
+
+            View child = mFactory.generateItemView( getContext() );
+            addView( child );
+            child.setOnClickListener( this );
+      }
+
+      /**
+       * @return true:子view已经全部创建
+       */
+      boolean hasCells ( ) {
+
+            return getChildCount() == CELL_COUNT;
       }
 
       /**
@@ -178,6 +301,50 @@ public class MonthPage extends ViewGroup implements OnClickListener {
        */
       void setInfo ( Date date, int position, boolean isFirstDayMonday, boolean monthMode ) {
 
+            mSnapshot = null;
+            isBindPending = false;
+            setPageInfo( date, position, isFirstDayMonday, monthMode );
+            bindChildren();
+      }
+
+      /**
+       * 设置页面显示信息,但是先使用快照显示,直到{@link #bindPendingIfNeed()}才绑定子view
+       *
+       * @param snapshot 该页面的快照, null:绑定之前显示为空白占位
+       */
+      void setInfoWithSnapshot ( Date date, int position, boolean isFirstDayMonday, boolean monthMode, Bitmap snapshot ) {
+
+            mSnapshot = snapshot;
+            isBindPending = true;
+            setPageInfo( date, position, isFirstDayMonday, monthMode );
+            /* 布局时检查快照尺寸,不在绘制过程中绑定 */
+            requestLayout();
+            invalidate();
+      }
+
+      /**
+       * 如果还在使用快照显示,那么绑定子view,使用真实的view显示;子view没有创建完成时等待创建完成
+       */
+      void bindPendingIfNeed ( ) {
+
+            if( isBindPending && hasCells() ) {
+                  isBindPending = false;
+                  mSnapshot = null;
+                  bindChildren();
+                  invalidate();
+            }
+      }
+
+      /**
+       * @return true:子view还没有绑定数据,正在使用快照显示或者子view还没有创建完成
+       */
+      boolean isBindPending ( ) {
+
+            return isBindPending;
+      }
+
+      private void setPageInfo ( Date date, int position, boolean isFirstDayMonday, boolean monthMode ) {
+
             mDate = date;
             mPosition = position;
 
@@ -188,7 +355,6 @@ public class MonthPage extends ViewGroup implements OnClickListener {
             }
 
             calculateMonthInfo( isFirstDayMonday, date );
-            bindChildren();
       }
 
       /**
@@ -199,8 +365,9 @@ public class MonthPage extends ViewGroup implements OnClickListener {
        */
       private void calculateMonthInfo ( boolean isFirstDayMonday, Date date ) {
 
-            mMonthDayCount = CalendarUtils.getDayCountOfMonth( date );
-            int dayOfWeek = CalendarUtils.getDayOfWeekAtMonthFirstDay( date );
+            int monthInfo = CalendarUtils.getMonthInfo( date );
+            mMonthDayCount = CalendarUtils.getDayCountOfMonthInfo( monthInfo );
+            int dayOfWeek = CalendarUtils.getDayOfWeekAtMonthInfo( monthInfo );
             if( isFirstDayMonday ) {
                   if( dayOfWeek == 1 ) {
                         mFirstDayOffset = 6;
@@ -210,6 +377,9 @@ public class MonthPage extends ViewGroup implements OnClickListener {
             } else {
                   mFirstDayOffset = dayOfWeek - 1;
             }
+
+            /* 不绑定子view也可以计算出折叠高度 */
+            mCurrentSelectedPosition = mFirstDayOffset + CalendarUtils.getDayOfMonth( date ) - 1;
       }
 
       /**
@@ -217,15 +387,27 @@ public class MonthPage extends ViewGroup implements OnClickListener {
        */
       private void bindChildren ( ) {
 
+            /* 子view还没有创建完成,创建完成之后再绑定 */
+            if( !hasCells() ) {
+                  isBindPending = true;
+                  return;
+            }
+
             int childCount = getChildCount();
             int offset = -mFirstDayOffset;
 
             Date firstDayOfMonth = CalendarUtils.getFirstDayOfMonth( mDate );
+            DayDecorations decorations = fetchDecorations( firstDayOfMonth );
+            int firstDay = getFirstCellDay( firstDayOfMonth );
+            mSpanLayout = mParent.obtainSpanLayout( firstDay );
+            DaySelection selection = mParent.getDaySelection();
+            boolean isSingleMode = selection.getMode() == DaySelection.MODE_SINGLE;
 
             for( int i = 0; i < childCount; i++ ) {
                   MonthDayView child = (MonthDayView) getChildAt( i );
                   Date day = CalendarUtils.getDateByAddDay( firstDayOfMonth, offset );
                   child.bind( day );
+                  child.bindDecoration( decorations, i );
 
                   if( offset < 0 || offset > mMonthDayCount - 1 ) {
                         if( mStateManager.getState() == STATE_FOLDED ) {
@@ -238,14 +420,17 @@ public class MonthPage extends ViewGroup implements OnClickListener {
                   }
 
                   if( mDate.equals( day ) ) {
-                        child.setState( SELECTED );
                         mCurrentSelectedPosition = i;
+                  }
+                  if( isSingleMode ) {
+                        child.setState( mDate.equals( day ) ? SELECTED : UNSELECTED );
                   } else {
-                        child.setState( UNSELECTED );
+                        child.setState( selection.getCellState( firstDay + i ) );
                   }
 
                   offset++;
             }
+            bindHeatMap( firstDay, 0, childCount - 1 );
       }
 
       @Override
@@ -258,8 +443,8 @@ public class MonthPage extends ViewGroup implements OnClickListener {
             mCellHeight = mParent.getCellHeight();
 
             /* 如果需要测量,那么测量所有child */
-            View view = getChildAt( 0 );
-            if( view.getMeasuredWidth() != cellWidth || view.getMeasuredHeight() != mCellHeight ) {
+            View view = getChildAt( getChildCount() - 1 );
+            if( view != null && ( view.getMeasuredWidth() != cellWidth || view.getMeasuredHeight() != mCellHeight ) ) {
                   int cellWidthSpec = MeasureSpec.makeMeasureSpec( cellWidth, MeasureSpec.EXACTLY );
                   int cellHeightSpec = MeasureSpec.makeMeasureSpec( mCellHeight, MeasureSpec.EXACTLY );
 
@@ -292,11 +477,15 @@ public class MonthPage extends ViewGroup implements OnClickListener {
       protected void onLayout ( boolean changed, int l, int t, int r, int b ) {
 
             View child = getChildAt( 0 );
+            if( child == null ) {
+                  return;
+            }
             int cellWidth = child.getMeasuredWidth();
             int cellHeight = child.getMeasuredHeight();
 
             int count = getChildCount();
             int topMoved = mMoveHelper.mTopMoved;
+            mAppliedTopMoved = topMoved;
             for( int i = 0; i < count; i++ ) {
                   View view = getChildAt( i );
                   int left = ( i % 7 ) * cellWidth;
@@ -308,6 +497,317 @@ public class MonthPage extends ViewGroup implements OnClickListener {
                       top + view.getMeasuredHeight() + topMoved
                   );
             }
+
+            /* 快照尺寸与页面不一致时已经过期,在绘制之前绑定真实数据 */
+            if( mSnapshot != null && ( mSnapshot.getWidth() != r - l || mSnapshot.getHeight() != b - t ) ) {
+                  bindPendingIfNeed();
+            }
+      }
+
+      /**
+       * 从{@link DayDecorationSource}获取页面显示范围内每天的装饰数据
+       *
+       * @param firstDayOfMonth 本月第一天
+       *
+       * @return 装饰数据, 没有设置数据源时返回null
+       */
+      private DayDecorations fetchDecorations ( Date firstDayOfMonth ) {
+
+            DayDecorationSource source = mParent.getDayDecorationSource();
+            if( source == null ) {
+                  mDecorations = null;
+                  return null;
+            }
+
+            if( mDecorations == null ) {
+                  mDecorations = new DayDecorations( CELL_COUNT );
+            }
+            int firstDay = getFirstCellDay( firstDayOfMonth );
+            mDecorations.reset( firstDay, CELL_COUNT );
+            mParent.fillDecorations( source, firstDay, mDecorations );
+            return mDecorations;
+      }
+
+      /**
+       * 重新获取装饰数据,只为数量,颜色,标记发生变化的子view重新绑定
+       *
+       * @param firstDayOfMonth 本月第一天
+       * @param from 第一个子view
+       * @param to 最后一个子view,包含
+       */
+      private void rebindChangedDecorations ( Date firstDayOfMonth, int from, int to ) {
+
+            DayDecorationSource source = mParent.getDayDecorationSource();
+            int firstDay = getFirstCellDay( firstDayOfMonth );
+
+            /* 之前没有数据或者范围不同,全部重新绑定 */
+            if( source == null || mDecorations == null || mDecorations.getFirstDay() != firstDay ) {
+                  DayDecorations decorations = fetchDecorations( firstDayOfMonth );
+                  for( int i = from; i <= to; i++ ) {
+                        ( (MonthDayView) getChildAt( i ) ).bindDecoration( decorations, i );
+                  }
+                  return;
+            }
+
+            if( mFetchedDecorations == null ) {
+                  mFetchedDecorations = new DayDecorations( CELL_COUNT );
+            }
+            mFetchedDecorations.reset( firstDay, CELL_COUNT );
+            mParent.fillDecorations( source, firstDay, mFetchedDecorations );
+
+            /* 子view引用的是mDecorations,先记下变化的位置再复制 */
+            long changed = 0;
+            for( int i = from; i <= to; i++ ) {
+                  if( !mDecorations.isSameAt( mFetchedDecorations, i ) ) {
+                        changed |= 1L << i;
+                  }
+            }
+            mDecorations.copyFrom( mFetchedDecorations );
+            for( int i = from; i <= to; i++ ) {
+                  if( ( changed & ( 1L << i ) ) != 0 ) {
+                        ( (MonthDayView) getChildAt( i ) ).bindDecoration( mDecorations, i );
+                  }
+            }
+      }
+
+      /**
+       * @return 第一个子view显示的天 {@link DayKeys}
+       */
+      int getFirstCellDay ( ) {
+
+            return getFirstCellDay( CalendarUtils.getFirstDayOfMonth( mDate ) );
+      }
+
+      private int getFirstCellDay ( Date firstDayOfMonth ) {
+
+            return DayKeys.fromDate( firstDayOfMonth ) - mFirstDayOffset;
+      }
+
+      /**
+       * 根据坐标直接计算所在的子view,不需要遍历子view
+       *
+       * @param x 相对于页面的坐标
+       * @param y 相对于页面的坐标
+       *
+       * @return 子view的位置, 没有显示日期时返回{@link #NO_CELL}
+       */
+      int findCellAt ( float x, float y ) {
+
+            if( isBindPending || !hasCells() || mDate == null ) {
+                  return NO_CELL;
+            }
+
+            int cellWidth = mParent.getCellWidth();
+            float top = y - mAppliedTopMoved;
+            if( cellWidth <= 0 || mCellHeight <= 0 || x < 0 || top < 0 || y >= getHeight() ) {
+                  return NO_CELL;
+            }
+
+            int column = (int) ( x / cellWidth );
+            int row = (int) ( top / mCellHeight );
+            if( column >= 7 || row >= 6 ) {
+                  return NO_CELL;
+            }
+
+            int index = row * 7 + column;
+            if( getChildAt( index ).getVisibility() != VISIBLE ) {
+                  return NO_CELL;
+            }
+            return index;
+      }
+
+      /**
+       * 该范围内的天的数据变化,只重绘显示这些天的子view;设置了装饰数据源时重新获取一次装饰数据
+       *
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       * @param refetchDecorations false:装饰数据正在异步重新加载,完成后会单独更新,此时保留旧数据
+       */
+      void notifyDaysChanged ( int startDay, int endDay, boolean refetchDecorations ) {
+
+            /* 还没有绑定的页面绑定时会获取最新数据 */
+            if( isBindPending || !hasCells() || mDate == null ) {
+                  return;
+            }
+
+            Date firstDayOfMonth = CalendarUtils.getFirstDayOfMonth( mDate );
+            int firstDay = getFirstCellDay( firstDayOfMonth );
+            int from = Math.max( startDay, firstDay ) - firstDay;
+            int to = Math.min( endDay, firstDay + CELL_COUNT - 1 ) - firstDay;
+            if( from > to ) {
+                  return;
+            }
+
+            if( refetchDecorations ) {
+                  rebindChangedDecorations( firstDayOfMonth, from, to );
+            }
+            bindHeatMap( firstDay, from, to );
+
+            /* 跨越多天的事件可能改变整个页面的分行 */
+            if( mSpanLayout != null || mParent.getDaySpanSource() != null ) {
+                  mSpanLayout = mParent.obtainSpanLayout( firstDay );
+                  invalidate();
+            }
+      }
+
+      /**
+       * 选中的日期变化,只更新该范围内子view的状态
+       *
+       * @param startDay 第一天 {@link DayKeys}
+       * @param endDay 最后一天 {@link DayKeys},包含
+       */
+      void notifySelectionChanged ( int startDay, int endDay ) {
+
+            if( isBindPending || !hasCells() || mDate == null ) {
+                  return;
+            }
+
+            Date firstDayOfMonth = CalendarUtils.getFirstDayOfMonth( mDate );
+            int firstDay = getFirstCellDay( firstDayOfMonth );
+            int from = (int) Math.max( (long) startDay - firstDay, 0 );
+            int to = (int) Math.min( (long) endDay - firstDay, CELL_COUNT - 1 );
+
+            DaySelection selection = mParent.getDaySelection();
+            boolean isSingleMode = selection.getMode() == DaySelection.MODE_SINGLE;
+            for( int i = from; i <= to; i++ ) {
+                  MonthDayView child = (MonthDayView) getChildAt( i );
+                  if( isSingleMode ) {
+                        child.setState( i == mCurrentSelectedPosition ? SELECTED : UNSELECTED );
+                  } else {
+                        child.setState( selection.getCellState( firstDay + i ) );
+                  }
+            }
+      }
+
+      /**
+       * 装饰数据变化,只重新获取装饰数据,不重新绑定日期;只有数据变化的子view重新绑定
+       */
+      void rebindDecorations ( ) {
+
+            if( isBindPending || !hasCells() ) {
+                  return;
+            }
+
+            Date firstDayOfMonth = CalendarUtils.getFirstDayOfMonth( mDate );
+            int childCount = getChildCount();
+            rebindChangedDecorations( firstDayOfMonth, 0, childCount - 1 );
+            int firstDay = getFirstCellDay( firstDayOfMonth );
+            bindHeatMap( firstDay, 0, childCount - 1 );
+            SpanLayout spanLayout = mParent.obtainSpanLayout( firstDay );
+            if( spanLayout != mSpanLayout ) {
+                  mSpanLayout = spanLayout;
+                  invalidate();
+            }
+      }
+
+      /**
+       * 计算整个页面每天的占用,只设置该范围内子view的热力图颜色;绘制时子view直接使用颜色
+       *
+       * @param firstDay 页面第一天 {@link DayKeys}
+       * @param from 第一个子view
+       * @param to 最后一个子view,包含
+       */
+      private void bindHeatMap ( int firstDay, int from, int to ) {
+
+            HeatMapRamp ramp = mParent.getHeatMapRamp();
+            if( mParent.getDayOccupancySource() == null || ramp == null ) {
+                  for( int i = from; i <= to; i++ ) {
+                        ( (MonthDayView) getChildAt( i ) ).bindHeatColor( 0 );
+                  }
+                  return;
+            }
+
+            if( mBusyMinutes == null ) {
+                  mBusyMinutes = new int[ CELL_COUNT ];
+            }
+            mParent.fillOccupancy( firstDay, mBusyMinutes );
+            for( int i = from; i <= to; i++ ) {
+                  ( (MonthDayView) getChildAt( i ) ).bindHeatColor( ramp.getColor( mBusyMinutes[ i ] ) );
+            }
+      }
+
+      /**
+       * 在子view之上绘制跨越多天的事件,每一段从该周第一个可见的天画到最后一个可见的天,每段一次绘制
+       */
+      private void drawSpans ( Canvas canvas ) {
+
+            SpanLayout layout = mSpanLayout;
+            if( layout == null || layout.getSegmentCount() == 0 ) {
+                  return;
+            }
+
+            if( sSpanPaint == null ) {
+                  sSpanPaint = new Paint();
+            }
+
+            int segmentCount = layout.getSegmentCount();
+            for( int i = 0; i < segmentCount; i++ ) {
+                  int rowStart = layout.getSegmentWeek( i ) * 7;
+                  int startColumn = layout.getSegmentStartColumn( i );
+                  int endColumn = layout.getSegmentEndColumn( i );
+
+                  /* 展开时其他月份的天不可见,段只覆盖可见的天 */
+                  while( startColumn <= endColumn && getChildAt( rowStart + startColumn ).getVisibility() != VISIBLE ) {
+                        startColumn++;
+                  }
+                  while( endColumn >= startColumn && getChildAt( rowStart + endColumn ).getVisibility() != VISIBLE ) {
+                        endColumn--;
+                  }
+                  if( startColumn > endColumn ) {
+                        continue;
+                  }
+
+                  View first = getChildAt( rowStart + startColumn );
+                  View last = getChildAt( rowStart + endColumn );
+                  int barHeight = Math.max( first.getHeight() / 10, 2 );
+                  int inset = Math.max( barHeight / 3, 1 );
+                  float bottom = first.getBottom() - inset - layout.getSegmentLane( i ) * ( barHeight + inset );
+
+                  sSpanPaint.setColor( layout.getSegmentColor( i ) );
+                  canvas.drawRect( first.getLeft() + inset, bottom - barHeight, last.getRight() - inset, bottom, sSpanPaint );
+            }
+      }
+
+      @Override
+      protected void dispatchDraw ( Canvas canvas ) {
+
+            /* 子view没有创建完成时作为占位页面,不绘制内容 */
+            if( !hasCells() ) {
+                  return;
+            }
+
+            /* 跳转经过的页面没有快照时,绑定之前同样作为空白占位 */
+            if( isBindPending && mSnapshot == null ) {
+                  return;
+            }
+
+            if( mSnapshot != null ) {
+                  /* 快照尺寸不一致时已经过期,下一次布局时绑定,此前作为空白占位 */
+                  if( mSnapshot.getWidth() == getWidth() && mSnapshot.getHeight() == getHeight() ) {
+                        canvas.drawBitmap( mSnapshot, 0, 0, null );
+                  }
+                  return;
+            }
+
+            super.dispatchDraw( canvas );
+            drawSpans( canvas );
+      }
+
+      /**
+       * 不重新布局,直接偏移子view至{@link MoveHelper#mTopMoved}
+       */
+      void offsetCellsToMoved ( ) {
+
+            int delta = mMoveHelper.mTopMoved - mAppliedTopMoved;
+            if( delta == 0 ) {
+                  return;
+            }
+
+            mAppliedTopMoved = mMoveHelper.mTopMoved;
+            int count = getChildCount();
+            for( int i = 0; i < count; i++ ) {
+                  getChildAt( i ).offsetTopAndBottom( delta );
+            }
       }
 
       /**
@@ -327,12 +827,22 @@ public class MonthPage extends ViewGroup implements OnClickListener {
       public void onClick ( View v ) {
 
             int state = mStateManager.getState();
-            if( state == STATE_MOVING || state == STATE_ANIMATE ) {
+            if( state == STATE_MOVING || state == STATE_ANIMATE || isBindPending ) {
                   return;
             }
 
             MonthDayView itemView = (MonthDayView) v;
             Date date = itemView.getDate();
+            DaySelection selection = mParent.getDaySelection();
+            selection.onDayClicked( DayKeys.fromDate( date ) );
+
+            /* 多选以及范围选择时每次点击都改变了选择,只更新本页选中的位置,不重新设置基准日期,其他页面不需要重新绑定 */
+            if( selection.getMode() != DaySelection.MODE_SINGLE ) {
+                  mCurrentSelectedPosition = indexOfChild( v );
+                  mParent.dispatchNewDateClick( date );
+                  return;
+            }
+
             /* 日期变化了 */
             if( !date.equals( mDate ) ) {
                   mParent.onNewDateClicked( date, mPosition );
@@ -359,6 +869,22 @@ public class MonthPage extends ViewGroup implements OnClickListener {
             return mMoveHelper.expandFoldBy( dy );
       }
 
+      /**
+       * 使用惯性滑动展开或者折叠,惯性停止后如果还没有完成,继续以动画完成
+       *
+       * @param velocity 速度,像素/秒,大于0为展开方向,小于0为折叠方向
+       *
+       * @return true:开始惯性滑动
+       */
+      boolean onFling ( float velocity ) {
+
+            if( velocity == 0 || isBindPending ) {
+                  return false;
+            }
+            mMoveHelper.flingBy( velocity );
+            return true;
+      }
+
       /**
        * 辅助方法当手指抬起后调用
        *
@@ -415,6 +941,10 @@ public class MonthPage extends ViewGroup implements OnClickListener {
 
             private void updateChildrenVisibility ( ) {
 
+                  if( !hasCells() ) {
+                        return;
+                  }
+
                   for( int i = 0; i < mFirstDayOffset; i++ ) {
                         MonthDayView child = (MonthDayView) getChildAt( i );
                         if( mStateManager.getState() == STATE_FOLDED ) {
@@ -472,6 +1002,18 @@ public class MonthPage extends ViewGroup implements OnClickListener {
              * 手势释放后,需要收缩或者折叠时,用于计算方向,只有两个值1或者-1
              */
             private int mDirection = 0;
+            /**
+             * 用于惯性展开折叠
+             */
+            private OverScroller mScroller;
+            /**
+             * 惯性滑动上一次的位置
+             */
+            private int          mFlingLastY;
+            /**
+             * 是否正在惯性滑动
+             */
+            private boolean      isFlinging;
 
             /**
              * 将页面移动一段距离,按照比例分配给上下需要移动的距离
@@ -583,13 +1125,73 @@ public class MonthPage extends ViewGroup implements OnClickListener {
              */
             private void animateIfNeed ( ) {
 
+                  if( isFlinging ) {
+                        if( flingIfNeed() ) {
+                              return;
+                        }
+                  }
+
                   if( needMockMove() ) {
                         if( calculateMovedBy( mDirection * mCellHeight / 4f ) ) {
                               mParent.onCurrentPageExpandFolding( getMovedMeasureHeight() );
                         }
+                        ViewCompat.postInvalidateOnAnimation( MonthPage.this );
                   }
             }
 
+            /**
+             * 以速度开始惯性滑动,移动范围为完全折叠到完全展开
+             *
+             * @param velocity 速度,大于0为展开方向
+             */
+            private void flingBy ( float velocity ) {
+
+                  if( mScroller == null ) {
+                        mScroller = new OverScroller( getContext() );
+                  }
+
+                  mDirection = velocity > 0 ? 1 : -1;
+                  mStateManager.setState( STATE_ANIMATE );
+
+                  /* 上下偏移之和即为已经折叠的距离 */
+                  int start = mTopMoved + mBottomMoved;
+                  int min = -( mPageHeight - mCellHeight );
+                  mFlingLastY = start;
+                  mScroller.fling( 0, start, 0, (int) velocity, 0, 0, min, 0 );
+                  isFlinging = true;
+                  ViewCompat.postInvalidateOnAnimation( MonthPage.this );
+            }
+
+            /**
+             * 计算惯性滑动一帧
+             *
+             * @return true:惯性滑动还在继续
+             */
+            private boolean flingIfNeed ( ) {
+
+                  if( mStateManager.getState() != STATE_ANIMATE || !mScroller.computeScrollOffset() ) {
+                        isFlinging = false;
+                        return false;
+                  }
+
+                  int y = mScroller.getCurrY();
+                  int dy = y - mFlingLastY;
+                  mFlingLastY = y;
+                  if( dy != 0 && calculateMovedBy( dy ) ) {
+                        mParent.onCurrentPageExpandFolding( getMovedMeasureHeight() );
+                  }
+
+                  /* 已经完全展开或者折叠 */
+                  if( !needMockMove() ) {
+                        mScroller.abortAnimation();
+                        isFlinging = false;
+                        return true;
+                  }
+
+                  ViewCompat.postInvalidateOnAnimation( MonthPage.this );
+                  return true;
+            }
+
             /**
              * 判断是否已经完成折叠或者展开
              *
@@ -633,6 +1235,10 @@ public class MonthPage extends ViewGroup implements OnClickListener {
                   if( mStateManager.getState() == STATE_ANIMATE ) {
                         mStateManager.setState( STATE_MOVING );
                   }
+                  if( isFlinging ) {
+                        isFlinging = false;
+                        mScroller.abortAnimation();
+                  }
             }
 
             /**
@@ -0,0 +1,287 @@
+package tech.liujin.calendar.month;
+
+import android.os.Looper;
+import android.os.MessageQueue.IdleHandler;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import tech.liujin.calendar.month.MonthLayout.MonthDayViewFactory;
+
+/**
+ * 回收{@link MonthPage}的有界缓存池,可以在首帧绘制之后利用主线程空闲时间预先创建页面,
+ * 记录命中/未命中次数用于调整容量
+ * <p>
+ * 记录每个工厂有多少布局在使用,没有布局使用的工厂创建的页面不再保留,不会一直占用容量
+ *
+ * @author Liujin 2019/4/23:14:05:18
+ */
+public class MonthPagePool {
+
+      /**
+       * 默认容量
+       */
+      public static final int DEFAULT_CAPACITY = 3;
+
+      /**
+       * 回收的页面
+       */
+      private LinkedList<MonthPage> mPages = new LinkedList<>();
+      /**
+       * 最多缓存的页面数量
+       */
+      private int                   mCapacity;
+
+      /**
+       * 从池中取到页面的次数
+       */
+      private int mHitCount;
+      /**
+       * 池中没有合适的页面需要新建页面的次数
+       */
+      private int mMissCount;
+      /**
+       * 池已满丢弃页面的次数
+       */
+      private int mDropCount;
+
+      /**
+       * 工厂 -> 使用该工厂的布局数量
+       */
+      private HashMap<MonthDayViewFactory, Integer> mFactoryUsers = new HashMap<>();
+
+      /**
+       * 每个布局各自的预先创建任务,取消时只取消自己的
+       */
+      private ArrayList<PrewarmIdleHandler> mPrewarmHandlers = new ArrayList<>();
+
+      public MonthPagePool ( int capacity ) {
+
+            mCapacity = Math.max( capacity, 0 );
+      }
+
+      /**
+       * 取出一个使用该工厂创建子view的回收页面,缓存池被多个布局共享时,它们可能使用不同的工厂
+       *
+       * @param factory 创建子view的工厂
+       *
+       * @return 页面, 没有合适的页面时返回null, 此时需要新建
+       */
+      MonthPage acquire ( MonthDayViewFactory factory ) {
+
+            MonthPage page = poll( factory );
+            if( page != null ) {
+                  mHitCount++;
+            } else {
+                  mMissCount++;
+            }
+            return page;
+      }
+
+      /**
+       * 与{@link #acquire(MonthDayViewFactory)}相同,但是不计入统计,用于预取等内部操作
+       */
+      MonthPage poll ( MonthDayViewFactory factory ) {
+
+            Iterator<MonthPage> iterator = mPages.iterator();
+            while( iterator.hasNext() ) {
+                  MonthPage page = iterator.next();
+                  if( page.getFactory() == factory ) {
+                        iterator.remove();
+                        return page;
+                  }
+            }
+            return null;
+      }
+
+      /**
+       * 布局开始使用该工厂创建页面
+       *
+       * @param factory 创建子view的工厂
+       */
+      void addFactoryUser ( MonthDayViewFactory factory ) {
+
+            Integer count = mFactoryUsers.get( factory );
+            mFactoryUsers.put( factory, count == null ? 1 : count + 1 );
+      }
+
+      /**
+       * 布局不再使用该工厂,没有其他布局使用时丢弃该工厂创建的页面
+       *
+       * @param factory 创建子view的工厂
+       */
+      void removeFactoryUser ( MonthDayViewFactory factory ) {
+
+            Integer count = mFactoryUsers.get( factory );
+            if( count == null ) {
+                  return;
+            }
+            if( count > 1 ) {
+                  mFactoryUsers.put( factory, count - 1 );
+                  return;
+            }
+
+            mFactoryUsers.remove( factory );
+            Iterator<MonthPage> iterator = mPages.iterator();
+            while( iterator.hasNext() ) {
+                  if( iterator.next().getFactory() == factory ) {
+                        iterator.remove();
+                  }
+            }
+      }
+
+      /**
+       * 回收页面
+       *
+       * @param page 页面
+       *
+       * @return true:已经回收,false:池已满或者没有布局使用它的工厂,页面被丢弃
+       */
+      boolean release ( MonthPage page ) {
+
+            if( offer( page ) ) {
+                  return true;
+            }
+            mDropCount++;
+            return false;
+      }
+
+      /**
+       * 与{@link #release(MonthPage)}相同,但是不计入统计,用于预取等内部操作
+       */
+      boolean offer ( MonthPage page ) {
+
+            if( mPages.size() >= mCapacity || !mFactoryUsers.containsKey( page.getFactory() ) ) {
+                  return false;
+            }
+            mPages.addLast( page );
+            return true;
+      }
+
+      /**
+       * 在主线程空闲时创建页面,直至池中有{@code count}个页面(不超过容量),每次空闲只创建一个
+       *
+       * @param layout 用于创建页面
+       * @param count 需要的页面数量
+       */
+      void prewarm ( MonthLayout layout, int count ) {
+
+            cancelPrewarm( layout );
+            int target = Math.min( count, mCapacity );
+            if( mPages.size() >= target ) {
+                  return;
+            }
+
+            PrewarmIdleHandler handler = new PrewarmIdleHandler( layout, target );
+            mPrewarmHandlers.add( handler );
+            Looper.myQueue().addIdleHandler( handler );
+      }
+
+      /**
+       * 取消该布局没有完成的预创建,其他布局共享该池时不受影响
+       *
+       * @param layout 布局
+       */
+      void cancelPrewarm ( MonthLayout layout ) {
+
+            for( int i = mPrewarmHandlers.size() - 1; i >= 0; i-- ) {
+                  PrewarmIdleHandler handler = mPrewarmHandlers.get( i );
+                  if( handler.mLayout == layout ) {
+                        Looper.myQueue().removeIdleHandler( handler );
+                        mPrewarmHandlers.remove( i );
+                  }
+            }
+      }
+
+      /**
+       * 清空池中页面
+       */
+      public void clear ( ) {
+
+            for( PrewarmIdleHandler handler : mPrewarmHandlers ) {
+                  Looper.myQueue().removeIdleHandler( handler );
+            }
+            mPrewarmHandlers.clear();
+            mPages.clear();
+      }
+
+      /**
+       * 设置容量,超出容量的页面会被丢弃
+       *
+       * @param capacity 容量
+       */
+      public void setCapacity ( int capacity ) {
+
+            mCapacity = Math.max( capacity, 0 );
+            while( mPages.size() > mCapacity ) {
+                  mPages.pollLast();
+            }
+      }
+
+      public int getCapacity ( ) {
+
+            return mCapacity;
+      }
+
+      /**
+       * @return 池中现有页面数量
+       */
+      public int size ( ) {
+
+            return mPages.size();
+      }
+
+      public int getHitCount ( ) {
+
+            return mHitCount;
+      }
+
+      public int getMissCount ( ) {
+
+            return mMissCount;
+      }
+
+      public int getDropCount ( ) {
+
+            return mDropCount;
+      }
+
+      /**
+       * 重置统计数据
+       */
+      public void resetStatistics ( ) {
+
+            mHitCount = 0;
+            mMissCount = 0;
+            mDropCount = 0;
+      }
+
+      /**
+       * 每次空闲创建一个页面
+       */
+      private class PrewarmIdleHandler implements IdleHandler {
+
+            private MonthLayout mLayout;
+            private int         mTarget;
+
+            private PrewarmIdleHandler ( MonthLayout layout, int target ) {
+
+                  mLayout = layout;
+                  mTarget = target;
+            }
+
+            @Override
+            public boolean queueIdle ( ) {
+
+                  if( mPages.size() < mTarget && mPages.size() < mCapacity ) {
+                        mPages.addLast( mLayout.createPage() );
+                  }
+
+                  boolean hasMore = mPages.size() < mTarget && mPages.size() < mCapacity;
+                  if( !hasMore ) {
+                        mPrewarmHandlers.remove( this );
+                  }
+                  return hasMore;
+            }
+      }
+}
@@ -0,0 +1,274 @@
+package tech.liujin.calendar.month;
+
+import android.os.Looper;
+import android.os.MessageQueue.IdleHandler;
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+/**
+ * 根据最近几次翻页的方向和速度预测下一次翻页方向,在主线程空闲时提前绑定前方一到两页,
+ * {@link MonthLayout}创建页面时直接取用,不需要再绑定;方向改变后,另一侧提前绑定的页面立即回收
+ * <p>
+ * pager自身已经保留了当前页面两侧各一页,所以只预取这之外的页面;pager保留的后方一页无法提前释放,
+ * 后方的快照由{@link PageSnapshotCache#setDirection(int)}释放
+ * <p>
+ * 预取使用的页面不计入缓存池的命中统计
+ *
+ * @author Liujin 2019/4/27:10:21:36
+ */
+class PagePrefetcher {
+
+      /**
+       * 记录最近几次翻页
+       */
+      private static final int HISTORY_SIZE  = 3;
+      /**
+       * 两次翻页间隔小于该值时认为是快速翻页,预取两页
+       */
+      private static final int FAST_INTERVAL = 600;
+      /**
+       * 最多预取的页数
+       */
+      private static final int MAX_DISTANCE  = 2;
+
+      private MonthLayout            mParent;
+      /**
+       * 位置 -> 已经绑定的预取页面
+       */
+      private SparseArray<MonthPage> mPrefetched = new SparseArray<>( MAX_DISTANCE );
+
+      /**
+       * 最近几次翻页方向,1:向后,-1:向前,循环使用
+       */
+      private int[] mDirections = new int[ HISTORY_SIZE ];
+      private int   mHistoryIndex;
+      private int   mLastPosition;
+      private long  mLastSelectedTime;
+
+      /**
+       * 预测的方向,0:无法预测
+       */
+      private int mDirection;
+      /**
+       * 预取的页数
+       */
+      private int mDistance;
+
+      private PrefetchIdleHandler mIdleHandler = new PrefetchIdleHandler();
+      private boolean             isScheduled;
+
+      PagePrefetcher ( MonthLayout parent, int position ) {
+
+            mParent = parent;
+            mLastPosition = position;
+      }
+
+      /**
+       * 选中新页面时更新预测,回收另一侧的页面,并且安排空闲时预取
+       *
+       * @param position 新的页面位置
+       */
+      void onPageSelected ( int position ) {
+
+            int delta = position - mLastPosition;
+            mLastPosition = position;
+            if( delta == 0 ) {
+                  return;
+            }
+
+            long now = SystemClock.uptimeMillis();
+            boolean isFast = now - mLastSelectedTime < FAST_INTERVAL;
+            mLastSelectedTime = now;
+
+            mDirections[ mHistoryIndex ] = delta > 0 ? 1 : -1;
+            mHistoryIndex = ( mHistoryIndex + 1 ) % HISTORY_SIZE;
+            predict( delta, isFast );
+
+            releaseOutside( position );
+            schedule();
+      }
+
+      /**
+       * 最近一次翻页权重最大,与之前的方向一致并且翻得快时预取两页
+       */
+      private void predict ( int delta, boolean isFast ) {
+
+            int score = 0;
+            for( int direction : mDirections ) {
+                  score += direction;
+            }
+            score += delta > 0 ? 1 : -1;
+
+            mDirection = score > 0 ? 1 : score < 0 ? -1 : 0;
+            boolean isSteady = Math.abs( score ) > HISTORY_SIZE;
+            mDistance = isFast && isSteady ? MAX_DISTANCE : 1;
+      }
+
+      /**
+       * @return 预测的方向, 1:向后,-1:向前,0:无法预测
+       */
+      int getDirection ( ) {
+
+            return mDirection;
+      }
+
+      /**
+       * 取出该位置预取的页面
+       *
+       * @param position 位置
+       *
+       * @return 已经绑定好的页面, 没有时返回null
+       */
+      MonthPage take ( int position ) {
+
+            MonthPage page = mPrefetched.get( position );
+            if( page != null ) {
+                  mPrefetched.remove( position );
+            }
+            return page;
+      }
+
+      /**
+       * 基准日期,显示模式,工厂等变化之后,预取的页面都已经失效
+       */
+      void clear ( ) {
+
+            int size = mPrefetched.size();
+            for( int i = 0; i < size; i++ ) {
+                  mParent.getPagePool().offer( mPrefetched.valueAt( i ) );
+            }
+            mPrefetched.clear();
+      }
+
+      /**
+       * 回收显示该范围内任意一天的页面,它们的数据已经失效
+       *
+       * @param startDay 第一天
+       * @param endDay 最后一天,包含
+       */
+      void release ( int startDay, int endDay ) {
+
+            for( int i = mPrefetched.size() - 1; i >= 0; i-- ) {
+                  int firstDay = mPrefetched.valueAt( i ).getFirstCellDay();
+                  if( firstDay <= endDay && firstDay + MonthPage.CELL_COUNT > startDay ) {
+                        mParent.getPagePool().offer( mPrefetched.valueAt( i ) );
+                        mPrefetched.removeAt( i );
+                  }
+            }
+            schedule();
+      }
+
+      /**
+       * 该页的装饰数据加载完成,第一天相同的预取页面重新获取装饰数据,否则会一直显示为等待加载
+       *
+       * @param firstDay 页面第一天
+       */
+      void rebindDecorations ( int firstDay ) {
+
+            int size = mPrefetched.size();
+            for( int i = 0; i < size; i++ ) {
+                  MonthPage page = mPrefetched.valueAt( i );
+                  if( page.getFirstCellDay() == firstDay ) {
+                        page.rebindDecorations();
+                  }
+            }
+      }
+
+      /**
+       * 取消空闲任务,并且回收页面
+       */
+      void release ( ) {
+
+            unSchedule();
+            clear();
+      }
+
+      void schedule ( ) {
+
+            if( isScheduled || mDirection == 0 ) {
+                  return;
+            }
+            isScheduled = true;
+            Looper.myQueue().addIdleHandler( mIdleHandler );
+      }
+
+      private void unSchedule ( ) {
+
+            if( isScheduled ) {
+                  isScheduled = false;
+                  Looper.myQueue().removeIdleHandler( mIdleHandler );
+            }
+      }
+
+      /**
+       * 回收不在预测范围内的页面
+       */
+      private void releaseOutside ( int current ) {
+
+            for( int i = mPrefetched.size() - 1; i >= 0; i-- ) {
+                  int position = mPrefetched.keyAt( i );
+                  if( !isAhead( current, position ) ) {
+                        mParent.getPagePool().offer( mPrefetched.valueAt( i ) );
+                        mPrefetched.removeAt( i );
+                  }
+            }
+      }
+
+      /**
+       * @return true:该位置在预测方向上需要预取
+       */
+      private boolean isAhead ( int current, int position ) {
+
+            int distance = ( position - current ) * mDirection;
+            return mDirection != 0 && distance > 1 && distance <= 1 + mDistance;
+      }
+
+      /**
+       * 预取一个缺少的页面
+       *
+       * @return true:还有需要预取的页面
+       */
+      private boolean prefetchNext ( ) {
+
+            /* 滚动中不预取,停止后再继续 */
+            if( mParent.isScrolling() || mDirection == 0 ) {
+                  return false;
+            }
+
+            int current = mParent.getCurrentItem();
+            for( int i = 2; i <= 1 + mDistance; i++ ) {
+                  int position = current + i * mDirection;
+                  if( mPrefetched.get( position ) != null || mParent.findPageAt( position ) != null ) {
+                        continue;
+                  }
+
+                  MonthPage page = mParent.getPagePool().poll( mParent.getMonthDayViewFactory() );
+                  if( page == null ) {
+                        page = mParent.createPage();
+                  } else {
+                        page.setParent( mParent );
+                        page.buildAllCells();
+                  }
+                  mParent.bindPage( page, position );
+                  mPrefetched.put( position, page );
+                  return true;
+            }
+            return false;
+      }
+
+      /**
+       * 每次空闲只预取一页,防止占用太久主线程
+       */
+      private class PrefetchIdleHandler implements IdleHandler {
+
+            @Override
+            public boolean queueIdle ( ) {
+
+                  boolean hasMore = prefetchNext();
+                  if( !hasMore ) {
+                        isScheduled = false;
+                  }
+                  return hasMore;
+            }
+      }
+}
@@ -0,0 +1,271 @@
+package tech.liujin.calendar.month;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+import android.os.Looper;
+import android.os.MessageQueue.IdleHandler;
+import android.util.LruCache;
+import android.view.View.MeasureSpec;
+
+/**
+ * {@link MonthLayout}相邻页面的快照缓存,主线程空闲时将当前页面前后的页面绘制成bitmap,
+ * 快速滑动时新页面先显示快照,等到pager停止滚动后再绑定真实数据
+ *
+ * @author Liujin 2019/4/22:10:12:40
+ */
+class PageSnapshotCache {
+
+      /**
+       * 默认缓存大小
+       */
+      static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+      /**
+       * 以当前页为中心,向前向后各缓存多少页
+       */
+      private static final int RANGE = 2;
+
+      /**
+       * 父布局
+       */
+      private MonthLayout               mParent;
+      /**
+       * 位置 -> 快照
+       */
+      private LruCache<Integer, Bitmap> mCache;
+      /**
+       * 用于绘制没有添加到pager中的位置,不会添加到界面上
+       */
+      private MonthPage                 mRenderPage;
+      /**
+       * 绘制快照使用的画布
+       */
+      private Canvas                    mCanvas = new Canvas();
+      /**
+       * 空闲时绘制快照
+       */
+      private RenderIdleHandler         mIdleHandler;
+      /**
+       * 是否已经添加了空闲任务
+       */
+      private boolean                   isScheduled;
+      /**
+       * 预测的翻页方向,1:向后,-1:向前,0:无法预测,两侧都缓存
+       */
+      private int                       mDirection;
+
+      PageSnapshotCache ( MonthLayout parent, int maxBytes ) {
+
+            mParent = parent;
+            mCache = new SnapshotLruCache( maxBytes );
+            mIdleHandler = new RenderIdleHandler();
+      }
+
+      /**
+       * 获取该位置的快照
+       *
+       * @param position 页面位置
+       *
+       * @return 快照, 没有缓存时返回null
+       */
+      Bitmap get ( int position ) {
+
+            return mCache.get( position );
+      }
+
+      /**
+       * 修改缓存大小,超出部分会被淘汰
+       *
+       * @param maxBytes 最大字节数
+       */
+      void resize ( int maxBytes ) {
+
+            mCache.resize( maxBytes );
+      }
+
+      /**
+       * 页面日期,尺寸,显示模式等变化之后,所有快照都已经失效
+       */
+      void clear ( ) {
+
+            mCache.evictAll();
+      }
+
+      /**
+       * 删除显示该范围内任意一天的快照
+       *
+       * @param startDay 第一天
+       * @param endDay 最后一天,包含
+       */
+      void invalidate ( int startDay, int endDay ) {
+
+            int current = mParent.getCurrentItem();
+            for( int position = current - RANGE; position <= current + RANGE; position++ ) {
+                  int firstDay = mParent.getPageFirstDay( position );
+                  if( firstDay <= endDay && firstDay + MonthPage.CELL_COUNT > startDay ) {
+                        mCache.remove( position );
+                  }
+            }
+      }
+
+      /**
+       * 翻页方向可以预测时,后方只保留相邻一页的快照,更远的立即释放并且不再绘制
+       *
+       * @param direction 1:向后,-1:向前,0:无法预测
+       */
+      void setDirection ( int direction ) {
+
+            mDirection = direction;
+            if( direction == 0 ) {
+                  return;
+            }
+            /* 包括刚刚离开范围的一页 */
+            int current = mParent.getCurrentItem();
+            for( int i = 2; i <= RANGE + 1; i++ ) {
+                  mCache.remove( current - i * direction );
+            }
+      }
+
+      /**
+       * 释放全部资源
+       */
+      void release ( ) {
+
+            unSchedule();
+            mCache.evictAll();
+            mRenderPage = null;
+      }
+
+      /**
+       * 在主线程空闲时绘制当前页面附近缺少的快照
+       */
+      void scheduleRender ( ) {
+
+            if( isScheduled ) {
+                  return;
+            }
+            isScheduled = true;
+            Looper.myQueue().addIdleHandler( mIdleHandler );
+      }
+
+      private void unSchedule ( ) {
+
+            if( isScheduled ) {
+                  isScheduled = false;
+                  Looper.myQueue().removeIdleHandler( mIdleHandler );
+            }
+      }
+
+      /**
+       * 绘制一个缺少的快照
+       *
+       * @return true:还有需要绘制的快照
+       */
+      private boolean renderNext ( ) {
+
+            if( mParent.isScrolling() || mParent.getCellHeight() <= 0 || mParent.getWidth() <= 0 ) {
+                  return false;
+            }
+
+            int current = mParent.getCurrentItem();
+            int forward = mDirection < 0 ? -1 : 1;
+            for( int i = 1; i <= RANGE; i++ ) {
+                  if( render( current + i * forward ) ) {
+                        return true;
+                  }
+                  /* 方向确定时后方只绘制相邻一页 */
+                  if( ( mDirection == 0 || i == 1 ) && render( current - i * forward ) ) {
+                        return true;
+                  }
+            }
+            return false;
+      }
+
+      /**
+       * 绘制该位置快照
+       *
+       * @param position 位置
+       *
+       * @return true:绘制了快照,false:已经有快照或者无法绘制
+       */
+      private boolean render ( int position ) {
+
+            if( mCache.get( position ) != null ) {
+                  return false;
+            }
+
+            MonthPage page = mParent.findPageAt( position );
+            if( page != null ) {
+                  /* 已经添加到pager中的页面直接绘制 */
+                  if( page.isBindPending() || page.isAnimatingOrMoving() || page.getWidth() <= 0 ) {
+                        return false;
+                  }
+            } else {
+                  page = obtainRenderPage( position );
+            }
+
+            int width = page.getWidth();
+            int height = page.getHeight();
+            if( width <= 0 || height <= 0 ) {
+                  return false;
+            }
+
+            Bitmap bitmap = Bitmap.createBitmap( width, height, Config.ARGB_8888 );
+            mCanvas.setBitmap( bitmap );
+            page.draw( mCanvas );
+            mCanvas.setBitmap( null );
+            mCache.put( position, bitmap );
+            return true;
+      }
+
+      /**
+       * 使用离屏页面绑定该位置数据并且测量布局
+       */
+      private MonthPage obtainRenderPage ( int position ) {
+
+            if( mRenderPage == null ) {
+                  mRenderPage = mParent.createPage();
+            }
+
+            mParent.bindPage( mRenderPage, position );
+
+            int widthSpec = MeasureSpec.makeMeasureSpec( mParent.getWidth(), MeasureSpec.EXACTLY );
+            int heightSpec = MeasureSpec.makeMeasureSpec( 0, MeasureSpec.UNSPECIFIED );
+            mRenderPage.measure( widthSpec, heightSpec );
+            mRenderPage.layout( 0, 0, mRenderPage.getMeasuredWidth(), mRenderPage.getMeasuredHeight() );
+            return mRenderPage;
+      }
+
+      /**
+       * 按照字节数计算缓存大小
+       */
+      private static class SnapshotLruCache extends LruCache<Integer, Bitmap> {
+
+            private SnapshotLruCache ( int maxSize ) {
+
+                  super( maxSize );
+            }
+
+            @Override
+            protected int sizeOf ( Integer key, Bitmap value ) {
+
+                  return value.getByteCount();
+            }
+      }
+
+      /**
+       * 每次空闲只绘制一页,防止占用太久主线程
+       */
+      private class RenderIdleHandler implements IdleHandler {
+
+            @Override
+            public boolean queueIdle ( ) {
+
+                  boolean hasMore = renderNext();
+                  if( !hasMore ) {
+                        isScheduled = false;
+                  }
+                  return hasMore;
+            }
+      }
+}
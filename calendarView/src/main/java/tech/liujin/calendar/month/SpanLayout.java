@@ -0,0 +1,186 @@
+package tech.liujin.calendar.month;
+
+import java.util.Arrays;
+
+/**
+ * 一个页面中跨越多天的事件的分行结果:按照开始日期排序后依次放入第一个空闲的行,
+ * 同一个事件在各周中使用同一行,跨越周的事件在每周拆分为一段,绘制时每段只需要一次绘制
+ *
+ * @author Liujin 2019/4/29:10:02:15
+ */
+class SpanLayout {
+
+      private static final int COLUMNS = 7;
+
+      /**
+       * 页面第一天
+       */
+      private int mFirstDay;
+      /**
+       * 使用的行数
+       */
+      private int mLaneCount;
+      /**
+       * 因为超出最多行数而没有显示的事件数量
+       */
+      private int mOverflowCount;
+
+      /**
+       * 每一段所在的周,开始列,结束列(包含),行,颜色
+       */
+      private int[] mSegmentWeeks;
+      private int[] mSegmentStartColumns;
+      private int[] mSegmentEndColumns;
+      private int[] mSegmentLanes;
+      private int[] mSegmentColors;
+      private int   mSegmentCount;
+
+      SpanLayout ( int firstDay ) {
+
+            mFirstDay = firstDay;
+      }
+
+      /**
+       * 计算分行,O(n log n)
+       *
+       * @param spans 事件
+       * @param dayCount 页面天数
+       * @param maxLanes 最多使用的行数
+       */
+      void compute ( DaySpans spans, int dayCount, int maxLanes ) {
+
+            int size = spans.size();
+            int lastDay = mFirstDay + dayCount - 1;
+
+            /* 开始日期靠前的在前,相同时较长的在前,索引放在低位,排序不需要装箱 */
+            long[] order = new long[ size ];
+            int count = 0;
+            for( int i = 0; i < size; i++ ) {
+                  int start = Math.max( spans.getStart( i ), mFirstDay );
+                  int end = Math.min( spans.getEnd( i ), lastDay );
+                  if( start > end ) {
+                        continue;
+                  }
+                  long relativeStart = start - mFirstDay;
+                  long inverseLength = dayCount - ( end - start );
+                  order[ count++ ] = ( relativeStart << 42 ) | ( inverseLength << 21 ) | i;
+            }
+            Arrays.sort( order, 0, count );
+
+            int weeks = ( dayCount + COLUMNS - 1 ) / COLUMNS;
+            int capacity = count * Math.min( weeks, 2 ) + weeks;
+            mSegmentWeeks = new int[ capacity ];
+            mSegmentStartColumns = new int[ capacity ];
+            mSegmentEndColumns = new int[ capacity ];
+            mSegmentLanes = new int[ capacity ];
+            mSegmentColors = new int[ capacity ];
+            mSegmentCount = 0;
+            mLaneCount = 0;
+            mOverflowCount = 0;
+
+            /* 每行最后一个事件的结束日期 */
+            int[] laneEnds = new int[ Math.max( maxLanes, 0 ) ];
+            for( int i = 0; i < count; i++ ) {
+                  int index = (int) ( order[ i ] & 0x1FFFFF );
+                  int start = Math.max( spans.getStart( index ), mFirstDay );
+                  int end = Math.min( spans.getEnd( index ), lastDay );
+
+                  int lane = -1;
+                  for( int j = 0; j < mLaneCount; j++ ) {
+                        if( laneEnds[ j ] < start ) {
+                              lane = j;
+                              break;
+                        }
+                  }
+                  if( lane < 0 ) {
+                        if( mLaneCount == laneEnds.length ) {
+                              mOverflowCount++;
+                              continue;
+                        }
+                        lane = mLaneCount++;
+                  }
+                  laneEnds[ lane ] = end;
+
+                  addSegments( start - mFirstDay, end - mFirstDay, lane, spans.getColor( index ) );
+            }
+      }
+
+      /**
+       * 在周的边界拆分
+       */
+      private void addSegments ( int start, int end, int lane, int color ) {
+
+            int from = start;
+            while( from <= end ) {
+                  int week = from / COLUMNS;
+                  int to = Math.min( end, week * COLUMNS + COLUMNS - 1 );
+
+                  if( mSegmentCount == mSegmentWeeks.length ) {
+                        growSegments();
+                  }
+                  mSegmentWeeks[ mSegmentCount ] = week;
+                  mSegmentStartColumns[ mSegmentCount ] = from - week * COLUMNS;
+                  mSegmentEndColumns[ mSegmentCount ] = to - week * COLUMNS;
+                  mSegmentLanes[ mSegmentCount ] = lane;
+                  mSegmentColors[ mSegmentCount ] = color;
+                  mSegmentCount++;
+
+                  from = to + 1;
+            }
+      }
+
+      private void growSegments ( ) {
+
+            int capacity = mSegmentWeeks.length * 2 + 1;
+            mSegmentWeeks = Arrays.copyOf( mSegmentWeeks, capacity );
+            mSegmentStartColumns = Arrays.copyOf( mSegmentStartColumns, capacity );
+            mSegmentEndColumns = Arrays.copyOf( mSegmentEndColumns, capacity );
+            mSegmentLanes = Arrays.copyOf( mSegmentLanes, capacity );
+            mSegmentColors = Arrays.copyOf( mSegmentColors, capacity );
+      }
+
+      int getFirstDay ( ) {
+
+            return mFirstDay;
+      }
+
+      int getLaneCount ( ) {
+
+            return mLaneCount;
+      }
+
+      int getOverflowCount ( ) {
+
+            return mOverflowCount;
+      }
+
+      int getSegmentCount ( ) {
+
+            return mSegmentCount;
+      }
+
+      int getSegmentWeek ( int index ) {
+
+            return mSegmentWeeks[ index ];
+      }
+
+      int getSegmentStartColumn ( int index ) {
+
+            return mSegmentStartColumns[ index ];
+      }
+
+      int getSegmentEndColumn ( int index ) {
+
+            return mSegmentEndColumns[ index ];
+      }
+
+      int getSegmentLane ( int index ) {
+
+            return mSegmentLanes[ index ];
+      }
+
+      int getSegmentColor ( int index ) {
+
+            return mSegmentColors[ index ];
+      }
+}
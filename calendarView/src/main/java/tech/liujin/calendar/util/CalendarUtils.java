@@ -1,5 +1,6 @@
 package tech.liujin.calendar.util;
 
+import android.util.SparseIntArray;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
@@ -15,6 +16,58 @@ public class CalendarUtils {
       private static final Calendar         sCalendar = Calendar.getInstance();
       private static final SimpleDateFormat sFormat   = new SimpleDateFormat( "yyyy年MM月dd日", Locale.CHINA );
 
+      /**
+       * 月份信息缓存,所有日历共用,key:{@code year * 12 + month},value:{@code 总天数 << 8 | 第一天是周几}
+       */
+      private static final SparseIntArray sMonthInfo         = new SparseIntArray();
+      /**
+       * 月份信息缓存最多保存的月份数量
+       */
+      private static final int            MONTH_INFO_MAX_SIZE = 1200;
+
+      /**
+       * 获取月份信息,之后使用{@link #getDayCountOfMonthInfo(int)}和{@link #getDayOfWeekAtMonthInfo(int)}读取,
+       * 多次获取同一个月份不会重复计算
+       *
+       * @param date 该月份中的任意一天
+       *
+       * @return 压缩后的月份信息
+       */
+      public static int getMonthInfo ( Date date ) {
+
+            sCalendar.setTime( date );
+            int key = sCalendar.get( Calendar.YEAR ) * 12 + sCalendar.get( Calendar.MONTH );
+            int info = sMonthInfo.get( key, -1 );
+            if( info == -1 ) {
+                  info = getDayCountOfMonth( date ) << 8 | getDayOfWeekAtMonthFirstDay( date );
+                  if( sMonthInfo.size() >= MONTH_INFO_MAX_SIZE ) {
+                        sMonthInfo.clear();
+                  }
+                  sMonthInfo.put( key, info );
+            }
+            return info;
+      }
+
+      /**
+       * @param monthInfo {@link #getMonthInfo(Date)}
+       *
+       * @return 该月总天数
+       */
+      public static int getDayCountOfMonthInfo ( int monthInfo ) {
+
+            return monthInfo >> 8;
+      }
+
+      /**
+       * @param monthInfo {@link #getMonthInfo(Date)}
+       *
+       * @return 该月第一天是周几, {@link Calendar#SUNDAY}...{@link Calendar#SATURDAY}
+       */
+      public static int getDayOfWeekAtMonthInfo ( int monthInfo ) {
+
+            return monthInfo & 0xFF;
+      }
+
       public static int getDayCountOfMonth ( Date date ) {
 
             sCalendar.setTime( date );
@@ -0,0 +1,187 @@
+package tech.liujin.calendar.util;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * 使用int表示一天:距离1970年1月1日的天数(本地时间),计算全部使用整数运算,不创建对象,可以在任意线程使用
+ * <p>
+ * 月份与{@link Calendar#MONTH}一致,从0开始;星期与{@link Calendar#DAY_OF_WEEK}一致,{@link Calendar#SUNDAY}为1
+ *
+ * @author Liujin 2019/4/26:09:30:11
+ */
+public class DayKeys {
+
+      private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+      /**
+       * 根据日期计算
+       *
+       * @param year 年
+       * @param month 月,从0开始
+       * @param dayOfMonth 日,从1开始
+       *
+       * @return 天
+       */
+      public static int of ( int year, int month, int dayOfMonth ) {
+
+            /* 以3月为一年的开始,闰日位于一年的最后 */
+            int m = month + 1;
+            int y = m <= 2 ? year - 1 : year;
+            int era = ( y >= 0 ? y : y - 399 ) / 400;
+            int yearOfEra = y - era * 400;
+            int dayOfYear = ( 153 * ( m > 2 ? m - 3 : m + 9 ) + 2 ) / 5 + dayOfMonth - 1;
+            int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+            return era * 146097 + dayOfEra - 719468;
+      }
+
+      /**
+       * 根据本地时区计算该时间所在的天
+       *
+       * @param date 时间
+       *
+       * @return 天
+       */
+      public static int fromDate ( Date date ) {
+
+            return fromMillis( date.getTime() );
+      }
+
+      /**
+       * 根据本地时区计算该时间所在的天
+       *
+       * @param millis 时间
+       *
+       * @return 天
+       */
+      public static int fromMillis ( long millis ) {
+
+            long local = millis + TimeZone.getDefault().getOffset( millis );
+            long day = local / MILLIS_PER_DAY;
+            if( local < 0 && day * MILLIS_PER_DAY != local ) {
+                  day--;
+            }
+            return (int) day;
+      }
+
+      /**
+       * @param dayKey 天
+       *
+       * @return 该天本地时间0点
+       */
+      public static Date toDate ( int dayKey ) {
+
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set( getYear( dayKey ), getMonth( dayKey ), getDayOfMonth( dayKey ) );
+            return calendar.getTime();
+      }
+
+      /**
+       * @return 年
+       */
+      public static int getYear ( int dayKey ) {
+
+            int z = dayKey + 719468;
+            int era = ( z >= 0 ? z : z - 146096 ) / 146097;
+            int dayOfEra = z - era * 146097;
+            int yearOfEra = ( dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096 ) / 365;
+            int dayOfYear = dayOfEra - ( 365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100 );
+            int mp = ( 5 * dayOfYear + 2 ) / 153;
+            int year = yearOfEra + era * 400;
+            return mp >= 10 ? year + 1 : year;
+      }
+
+      /**
+       * @return 月, 从0开始
+       */
+      public static int getMonth ( int dayKey ) {
+
+            int mp = getMarchBasedMonth( dayKey );
+            return mp < 10 ? mp + 2 : mp - 10;
+      }
+
+      /**
+       * @return 日, 从1开始
+       */
+      public static int getDayOfMonth ( int dayKey ) {
+
+            int dayOfYear = getMarchBasedDayOfYear( dayKey );
+            int mp = ( 5 * dayOfYear + 2 ) / 153;
+            return dayOfYear - ( 153 * mp + 2 ) / 5 + 1;
+      }
+
+      /**
+       * @return 星期, {@link Calendar#SUNDAY}...{@link Calendar#SATURDAY}
+       */
+      public static int getDayOfWeek ( int dayKey ) {
+
+            /* 1970年1月1日是周四 */
+            int index = ( dayKey + 4 ) % 7;
+            if( index < 0 ) {
+                  index += 7;
+            }
+            return index + 1;
+      }
+
+      /**
+       * @return 月份, {@code year * 12 + month}, 用于按月分组
+       */
+      public static int getMonthKey ( int dayKey ) {
+
+            return getYear( dayKey ) * 12 + getMonth( dayKey );
+      }
+
+      /**
+       * @param monthKey {@link #getMonthKey(int)}
+       *
+       * @return 该月第一天
+       */
+      public static int firstDayOfMonthKey ( int monthKey ) {
+
+            int year = monthKey >= 0 ? monthKey / 12 : ( monthKey - 11 ) / 12;
+            return of( year, monthKey - year * 12, 1 );
+      }
+
+      /**
+       * @return 该天所在月份的第一天
+       */
+      public static int firstDayOfMonth ( int dayKey ) {
+
+            return dayKey - getDayOfMonth( dayKey ) + 1;
+      }
+
+      /**
+       * @return 该天所在月份的总天数
+       */
+      public static int dayCountOfMonth ( int dayKey ) {
+
+            int month = getMonth( dayKey );
+            int year = getYear( dayKey );
+            if( month == 11 ) {
+                  return of( year + 1, 0, 1 ) - of( year, 11, 1 );
+            }
+            return of( year, month + 1, 1 ) - of( year, month, 1 );
+      }
+
+      /**
+       * 以3月为一年第一个月时的月份
+       */
+      private static int getMarchBasedMonth ( int dayKey ) {
+
+            return ( 5 * getMarchBasedDayOfYear( dayKey ) + 2 ) / 153;
+      }
+
+      /**
+       * 以3月1日为一年第一天时的天数
+       */
+      private static int getMarchBasedDayOfYear ( int dayKey ) {
+
+            int z = dayKey + 719468;
+            int era = ( z >= 0 ? z : z - 146096 ) / 146097;
+            int dayOfEra = z - era * 146097;
+            int yearOfEra = ( dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096 ) / 365;
+            return dayOfEra - ( 365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100 );
+      }
+}
@@ -0,0 +1,141 @@
+package tech.liujin.calendar.behavior;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup.LayoutParams;
+import androidx.coordinatorlayout.widget.CoordinatorLayout;
+import androidx.core.widget.NestedScrollView;
+import androidx.test.core.app.ApplicationProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import tech.liujin.calendar.CalendarView;
+
+/**
+ * 每次测量/布局,calendar与scrollingView各自只处理一次
+ *
+ * @author Liujin 2019/5/4:10:05:27
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CalendarBehaviorsTest {
+
+      private static final int WIDTH  = 1080;
+      private static final int HEIGHT = 1920;
+
+      private CoordinatorLayout    mParent;
+      private CountingCalendarView mCalendar;
+      private CountingScrollView   mScrollingView;
+
+      @Before
+      public void setUp ( ) {
+
+            Context context = ApplicationProvider.getApplicationContext();
+            mParent = new CoordinatorLayout( context );
+            mCalendar = new CountingCalendarView( context );
+            mScrollingView = new CountingScrollView( context );
+            mParent.addView( mCalendar, new CoordinatorLayout.LayoutParams( LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT ) );
+            mParent.addView( mScrollingView, new CoordinatorLayout.LayoutParams( LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT ) );
+
+            new CalendarBehaviors().setUpWith( mCalendar, mScrollingView );
+      }
+
+      @Test
+      public void measureAndLayoutEachViewOncePerPass ( ) {
+
+            /* 奇数次和偶数次都要检查,之前交替跳过的实现在这里会多算或者少算 */
+            for( int pass = 1; pass <= 3; pass++ ) {
+                  mCalendar.requestLayout();
+                  mScrollingView.requestLayout();
+                  runPass();
+
+                  assertEquals( pass, mCalendar.mMeasureCount );
+                  assertEquals( pass, mCalendar.mLayoutCount );
+                  assertEquals( pass, mScrollingView.mMeasureCount );
+                  assertEquals( pass, mScrollingView.mLayoutCount );
+            }
+      }
+
+      @Test
+      public void scrollingViewFillsHeightLeftByFoldedCalendar ( ) {
+
+            runPass();
+
+            assertEquals( HEIGHT - mCalendar.getMinimumHeight(), mScrollingView.getMeasuredHeight() );
+            assertEquals( mCalendar.getTop() + mCalendar.getVisibleHeight(), mScrollingView.getTop() );
+      }
+
+      @Test(expected = IllegalArgumentException.class)
+      public void rejectViewWithoutNestedScrolling ( ) {
+
+            Context context = ApplicationProvider.getApplicationContext();
+            View view = new View( context );
+            mParent.addView( view, new CoordinatorLayout.LayoutParams( LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT ) );
+
+            new CalendarBehaviors().setUpWith( mCalendar, view );
+      }
+
+      private void runPass ( ) {
+
+            mParent.measure(
+                MeasureSpec.makeMeasureSpec( WIDTH, MeasureSpec.EXACTLY ),
+                MeasureSpec.makeMeasureSpec( HEIGHT, MeasureSpec.EXACTLY )
+            );
+            mParent.layout( 0, 0, WIDTH, HEIGHT );
+      }
+
+      private static class CountingCalendarView extends CalendarView {
+
+            private int mMeasureCount;
+            private int mLayoutCount;
+
+            private CountingCalendarView ( Context context ) {
+
+                  super( context );
+            }
+
+            @Override
+            protected void onMeasure ( int widthMeasureSpec, int heightMeasureSpec ) {
+
+                  mMeasureCount++;
+                  super.onMeasure( widthMeasureSpec, heightMeasureSpec );
+            }
+
+            @Override
+            protected void onLayout ( boolean changed, int l, int t, int r, int b ) {
+
+                  mLayoutCount++;
+                  super.onLayout( changed, l, t, r, b );
+            }
+      }
+
+      private static class CountingScrollView extends NestedScrollView {
+
+            private int mMeasureCount;
+            private int mLayoutCount;
+
+            private CountingScrollView ( Context context ) {
+
+                  super( context );
+            }
+
+            @Override
+            protected void onMeasure ( int widthMeasureSpec, int heightMeasureSpec ) {
+
+                  mMeasureCount++;
+                  super.onMeasure( widthMeasureSpec, heightMeasureSpec );
+            }
+
+            @Override
+            protected void onLayout ( boolean changed, int l, int t, int r, int b ) {
+
+                  mLayoutCount++;
+                  super.onLayout( changed, l, t, r, b );
+            }
+      }
+}
@@ -0,0 +1,127 @@
+package tech.liujin.calendar.event;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+import tech.liujin.calendar.event.EventIndex.Visitor;
+
+/**
+ * 随机新增,替换,删除之后,查询结果与逐个比较的结果完全一致,包括增量合并前后以及批量重建之后
+ *
+ * @author Liujin 2019/5/5:10:12:46
+ */
+public class EventIndexTest {
+
+      private static final long SEED = 20190505L;
+
+      private static final int STEPS     = 20000;
+      private static final int ID_COUNT  = 3000;
+      private static final int DAY_RANGE = 5000;
+      private static final int MAX_SPAN  = 60;
+
+      @Test
+      public void randomChangesMatchBruteForce ( ) {
+
+            Random random = new Random( SEED );
+            EventIndex index = new EventIndex();
+            Map<Long, int[]> expected = new HashMap<>();
+
+            for( int step = 0; step < STEPS; step++ ) {
+                  long id = random.nextInt( ID_COUNT );
+                  if( random.nextInt( 4 ) == 0 ) {
+                        index.remove( id );
+                        expected.remove( id );
+                  } else {
+                        int start = random.nextInt( DAY_RANGE );
+                        int end = start + random.nextInt( MAX_SPAN );
+                        int color = random.nextInt();
+                        index.put( id, start, end, color );
+                        expected.put( id, new int[]{ start, end, color } );
+                  }
+
+                  if( step % 97 == 0 ) {
+                        int start = random.nextInt( DAY_RANGE );
+                        assertQuery( expected, index, start, start + random.nextInt( 40 ) );
+                  }
+            }
+
+            /* 批量重建之后继续修改 */
+            EventIndex.Builder builder = new EventIndex.Builder();
+            for( Entry<Long, int[]> entry : expected.entrySet() ) {
+                  int[] event = entry.getValue();
+                  builder.add( entry.getKey(), event[ 0 ], event[ 1 ], event[ 2 ] );
+            }
+            index.build( builder );
+            for( int i = 0; i < 200; i++ ) {
+                  long id = random.nextInt( ID_COUNT );
+                  index.remove( id );
+                  expected.remove( id );
+                  int start = random.nextInt( DAY_RANGE );
+                  assertQuery( expected, index, start, start + random.nextInt( 40 ) );
+            }
+            assertQuery( expected, index, Integer.MIN_VALUE, Integer.MAX_VALUE );
+      }
+
+      @Test
+      public void snapshotIsNotAffectedByLaterChanges ( ) {
+
+            Random random = new Random( SEED );
+            EventIndex index = new EventIndex();
+            Map<Long, int[]> expected = new HashMap<>();
+            for( long id = 0; id < 500; id++ ) {
+                  int start = random.nextInt( DAY_RANGE );
+                  int end = start + random.nextInt( MAX_SPAN );
+                  index.put( id, start, end, 0 );
+                  expected.put( id, new int[]{ start, end, 0 } );
+            }
+
+            EventIndex.Snapshot snapshot = index.snapshot();
+            for( long id = 0; id < 500; id += 2 ) {
+                  index.remove( id );
+            }
+            for( long id = 1; id < 500; id += 2 ) {
+                  index.put( id, 0, 0, 0 );
+            }
+
+            assertQuery( expected, snapshot, 0, DAY_RANGE + MAX_SPAN );
+      }
+
+      private static void assertQuery ( Map<Long, int[]> expected, EventQuery query, int startDay, int endDay ) {
+
+            TreeMap<Long, int[]> want = new TreeMap<>();
+            for( Entry<Long, int[]> entry : expected.entrySet() ) {
+                  int[] event = entry.getValue();
+                  if( event[ 0 ] <= endDay && event[ 1 ] >= startDay ) {
+                        want.put( entry.getKey(), event );
+                  }
+            }
+
+            final TreeMap<Long, int[]> got = new TreeMap<>();
+            final int[] visitCount = new int[ 1 ];
+            query.query( startDay, endDay, new Visitor() {
+
+                  @Override
+                  public void visit ( long id, int startDay, int endDay, int color ) {
+
+                        visitCount[ 0 ]++;
+                        got.put( id, new int[]{ startDay, endDay, color } );
+                  }
+            } );
+
+            /* 同一个事件只访问一次 */
+            assertEquals( got.size(), visitCount[ 0 ] );
+            assertEquals( want.keySet(), got.keySet() );
+            for( Entry<Long, int[]> entry : want.entrySet() ) {
+                  int[] event = entry.getValue();
+                  int[] visited = got.get( entry.getKey() );
+                  assertEquals( event[ 0 ], visited[ 0 ] );
+                  assertEquals( event[ 1 ], visited[ 1 ] );
+                  assertEquals( event[ 2 ], visited[ 2 ] );
+            }
+      }
+}
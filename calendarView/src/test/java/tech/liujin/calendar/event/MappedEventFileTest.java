@@ -0,0 +1,191 @@
+package tech.liujin.calendar.event;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import tech.liujin.calendar.event.EventIndex.Visitor;
+
+/**
+ * 使用临时文件:修改追加到文件之后重新打开可以恢复,重写之后追加的记录清空,随机修改与逐个比较的结果一致
+ *
+ * @author Liujin 2019/5/5:16:40:12
+ */
+public class MappedEventFileTest {
+
+      private static final int HEADER_BYTES = 32;
+      private static final int RECORD_BYTES = 20 + 4;
+
+      private File             mFile;
+      private MappedEventFile  mEventFile;
+      private Map<Long, int[]> mExpected = new HashMap<>();
+
+      @Before
+      public void setUp ( ) throws IOException {
+
+            mFile = File.createTempFile( "events", ".bin" );
+            /* 空文件由open创建 */
+            mFile.delete();
+            mEventFile = MappedEventFile.open( mFile );
+      }
+
+      @After
+      public void tearDown ( ) throws IOException {
+
+            mEventFile.close();
+            mFile.delete();
+      }
+
+      @Test
+      public void appendedChangesAreReplayedAfterReopen ( ) throws IOException {
+
+            put( 1, 10, 12, 0xFF0000FF );
+            put( 2, 11, 11, 0xFFFF0000 );
+            put( 3, 40, 45, 0xFF00FF00 );
+            remove( 2 );
+            /* 替换 */
+            put( 3, 20, 21, 0xFF00FF00 );
+            assertQuery( mEventFile, 0, 100 );
+
+            reopen();
+            assertQuery( mEventFile, 0, 100 );
+            assertQuery( mEventFile, 11, 11 );
+            assertQuery( mEventFile, 13, 19 );
+
+            /* 重新打开之后继续追加 */
+            remove( 1 );
+            put( 4, 5, 50, 0 );
+            reopen();
+            assertQuery( mEventFile, 0, 100 );
+      }
+
+      @Test
+      public void compactRewritesRecordsAndDropsLog ( ) throws IOException {
+
+            for( long id = 0; id < 30; id++ ) {
+                  put( id, (int) id * 3, (int) id * 3 + 2, (int) id );
+            }
+            for( long id = 0; id < 30; id += 3 ) {
+                  remove( id );
+            }
+
+            mEventFile.compact();
+            assertEquals( HEADER_BYTES + RECORD_BYTES * mExpected.size(), mFile.length() );
+            assertQuery( mEventFile, 0, 100 );
+            assertQuery( mEventFile, 31, 47 );
+
+            reopen();
+            assertQuery( mEventFile, 0, 100 );
+
+            /* 重写之后的追加仍然可以恢复 */
+            remove( 1 );
+            put( 100, 0, 100, 0 );
+            reopen();
+            assertQuery( mEventFile, 0, 100 );
+            assertQuery( mEventFile, 50, 50 );
+      }
+
+      @Test
+      public void writeFromIndex ( ) throws IOException {
+
+            EventIndex index = new EventIndex();
+            Random random = new Random( 7 );
+            for( long id = 0; id < 200; id++ ) {
+                  int start = random.nextInt( 1000 );
+                  int end = start + random.nextInt( 30 );
+                  index.put( id, start, end, (int) id );
+                  mExpected.put( id, new int[]{ start, end, (int) id } );
+            }
+
+            mEventFile.close();
+            MappedEventFile.write( mFile, index );
+            mEventFile = MappedEventFile.open( mFile );
+            assertEquals( HEADER_BYTES + RECORD_BYTES * 200, mFile.length() );
+            for( int start = 0; start < 1000; start += 37 ) {
+                  assertQuery( mEventFile, start, start + 20 );
+            }
+      }
+
+      @Test
+      public void randomChangesMatchBruteForceAcrossReopen ( ) throws IOException {
+
+            Random random = new Random( 20190505L );
+            for( int step = 0; step < 3000; step++ ) {
+                  long id = random.nextInt( 300 );
+                  if( random.nextInt( 4 ) == 0 ) {
+                        remove( id );
+                  } else {
+                        int start = random.nextInt( 2000 );
+                        put( id, start, start + random.nextInt( 40 ), random.nextInt() );
+                  }
+
+                  if( step % 50 == 0 ) {
+                        int start = random.nextInt( 2000 );
+                        assertQuery( mEventFile, start, start + random.nextInt( 40 ) );
+                  }
+                  if( step % 500 == 499 ) {
+                        reopen();
+                        assertQuery( mEventFile, Integer.MIN_VALUE, Integer.MAX_VALUE );
+                  }
+            }
+      }
+
+      private void put ( long id, int startDay, int endDay, int color ) throws IOException {
+
+            mEventFile.put( id, startDay, endDay, color );
+            mExpected.put( id, new int[]{ startDay, endDay, color } );
+      }
+
+      private void remove ( long id ) throws IOException {
+
+            mEventFile.remove( id );
+            mExpected.remove( id );
+      }
+
+      private void reopen ( ) throws IOException {
+
+            mEventFile.close();
+            mEventFile = MappedEventFile.open( mFile );
+      }
+
+      private void assertQuery ( EventQuery query, int startDay, int endDay ) {
+
+            TreeMap<Long, int[]> want = new TreeMap<>();
+            for( Entry<Long, int[]> entry : mExpected.entrySet() ) {
+                  int[] event = entry.getValue();
+                  if( event[ 0 ] <= endDay && event[ 1 ] >= startDay ) {
+                        want.put( entry.getKey(), event );
+                  }
+            }
+
+            final TreeMap<Long, int[]> got = new TreeMap<>();
+            final int[] visitCount = new int[ 1 ];
+            query.query( startDay, endDay, new Visitor() {
+
+                  @Override
+                  public void visit ( long id, int startDay, int endDay, int color ) {
+
+                        visitCount[ 0 ]++;
+                        got.put( id, new int[]{ startDay, endDay, color } );
+                  }
+            } );
+
+            assertEquals( got.size(), visitCount[ 0 ] );
+            assertEquals( want.keySet(), got.keySet() );
+            for( Entry<Long, int[]> entry : want.entrySet() ) {
+                  int[] event = entry.getValue();
+                  int[] visited = got.get( entry.getKey() );
+                  assertEquals( event[ 0 ], visited[ 0 ] );
+                  assertEquals( event[ 1 ], visited[ 1 ] );
+                  assertEquals( event[ 2 ], visited[ 2 ] );
+            }
+      }
+}
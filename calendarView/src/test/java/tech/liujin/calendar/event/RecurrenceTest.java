@@ -0,0 +1,102 @@
+package tech.liujin.calendar.event;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 带序号的BYDAY,短月份的BYMONTHDAY,COUNT与EXDATE一起使用,以及UNTIL/COUNT决定的最后一天
+ *
+ * @author Liujin 2019/5/5:14:26:08
+ */
+public class RecurrenceTest {
+
+      @Test
+      public void lastFridayOfEveryMonth ( ) {
+
+            int start = DayKeys.of( 2019, 0, 25 );
+            Recurrence recurrence = Recurrence.parse( "FREQ=MONTHLY;BYDAY=-1FR", start, start );
+
+            int[] expected = {
+                DayKeys.of( 2019, 0, 25 ),
+                DayKeys.of( 2019, 1, 22 ),
+                DayKeys.of( 2019, 2, 29 ),
+                DayKeys.of( 2019, 3, 26 ),
+                DayKeys.of( 2019, 4, 31 ),
+                DayKeys.of( 2019, 5, 28 )
+            };
+            assertArrayEquals( expected, recurrence.expand( start, DayKeys.of( 2019, 5, 30 ) ) );
+            assertEquals( Integer.MAX_VALUE, recurrence.getLastDay() );
+      }
+
+      @Test
+      public void monthDay31SkipsShortMonths ( ) {
+
+            int start = DayKeys.of( 2019, 0, 31 );
+            Recurrence recurrence = Recurrence.parse( "FREQ=MONTHLY;BYMONTHDAY=31", start, start );
+
+            int[] expected = {
+                DayKeys.of( 2019, 0, 31 ),
+                DayKeys.of( 2019, 2, 31 ),
+                DayKeys.of( 2019, 4, 31 ),
+                DayKeys.of( 2019, 6, 31 ),
+                DayKeys.of( 2019, 7, 31 ),
+                DayKeys.of( 2019, 9, 31 ),
+                DayKeys.of( 2019, 11, 31 )
+            };
+            assertArrayEquals( expected, recurrence.expand( start, DayKeys.of( 2019, 11, 31 ) ) );
+
+            /* 从中间的月份开始展开,结果不变 */
+            int[] fromApril = {
+                DayKeys.of( 2019, 4, 31 ),
+                DayKeys.of( 2019, 6, 31 )
+            };
+            assertArrayEquals( fromApril, recurrence.expand( DayKeys.of( 2019, 3, 1 ), DayKeys.of( 2019, 6, 31 ) ) );
+      }
+
+      @Test
+      public void excludedDatesStillCount ( ) {
+
+            int start = DayKeys.of( 2019, 4, 1 );
+            Recurrence recurrence = Recurrence.parse( "FREQ=DAILY;COUNT=5", start, start );
+            recurrence.setExDates( new int[]{ start + 2 }, 1 );
+
+            assertArrayEquals( new int[]{ start, start + 1, start + 3, start + 4 }, recurrence.expand( start, start + 30 ) );
+            assertEquals( start + 4, recurrence.getLastDay() );
+
+            /* 发布之后增加的排除日期同样计入次数 */
+            Recurrence excluded = recurrence.withExDate( start + 4 );
+            assertArrayEquals( new int[]{ start, start + 1, start + 3 }, excluded.expand( start, start + 30 ) );
+            assertEquals( start + 4, excluded.getLastDay() );
+            assertArrayEquals( new int[]{ start, start + 1, start + 3, start + 4 }, recurrence.expand( start, start + 30 ) );
+
+            /* 范围从中间开始时仍然从第一次开始计数 */
+            assertArrayEquals( new int[]{ start + 3, start + 4 }, recurrence.expand( start + 2, start + 30 ) );
+      }
+
+      @Test
+      public void lastDayFromUntilAndCount ( ) {
+
+            int start = DayKeys.of( 2019, 4, 1 );
+
+            Recurrence until = Recurrence.parse( "FREQ=WEEKLY;UNTIL=20190531T235959Z", start, start );
+            assertEquals( DayKeys.of( 2019, 4, 31 ), until.getLastDay() );
+            int[] weekly = { start, start + 7, start + 14, start + 21, start + 28 };
+            assertArrayEquals( weekly, until.expand( start, start + 60 ) );
+
+            Recurrence count = Recurrence.parse( "FREQ=WEEKLY;COUNT=3", start, start );
+            assertEquals( start + 14, count.getLastDay() );
+            assertArrayEquals( new int[]{ start, start + 7, start + 14 }, count.expand( start, start + 60 ) );
+
+            /* 先到达UNTIL */
+            Recurrence both = Recurrence.parse( "FREQ=DAILY;COUNT=10;UNTIL=20190504", start, start );
+            assertEquals( start + 3, both.getLastDay() );
+            assertArrayEquals( new int[]{ start, start + 1, start + 2, start + 3 }, both.expand( start, start + 60 ) );
+
+            /* 先到达COUNT */
+            Recurrence countFirst = Recurrence.parse( "FREQ=DAILY;INTERVAL=2;COUNT=3;UNTIL=20191231", start, start );
+            assertEquals( start + 4, countFirst.getLastDay() );
+      }
+}
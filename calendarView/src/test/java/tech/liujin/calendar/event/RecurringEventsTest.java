@@ -0,0 +1,99 @@
+package tech.liujin.calendar.event;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import tech.liujin.calendar.event.EventIndex.Visitor;
+import tech.liujin.calendar.util.DayKeys;
+
+/**
+ * 按月缓存的展开结果在新增,替换,删除之后失效;持续多天的发生从上个月开始也能查询到
+ * <p>
+ * 缓存使用{@link android.util.LruCache},所以使用robolectric运行
+ *
+ * @author Liujin 2019/5/5:14:58:31
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RecurringEventsTest {
+
+      private static final int COLOR = 0xFF00FF00;
+
+      private RecurringEvents mEvents;
+      private int             mMayFirst;
+      private int             mMayLast;
+
+      @Before
+      public void setUp ( ) {
+
+            mEvents = new RecurringEvents();
+            mMayFirst = DayKeys.of( 2019, 4, 1 );
+            mMayLast = DayKeys.of( 2019, 4, 31 );
+      }
+
+      @Test
+      public void monthCacheIsDroppedAfterPutAndRemove ( ) {
+
+            mEvents.put( 1, Recurrence.parse( "FREQ=WEEKLY", mMayFirst, mMayFirst ), COLOR );
+            int[] weekly = { mMayFirst, mMayFirst + 7, mMayFirst + 14, mMayFirst + 21, mMayFirst + 28 };
+            assertStarts( weekly, queryMay() );
+            /* 第二次查询使用缓存 */
+            assertStarts( weekly, queryMay() );
+
+            /* 新增的规则在已经缓存的月份中出现 */
+            mEvents.put( 2, Recurrence.parse( "FREQ=MONTHLY;BYMONTHDAY=15", mMayFirst + 14, mMayFirst + 14 ), COLOR );
+            assertStarts( new int[]{ mMayFirst, mMayFirst + 7, mMayFirst + 14, mMayFirst + 14, mMayFirst + 21, mMayFirst + 28 }, queryMay() );
+
+            /* 替换 */
+            mEvents.put( 1, Recurrence.parse( "FREQ=WEEKLY;COUNT=2", mMayFirst, mMayFirst ), COLOR );
+            assertStarts( new int[]{ mMayFirst, mMayFirst + 7, mMayFirst + 14 }, queryMay() );
+
+            /* 删除 */
+            mEvents.remove( 2 );
+            assertStarts( new int[]{ mMayFirst, mMayFirst + 7 }, queryMay() );
+            assertEquals( 1, mEvents.size() );
+
+            mEvents.clear();
+            assertStarts( new int[ 0 ], queryMay() );
+            assertEquals( 0, mEvents.size() );
+      }
+
+      @Test
+      public void occurrenceStartingInPreviousMonthIsVisible ( ) {
+
+            int start = DayKeys.of( 2019, 3, 29 );
+            mEvents.put( 1, Recurrence.parse( "FREQ=MONTHLY;COUNT=1", start, start + 3 ), COLOR );
+
+            ArrayList<Integer> starts = queryMay();
+            assertStarts( new int[]{ start }, starts );
+      }
+
+      private ArrayList<Integer> queryMay ( ) {
+
+            final ArrayList<Integer> starts = new ArrayList<>();
+            mEvents.query( mMayFirst, mMayLast, new Visitor() {
+
+                  @Override
+                  public void visit ( long id, int startDay, int endDay, int color ) {
+
+                        starts.add( startDay );
+                  }
+            } );
+            Collections.sort( starts );
+            return starts;
+      }
+
+      private static void assertStarts ( int[] expected, ArrayList<Integer> starts ) {
+
+            assertEquals( expected.length, starts.size() );
+            for( int i = 0; i < expected.length; i++ ) {
+                  assertEquals( expected[ i ], (int) starts.get( i ) );
+            }
+      }
+}
@@ -0,0 +1,240 @@
+package tech.liujin.calendar.month;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.CalendarContract.Instances;
+import android.view.View.MeasureSpec;
+import androidx.test.core.app.ApplicationProvider;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import tech.liujin.calendar.CalendarView;
+import tech.liujin.calendar.event.CalendarInstancesLoader;
+import tech.liujin.calendar.month.MonthLayout.MonthDayViewFactory;
+
+/**
+ * 使用本地的provider返回{@link Instances}的cursor:儒略日的换算,超出页面范围的部分被裁剪,
+ * 刷新后结果没有变化时页面不重新绑定,变化时只重新绑定变化的那一天
+ * <p>
+ * {@link DayDecorations}以及子view的绑定都是包内可见的,所以放在month包中
+ *
+ * @author Liujin 2019/5/4:16:20:35
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CalendarInstancesLoaderTest {
+
+      private static final String AUTHORITY     = "tech.liujin.calendar.test.instances";
+      private static final Uri    INSTANCES_URI = Uri.parse( "content://" + AUTHORITY + "/instances" );
+
+      private static final int JULIAN_DAY_OF_EPOCH = 2440588;
+
+      private static final int RED  = 0xFFFF0000;
+      private static final int BLUE = 0xFF0000FF;
+
+      private static final int WIDTH  = 1080;
+      private static final int HEIGHT = 1920;
+
+      private FakeInstancesProvider   mProvider;
+      private CalendarView            mCalendar;
+      private CountingFactory         mFactory;
+      private CalendarInstancesLoader mLoader;
+
+      @Before
+      public void setUp ( ) {
+
+            Context context = ApplicationProvider.getApplicationContext();
+            mProvider = Robolectric.buildContentProvider( FakeInstancesProvider.class ).create( AUTHORITY ).get();
+
+            mCalendar = new CalendarView( context );
+            mFactory = new CountingFactory();
+            mCalendar.getMonthLayout().setMonthDayViewFactory( mFactory );
+
+            Executor direct = new Executor() {
+
+                  @Override
+                  public void execute ( Runnable command ) {
+
+                        command.run();
+                  }
+            };
+            mLoader = new CalendarInstancesLoader(
+                mCalendar.getMonthLayout(),
+                context.getContentResolver(),
+                direct,
+                INSTANCES_URI,
+                INSTANCES_URI
+            );
+      }
+
+      @Test
+      public void convertJulianDaysAndClipToPage ( ) {
+
+            int firstDay = mCalendar.getMonthLayout().getPageFirstDay( mCalendar.getMonthLayout().getCurrentItem() );
+            int lastDay = firstDay + MonthPage.CELL_COUNT - 1;
+            /* 从页面之前开始,到第二天结束 */
+            mProvider.addRow( firstDay - 3, firstDay + 1, RED );
+            mProvider.addRow( firstDay + 10, firstDay + 10, BLUE );
+            /* 持续到页面之后 */
+            mProvider.addRow( lastDay - 1, lastDay + 5, BLUE );
+            /* 完全在页面之外 */
+            mProvider.addRow( lastDay + 2, lastDay + 3, RED );
+
+            DayDecorations out = new DayDecorations( MonthPage.CELL_COUNT );
+            out.reset( firstDay, MonthPage.CELL_COUNT );
+            mLoader.load( firstDay, MonthPage.CELL_COUNT, out );
+
+            assertEquals( 1, out.getCount( 0 ) );
+            assertEquals( RED, out.getColor( 0 ) );
+            assertEquals( 1, out.getCount( 1 ) );
+            assertEquals( 0, out.getCount( 2 ) );
+            assertEquals( 1, out.getCount( 10 ) );
+            assertEquals( BLUE, out.getColor( 10 ) );
+            assertEquals( 1, out.getCount( MonthPage.CELL_COUNT - 2 ) );
+            assertEquals( 1, out.getCount( MonthPage.CELL_COUNT - 1 ) );
+
+            int total = 0;
+            for( int i = 0; i < MonthPage.CELL_COUNT; i++ ) {
+                  total += out.getCount( i );
+            }
+            assertEquals( 2 + 1 + 2, total );
+      }
+
+      @Test
+      public void refreshWithSameResultsDoesNotRebind ( ) {
+
+            int firstDay = mCalendar.getMonthLayout().getPageFirstDay( mCalendar.getMonthLayout().getCurrentItem() );
+            mProvider.addRow( firstDay + 3, firstDay + 4, RED );
+
+            measureAndLayout();
+            mLoader.attach();
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            assertFalse( mFactory.mBoundDays.isEmpty() );
+
+            mFactory.mBoundDays.clear();
+            mLoader.getDecorationLoader().refresh();
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            assertTrue( mFactory.mBoundDays.isEmpty() );
+
+            /* 数据变化之后只有显示该天的子view重新绑定,相邻月份的页面也可能包含这一天 */
+            mProvider.addRow( firstDay + 7, firstDay + 7, BLUE );
+            mLoader.getDecorationLoader().refresh();
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            assertFalse( mFactory.mBoundDays.isEmpty() );
+            for( int day : mFactory.mBoundDays ) {
+                  assertEquals( firstDay + 7, day );
+            }
+
+            mLoader.detach();
+      }
+
+      private void measureAndLayout ( ) {
+
+            mCalendar.measure(
+                MeasureSpec.makeMeasureSpec( WIDTH, MeasureSpec.EXACTLY ),
+                MeasureSpec.makeMeasureSpec( HEIGHT, MeasureSpec.AT_MOST )
+            );
+            mCalendar.layout( 0, 0, WIDTH, mCalendar.getMeasuredHeight() );
+      }
+
+      /**
+       * 返回设置好的行,日期使用儒略日
+       */
+      public static class FakeInstancesProvider extends ContentProvider {
+
+            private final ArrayList<int[]> mRows = new ArrayList<>();
+
+            void addRow ( int startDay, int endDay, int color ) {
+
+                  mRows.add( new int[]{ startDay + JULIAN_DAY_OF_EPOCH, endDay + JULIAN_DAY_OF_EPOCH, color } );
+            }
+
+            @Override
+            public boolean onCreate ( ) {
+
+                  return true;
+            }
+
+            @Override
+            public Cursor query ( Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder ) {
+
+                  MatrixCursor cursor = new MatrixCursor( projection );
+                  for( int[] row : mRows ) {
+                        Object[] values = new Object[ projection.length ];
+                        for( int i = 0; i < projection.length; i++ ) {
+                              if( Instances.START_DAY.equals( projection[ i ] ) ) {
+                                    values[ i ] = row[ 0 ];
+                              } else if( Instances.END_DAY.equals( projection[ i ] ) ) {
+                                    values[ i ] = row[ 1 ];
+                              } else if( Instances.DISPLAY_COLOR.equals( projection[ i ] ) ) {
+                                    values[ i ] = row[ 2 ];
+                              }
+                        }
+                        cursor.addRow( values );
+                  }
+                  return cursor;
+            }
+
+            @Override
+            public String getType ( Uri uri ) {
+
+                  return null;
+            }
+
+            @Override
+            public Uri insert ( Uri uri, ContentValues values ) {
+
+                  return null;
+            }
+
+            @Override
+            public int delete ( Uri uri, String selection, String[] selectionArgs ) {
+
+                  return 0;
+            }
+
+            @Override
+            public int update ( Uri uri, ContentValues values, String selection, String[] selectionArgs ) {
+
+                  return 0;
+            }
+      }
+
+      /**
+       * 记录子view设置装饰数据时对应的天
+       */
+      private static class CountingFactory implements MonthDayViewFactory {
+
+            private ArrayList<Integer> mBoundDays = new ArrayList<>();
+
+            @Override
+            public MonthDayView generateItemView ( Context context ) {
+
+                  return new MonthDayView( context ) {
+
+                        @Override
+                        void bindDecoration ( DayDecorations decorations, int index ) {
+
+                              if( decorations != null ) {
+                                    mBoundDays.add( decorations.getFirstDay() + index );
+                              }
+                              super.bindDecoration( decorations, index );
+                        }
+                  };
+            }
+      }
+}